@@ -0,0 +1,10 @@
+#!/usr/bin/env bash
+# Runs the JMH AuthorizationBenchmark (src/test/java), which compares the former path matchers plus
+# @PreAuthorize SpEL evaluation with the compiled AuthorizationPolicy for an admin's GET /animes.
+#
+# Usage: loadtest/authorization-benchmark.sh [jmh options]   e.g. -prof gc to report allocation rates
+set -euo pipefail
+
+./mvnw -q test-compile
+CLASSPATH="target/test-classes:target/classes:$(./mvnw -q dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=/dev/stdout)"
+java -cp "$CLASSPATH" org.openjdk.jmh.Main AuthorizationBenchmark "$@"
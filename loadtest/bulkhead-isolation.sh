@@ -0,0 +1,66 @@
+#!/usr/bin/env bash
+# Shows how much batch imports slow down single reads, with the shared connection pool
+# (devdojo.bulkhead.enabled=false) and with per-workload bulkheads and pool partitions.
+# For each setup it measures the p99 of GET /animes/{id} alone, then again while
+# POST /animes/batch imports run in the background. The anime cache is off so that every read
+# reaches the database. The imports insert rows named "Load test".
+#
+# Usage: loadtest/bulkhead-isolation.sh [requests] [concurrent-clients] [batch-clients] [batch-size]
+#   ANIME_ID   anime read by the read load (default 2)
+#   READ_AUTH  user:password for reads (default igor:devdojo)
+#   WRITE_AUTH user:password for imports, needs ROLE_ADMIN (default joao:devdojo)
+set -euo pipefail
+
+REQUESTS="${1:-20000}"
+CLIENTS="${2:-50}"
+BATCH_CLIENTS="${3:-8}"
+BATCH_SIZE="${4:-500}"
+PORT=8080
+JAR=target/spring-webflux-essentials-0.0.1-SNAPSHOT.jar
+
+command -v h2load >/dev/null || { echo "h2load (nghttp2) is required" >&2; exit 1; }
+basic() { printf 'Authorization: Basic %s' "$(printf '%s' "$1" | base64)"; }
+
+# p99 in ms of the request times (third column, microseconds) of an h2load --log-file
+p99() { awk '{ print $3 }' "$1" | sort -n | awk '{ t[NR] = $1 } END { i = int(NR * 0.99); if (i < 1) i = 1; printf "%.1f ms\n", t[i] / 1000 }'; }
+
+read_load() {
+  h2load --h1 -n "$REQUESTS" -c "$CLIENTS" -H "$(basic "${READ_AUTH:-igor:devdojo}")" --log-file="$1" \
+    "http://localhost:$PORT/animes/${ANIME_ID:-2}" | grep -E "^(finished in|requests:)" | sed 's/^/  /'
+}
+
+./mvnw -q -DskipTests package
+
+batch=$(mktemp)
+{ printf '['; for i in $(seq "$BATCH_SIZE"); do [ "$i" -gt 1 ] && printf ','; printf '{"name":"Load test"}'; done; printf ']'; } > "$batch"
+log=$(mktemp)
+
+for setup in shared partitioned; do
+  case "$setup" in
+    shared) args=(--devdojo.bulkhead.enabled=false) ;;
+    partitioned) args=(--devdojo.bulkhead.enabled=true --devdojo.bulkhead.partitions.enabled=true) ;;
+  esac
+  java -jar "$JAR" --devdojo.cache.anime.ttl=0s "${args[@]}" > "/tmp/bulkhead-$setup.log" 2>&1 &
+  app=$!
+  trap 'kill $app 2>/dev/null || true' EXIT
+  until curl -s -o /dev/null "localhost:$PORT/actuator/health"; do sleep 1; done
+
+  echo "== $setup"
+  echo "reads alone"
+  read_load "$log"
+  echo "  p99 $(p99 "$log")"
+
+  # imports keep running until the read load is done
+  h2load --h1 -n 1000000 -c "$BATCH_CLIENTS" -H "$(basic "${WRITE_AUTH:-joao:devdojo}")" \
+    -H 'Content-Type: application/json' -d "$batch" \
+    "http://localhost:$PORT/animes/batch" > /dev/null 2>&1 &
+  imports=$!
+  sleep 2
+  echo "reads during batch imports"
+  read_load "$log"
+  echo "  p99 $(p99 "$log")"
+  kill "$imports" 2>/dev/null || true; wait "$imports" 2>/dev/null || true
+
+  kill "$app"; wait "$app" 2>/dev/null || true
+done
+rm -f "$batch" "$log"
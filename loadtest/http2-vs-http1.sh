@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# Compares HTTP/1.1, h2c and h2 (TLS) against GET /animes/{id} using h2load (nghttp2).
+# For each protocol it reports the p99 latency and the number of TCP connections the
+# server held while the test was running.
+#
+# Usage: loadtest/http2-vs-http1.sh [requests] [concurrent-clients] [streams-per-connection]
+#   BASE_HTTP   cleartext base url (default http://localhost:8080)
+#   BASE_HTTPS  TLS base url, app started with the "tls" profile (default https://localhost:8443)
+#   AUTH        user:password sent as HTTP Basic (default igor:devdojo)
+set -euo pipefail
+
+REQUESTS="${1:-200000}"
+CLIENTS="${2:-50}"
+STREAMS="${3:-100}"
+BASE_HTTP="${BASE_HTTP:-http://localhost:8080}"
+BASE_HTTPS="${BASE_HTTPS:-https://localhost:8443}"
+AUTH_HEADER="Authorization: Basic $(printf '%s' "${AUTH:-igor:devdojo}" | base64)"
+PATH_UNDER_TEST="/animes/1"
+
+command -v h2load >/dev/null || { echo "h2load (nghttp2) is required" >&2; exit 1; }
+
+count_connections() {
+  local port="$1"
+  ss -Htn state established "( sport = :$port )" | wc -l
+}
+
+run() {
+  local label="$1" port="$2"; shift 2
+  local sampler
+  rm -f "/tmp/h2load-$label.peak"
+  (
+    peak=0
+    while true; do
+      current=$(count_connections "$port")
+      [ "$current" -gt "$peak" ] && peak=$current && echo "$peak" > "/tmp/h2load-$label.peak"
+      sleep 0.2
+    done
+  ) & sampler=$!
+  local output
+  output=$(h2load -n "$REQUESTS" -c "$CLIENTS" -H "$AUTH_HEADER" "$@")
+  kill "$sampler" 2>/dev/null || true
+  local p99
+  p99=$(h2load_percentile "$output")
+  printf '%-10s connections=%-6s %s\n' "$label" "$(cat "/tmp/h2load-$label.peak" 2>/dev/null || echo 0)" "$p99"
+  echo "$output" | grep -E "^(finished in|requests:|time for request:)"
+}
+
+h2load_percentile() {
+  # h2load prints min/max/mean/sd; the per-request log gives us the exact p99.
+  local log=/tmp/h2load-requests.log
+  [ -s "$log" ] || { echo "p99=n/a"; return; }
+  awk '{print $3}' "$log" | sort -n | awk '{a[NR]=$1} END {printf "p99=%.2fms", a[int(NR*0.99)]/1000}'
+  rm -f "$log"
+}
+
+run "http1.1" "${BASE_HTTP##*:}" --h1 --log-file=/tmp/h2load-requests.log "$BASE_HTTP$PATH_UNDER_TEST"
+run "h2c" "${BASE_HTTP##*:}" -m "$STREAMS" --log-file=/tmp/h2load-requests.log "$BASE_HTTP$PATH_UNDER_TEST"
+run "h2-tls" "${BASE_HTTPS##*:}" -m "$STREAMS" --log-file=/tmp/h2load-requests.log "$BASE_HTTPS$PATH_UNDER_TEST"
@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Compares devdojo.repository.mode=r2dbc against jdbc (blocking JDBC on virtual threads) and
+# memory (in-memory repositories, the cost of everything but the database).
+# Builds the jar with the jdk21 profile, starts it once per mode and drives a read path
+# (GET /animes/{id}) and a write path (POST /animes) with h2load over HTTP/1.1.
+#
+# Usage: loadtest/repository-modes.sh [requests] [concurrent-clients]
+#   JAVA_HOME  must point to JDK 21+
+#   READ_AUTH  user:password for reads (default igor:devdojo)
+#   WRITE_AUTH user:password for writes, needs ROLE_ADMIN (default joao:devdojo)
+set -euo pipefail
+
+REQUESTS="${1:-50000}"
+CLIENTS="${2:-100}"
+PORT=8080
+JAR=target/spring-webflux-essentials-0.0.1-SNAPSHOT.jar
+
+command -v h2load >/dev/null || { echo "h2load (nghttp2) is required" >&2; exit 1; }
+basic() { printf 'Authorization: Basic %s' "$(printf '%s' "$1" | base64)"; }
+
+./mvnw -q -Pjdk21 -DskipTests package
+
+body=$(mktemp)
+printf '{"name":"Load test"}' > "$body"
+
+for mode in r2dbc jdbc memory; do
+  args=(--devdojo.repository.mode="$mode")
+  [ "$mode" = memory ] && args=(--spring.profiles.active=memory
+    --devdojo.repository.memory.users=file:src/test/resources/memory/users.ndjson)
+  "$JAVA_HOME/bin/java" -jar "$JAR" "${args[@]}" > "/tmp/repository-mode-$mode.log" 2>&1 &
+  app=$!
+  trap 'kill $app 2>/dev/null || true' EXIT
+  until curl -s -o /dev/null "localhost:$PORT/actuator/health"; do sleep 1; done
+  # the in-memory catalog starts empty
+  [ "$mode" = memory ] && curl -s -o /dev/null -u "${WRITE_AUTH:-joao:devdojo}" \
+    -H 'Content-Type: application/json' -d @"$body" "localhost:$PORT/animes"
+
+  echo "== $mode"
+  h2load --h1 -n "$REQUESTS" -c "$CLIENTS" -H "$(basic "${READ_AUTH:-igor:devdojo}")" \
+    "http://localhost:$PORT/animes/1" | grep -E "^(finished in|requests:|time for request:)" | sed 's/^/read  /'
+  h2load --h1 -n "$REQUESTS" -c "$CLIENTS" -H "$(basic "${WRITE_AUTH:-joao:devdojo}")" \
+    -H 'Content-Type: application/json' -d "$body" \
+    "http://localhost:$PORT/animes" | grep -E "^(finished in|requests:|time for request:)" | sed 's/^/write /'
+
+  kill "$app"; wait "$app" 2>/dev/null || true
+done
+rm -f "$body"
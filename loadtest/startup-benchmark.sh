@@ -0,0 +1,47 @@
+#!/usr/bin/env bash
+# Compares cold start of the default JVM build, the JVM build with the "startup" profile and,
+# when it has been built with -Pnative, the native image. For each variant it reports the time
+# until the port answers, the latency of the first authenticated request (lazy beans are created
+# there) and the resident set size after that request, averaged over several runs.
+#
+# Usage: loadtest/startup-benchmark.sh [runs]
+#   JAVA_OPTS  extra JVM flags for the JVM variants
+#   AUTH       user:password for the first request (default igor:devdojo)
+set -euo pipefail
+
+RUNS="${1:-5}"
+PORT=8080
+JAR=target/spring-webflux-essentials-0.0.1-SNAPSHOT.jar
+NATIVE=target/spring-webflux-essentials
+AUTH="${AUTH:-igor:devdojo}"
+
+[ -f "$JAR" ] || ./mvnw -q -DskipTests package
+
+now_ms() { date +%s%3N; }
+
+measure() {
+  local label="$1"; shift
+  local ready_total=0 first_total=0 rss_total=0
+  for _ in $(seq "$RUNS"); do
+    local start pid ready first rss
+    start=$(now_ms)
+    "$@" > "/tmp/startup-$label.log" 2>&1 &
+    pid=$!
+    until curl -s -o /dev/null "localhost:$PORT/actuator/health"; do sleep 0.05; done
+    ready=$(( $(now_ms) - start ))
+    first=$(curl -s -o /dev/null -u "$AUTH" -w '%{time_total}' "localhost:$PORT/animes/1" | awk '{printf "%d", $1 * 1000}')
+    rss=$(awk '/VmRSS/ {print int($2 / 1024)}' "/proc/$pid/status")
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+    ready_total=$((ready_total + ready)); first_total=$((first_total + first)); rss_total=$((rss_total + rss))
+  done
+  printf '%-12s ready=%5dms first-request=%5dms rss=%4dMB\n' "$label" \
+    $((ready_total / RUNS)) $((first_total / RUNS)) $((rss_total / RUNS))
+}
+
+# shellcheck disable=SC2086
+measure default java ${JAVA_OPTS:-} -jar "$JAR"
+# shellcheck disable=SC2086
+measure startup java ${JAVA_OPTS:-} -jar "$JAR" --spring.profiles.active=startup
+if [ -x "$NATIVE" ]; then
+  measure native "$NATIVE" --spring.profiles.active=startup
+fi
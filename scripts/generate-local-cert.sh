@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+# Generates a self-signed PKCS12 keystore used by the "tls" profile (application-tls.yml).
+set -euo pipefail
+
+CERT_DIR="${CERT_DIR:-certs}"
+PASSWORD="${DEVDOJO_KEYSTORE_PASSWORD:-changeit}"
+
+mkdir -p "$CERT_DIR"
+rm -f "$CERT_DIR/devdojo-local.p12" "$CERT_DIR/devdojo-local.crt"
+
+keytool -genkeypair \
+  -alias devdojo-local \
+  -keyalg EC -groupname secp256r1 \
+  -validity 365 \
+  -dname "CN=localhost" \
+  -ext "SAN=dns:localhost,ip:127.0.0.1" \
+  -storetype PKCS12 \
+  -keystore "$CERT_DIR/devdojo-local.p12" \
+  -storepass "$PASSWORD"
+
+keytool -exportcert -rfc \
+  -alias devdojo-local \
+  -keystore "$CERT_DIR/devdojo-local.p12" \
+  -storepass "$PASSWORD" \
+  -file "$CERT_DIR/devdojo-local.crt"
+
+echo "Keystore written to $CERT_DIR/devdojo-local.p12 (trust $CERT_DIR/devdojo-local.crt on clients)"
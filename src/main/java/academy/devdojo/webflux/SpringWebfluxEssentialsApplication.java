@@ -1,15 +1,19 @@
 package academy.devdojo.webflux;
 
+import academy.devdojo.webflux.metrics.BlockingCallReporter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import reactor.core.scheduler.Schedulers;
 
-@SpringBootApplication
+// JDBC is only wired by JdbcRepositoryConfig when devdojo.repository.mode=jdbc
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class})
 public class SpringWebfluxEssentialsApplication {
 
-//	static {
-//		BlockHound.install(builder -> builder.allowBlockingCallsInside("java.util.UUID", "randomUUId"));
-//	}
 	public static void main(String[] args) {
+		BlockingCallReporter.installIfEnabled();
+		Schedulers.enableMetrics();
 		SpringApplication.run(SpringWebfluxEssentialsApplication.class, args);
 	}
 
@@ -0,0 +1,21 @@
+package academy.devdojo.webflux.cache;
+
+import academy.devdojo.webflux.domain.Anime;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    public static final String ANIME_CACHE = "anime";
+
+    @Bean(destroyMethod = "dispose")
+    public LocalCache<Integer, Anime> animeCache(InvalidationBus invalidationBus,
+                                                 @Value("${devdojo.cache.anime.ttl:30s}") Duration ttl,
+                                                 @Value("${devdojo.cache.anime.maximum-size:10000}") int maximumSize) {
+        return new LocalCache<>(ANIME_CACHE, ttl, maximumSize, Anime::copy, invalidationBus);
+    }
+}
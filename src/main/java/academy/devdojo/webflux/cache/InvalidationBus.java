@@ -0,0 +1,104 @@
+package academy.devdojo.webflux.cache;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Broadcasts cache key invalidations to every replica.
+ * <p>
+ * {@link #invalidate(String)} applies the invalidation locally right away and queues the key for the
+ * {@link InvalidationTransport}; keys are collected for {@code devdojo.cache.invalidation.batch-window}
+ * (or up to {@code max-batch-size} keys), de-duplicated and sent as one batch. Keys received from other
+ * replicas are re-emitted through {@link #invalidations()}; when the transport echoes a batch back to
+ * this node, those keys were already applied and are dropped, so each local write is emitted once. A
+ * failed send is logged and dropped, the caches' TTL bounds how long a replica can then stay stale.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+public class InvalidationBus {
+
+    /**
+     * Invalidates every key, emitted when invalidations may have been missed.
+     */
+    public static final String ALL = "*";
+
+    private final InvalidationTransport transport;
+    private final Duration batchWindow;
+    private final int maxBatchSize;
+    private final Sinks.Many<String> outgoing = Sinks.many().unicast().onBackpressureBuffer();
+    private final Sinks.Many<String> invalidations = Sinks.many().multicast().directBestEffort();
+    // keys of the batch being sent, while the transport may echo them back
+    private final Set<String> echoes = ConcurrentHashMap.newKeySet();
+    private Disposable receiver;
+
+    public InvalidationBus(InvalidationTransport transport,
+                           @Value("${devdojo.cache.invalidation.batch-window:50ms}") Duration batchWindow,
+                           @Value("${devdojo.cache.invalidation.max-batch-size:500}") int maxBatchSize) {
+        this.transport = transport;
+        this.batchWindow = batchWindow;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        outgoing.asFlux()
+                .bufferTimeout(maxBatchSize, batchWindow, LinkedHashSet::new)
+                .concatMap(keys -> send(keys)
+                        .onErrorResume(error -> {
+                            log.warn("Falha ao propagar invalidação de {} chaves", keys.size(), error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        receiver = transport.receive().subscribe(this::receive);
+    }
+
+    @PreDestroy
+    public void stop() {
+        receiver.dispose();
+        outgoing.tryEmitComplete();
+    }
+
+    public void invalidate(String key) {
+        emitLocally(key);
+        outgoing.emitNext(key, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+
+    public Flux<String> invalidations() {
+        return invalidations.asFlux();
+    }
+
+    private Mono<Void> send(Set<String> keys) {
+        if (!transport.deliversToSender()) {
+            return transport.send(keys);
+        }
+        return Mono.defer(() -> {
+                    echoes.addAll(keys);
+                    return transport.send(keys);
+                })
+                .doFinally(signal -> echoes.removeAll(keys));
+    }
+
+    private void receive(String key) {
+        if (!echoes.remove(key)) {
+            emitLocally(key);
+        }
+    }
+
+    private void emitLocally(String key) {
+        invalidations.emitNext(key, (signalType, result) -> result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+    }
+}
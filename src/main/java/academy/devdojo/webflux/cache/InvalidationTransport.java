@@ -0,0 +1,31 @@
+package academy.devdojo.webflux.cache;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Carries cache key invalidations between replicas for {@link InvalidationBus}.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Broadcasts one batch of keys to the other replicas.
+     */
+    Mono<Void> send(Collection<String> keys);
+
+    /**
+     * Keys invalidated by other replicas. Emits {@link InvalidationBus#ALL} whenever deliveries may have
+     * been missed, e.g. after (re)connecting.
+     */
+    Flux<String> receive();
+
+    /**
+     * Whether {@link #receive()} also emits the keys of this node's own batches, synchronously while
+     * {@link #send(Collection)} runs.
+     */
+    default boolean deliversToSender() {
+        return false;
+    }
+}
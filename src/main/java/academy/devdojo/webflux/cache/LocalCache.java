@@ -0,0 +1,119 @@
+package academy.devdojo.webflux.cache;
+
+import lombok.RequiredArgsConstructor;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Per-replica read-through cache kept coherent through the {@link InvalidationBus}.
+ * <p>
+ * Entries live for at most {@code ttl}, which bounds staleness even when an invalidation is lost.
+ * Keys are published on the bus as {@code <name>:<key>}. A value loaded while an invalidation of this
+ * cache arrived is returned but not stored, so a slow load can never re-insert data that was just
+ * invalidated. Empty results are not cached. Once {@code maximumSize} entries are live, new values are
+ * served without being stored. A zero {@code ttl} disables caching.
+ * <p>
+ * Values are mutable entities, so the cache stores a {@code copy} of each loaded value and hands out a
+ * fresh copy on every hit: a caller changing what it got cannot change what others read.
+ */
+public class LocalCache<K, V> {
+
+    private final String name;
+    private final long ttlNanos;
+    private final int maximumSize;
+    private final UnaryOperator<V> copy;
+    private final InvalidationBus invalidationBus;
+    private final LongSupplier nanoTime;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+    private final Disposable subscription;
+
+    public LocalCache(String name, Duration ttl, int maximumSize, UnaryOperator<V> copy,
+                      InvalidationBus invalidationBus) {
+        this(name, ttl, maximumSize, copy, invalidationBus, System::nanoTime);
+    }
+
+    LocalCache(String name, Duration ttl, int maximumSize, UnaryOperator<V> copy, InvalidationBus invalidationBus,
+               LongSupplier nanoTime) {
+        this.name = name;
+        this.ttlNanos = ttl.toNanos();
+        this.maximumSize = maximumSize;
+        this.copy = copy;
+        this.invalidationBus = invalidationBus;
+        this.nanoTime = nanoTime;
+        this.subscription = invalidationBus.invalidations().subscribe(this::onInvalidation);
+    }
+
+    public Mono<V> get(K key, Function<? super K, Mono<V>> loader) {
+        if (ttlNanos <= 0) {
+            return Mono.defer(() -> loader.apply(key));
+        }
+        String cacheKey = cacheKey(key);
+        Entry<V> entry = entries.get(cacheKey);
+        if (entry != null && entry.expiresAt - nanoTime.getAsLong() > 0) {
+            return Mono.fromSupplier(() -> copy.apply(entry.value));
+        }
+        return Mono.defer(() -> {
+            long epoch = invalidationEpoch.get();
+            return loader.apply(key).doOnNext(value -> store(cacheKey, value, epoch));
+        });
+    }
+
+    /**
+     * Evicts the key on this replica immediately and on the others once the bus delivers it.
+     */
+    public void invalidate(K key) {
+        invalidationBus.invalidate(cacheKey(key));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void dispose() {
+        subscription.dispose();
+    }
+
+    private void store(String cacheKey, V value, long epoch) {
+        if (entries.size() >= maximumSize) {
+            long now = nanoTime.getAsLong();
+            entries.values().removeIf(entry -> entry.expiresAt - now <= 0);
+            if (entries.size() >= maximumSize) {
+                return;
+            }
+        }
+        entries.put(cacheKey, new Entry<>(copy.apply(value), nanoTime.getAsLong() + ttlNanos));
+        // an invalidation raced with the load: the stored value may predate it
+        if (invalidationEpoch.get() != epoch) {
+            entries.remove(cacheKey);
+        }
+    }
+
+    private void onInvalidation(String key) {
+        if (InvalidationBus.ALL.equals(key)) {
+            invalidationEpoch.incrementAndGet();
+            entries.clear();
+        } else if (key.startsWith(name + ":")) {
+            invalidationEpoch.incrementAndGet();
+            entries.remove(key);
+        }
+    }
+
+    private String cacheKey(K key) {
+        return name + ":" + key;
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+    }
+}
@@ -0,0 +1,36 @@
+package academy.devdojo.webflux.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collection;
+
+/**
+ * In-process transport that delivers every batch back to the sending node, the default for tests and
+ * single-node runs; {@link InvalidationBus} drops those echoes of its own invalidations. Several replicas
+ * need {@code devdojo.cache.invalidation.transport=postgres}.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.cache.invalidation.transport", havingValue = "loopback", matchIfMissing = true)
+public class LoopbackInvalidationTransport implements InvalidationTransport {
+
+    private final Sinks.Many<String> keys = Sinks.many().multicast().directBestEffort();
+
+    @Override
+    public Mono<Void> send(Collection<String> batch) {
+        return Mono.fromRunnable(() -> batch.forEach(key -> keys.emitNext(key, Sinks.EmitFailureHandler.FAIL_FAST)));
+    }
+
+    @Override
+    public Flux<String> receive() {
+        return keys.asFlux();
+    }
+
+    @Override
+    public boolean deliversToSender() {
+        return true;
+    }
+}
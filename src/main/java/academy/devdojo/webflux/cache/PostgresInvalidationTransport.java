@@ -0,0 +1,119 @@
+package academy.devdojo.webflux.cache;
+
+import io.r2dbc.postgresql.api.Notification;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Postgres {@code LISTEN}/{@code NOTIFY} transport.
+ * <p>
+ * Batches are sent with {@code pg_notify} as {@code <node>\n<key>\n<key>...}, split to stay below the
+ * 8000 byte payload limit; a node ignores its own notifications. Listening uses a dedicated connection
+ * outside the pool which is re-opened with backoff when it drops; every (re)connect emits
+ * {@link InvalidationBus#ALL} because notifications sent in between are lost.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "devdojo.cache.invalidation.transport", havingValue = "postgres")
+public class PostgresInvalidationTransport implements InvalidationTransport {
+
+    private static final int MAX_PAYLOAD_BYTES = 7900;
+
+    private final ConnectionFactory connectionFactory;
+    private final DatabaseClient databaseClient;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public PostgresInvalidationTransport(ConnectionFactory connectionFactory,
+                                         DatabaseClient databaseClient,
+                                         @Value("${devdojo.cache.invalidation.channel:devdojo_invalidation}") String channel) {
+        this.connectionFactory = connectionFactory;
+        this.databaseClient = databaseClient;
+        this.channel = channel;
+    }
+
+    @Override
+    public Mono<Void> send(Collection<String> keys) {
+        return Flux.fromIterable(payloads(keys))
+                .concatMap(payload -> databaseClient.sql("SELECT pg_notify(:channel, :payload)")
+                        .bind("channel", channel)
+                        .bind("payload", payload)
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    @Override
+    public Flux<String> receive() {
+        return Flux.usingWhen(Mono.from(unpooled(connectionFactory).create()), this::listen, Connection::close)
+                .doOnError(error -> log.warn("Conexão LISTEN {} perdida, reconectando", channel, error))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)));
+    }
+
+    private Flux<String> listen(Connection connection) {
+        PostgresqlConnection postgresqlConnection = (PostgresqlConnection) connection;
+        return postgresqlConnection.createStatement("LISTEN " + channel)
+                .execute()
+                .flatMap(result -> result.getRowsUpdated())
+                .thenMany(Flux.just(InvalidationBus.ALL)
+                        .concatWith(postgresqlConnection.getNotifications()
+                                .map(Notification::getParameter)
+                                .flatMapIterable(this::keysFromOtherNodes)));
+    }
+
+    private List<String> keysFromOtherNodes(String payload) {
+        List<String> lines = Arrays.asList(payload.split("\n"));
+        if (lines.isEmpty() || nodeId.equals(lines.get(0))) {
+            return List.of();
+        }
+        return lines.subList(1, lines.size());
+    }
+
+    private List<String> payloads(Collection<String> keys) {
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(nodeId);
+        int bytes = nodeId.length();
+        for (String key : keys) {
+            int keyBytes = 1 + key.getBytes(StandardCharsets.UTF_8).length;
+            if (bytes > nodeId.length() && bytes + keyBytes > MAX_PAYLOAD_BYTES) {
+                payloads.add(payload.toString());
+                payload = new StringBuilder(nodeId);
+                bytes = nodeId.length();
+            }
+            payload.append('\n').append(key);
+            bytes += keyBytes;
+        }
+        payloads.add(payload.toString());
+        return payloads;
+    }
+
+    /**
+     * LISTEN pins its connection, so it bypasses the pool that Spring Boot wraps around the driver.
+     */
+    @SuppressWarnings("unchecked")
+    private static ConnectionFactory unpooled(ConnectionFactory connectionFactory) {
+        ConnectionFactory factory = connectionFactory;
+        while (factory instanceof Wrapped) {
+            factory = ((Wrapped<ConnectionFactory>) factory).unwrap();
+        }
+        return factory;
+    }
+}
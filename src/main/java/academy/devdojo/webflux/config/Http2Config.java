@@ -0,0 +1,30 @@
+package academy.devdojo.webflux.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tunes the HTTP/2 settings advertised by the Reactor Netty server.
+ * <p>
+ * HTTP/2 itself is switched on with {@code server.http2.enabled}: Spring Boot negotiates
+ * h2 through ALPN when {@code server.ssl} is configured and falls back to cleartext h2c
+ * (prior knowledge or upgrade) otherwise, always keeping HTTP/1.1 available.
+ */
+@Configuration
+public class Http2Config {
+
+    @Bean
+    public NettyServerCustomizer http2SettingsCustomizer(
+            @Value("${devdojo.http2.max-concurrent-streams:256}") long maxConcurrentStreams,
+            @Value("${devdojo.http2.initial-window-size:1048576}") int initialWindowSize,
+            @Value("${devdojo.http2.max-frame-size:16384}") int maxFrameSize,
+            @Value("${devdojo.http2.max-header-list-size:16384}") long maxHeaderListSize) {
+        return httpServer -> httpServer.http2Settings(settings -> settings
+                .maxConcurrentStreams(maxConcurrentStreams)
+                .initialWindowSize(initialWindowSize)
+                .maxFrameSize(maxFrameSize)
+                .maxHeaderListSize(maxHeaderListSize));
+    }
+}
@@ -0,0 +1,22 @@
+package academy.devdojo.webflux.config;
+
+import academy.devdojo.webflux.repository.memory.InMemoryTransactionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.ReactiveTransactionManager;
+
+/**
+ * Infrastructure for {@code devdojo.repository.mode=memory}: the transaction manager, which replaces the
+ * R2DBC one, so no transaction opens a database connection. The R2DBC connection factory is still
+ * created but never connects.
+ */
+@Configuration
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "memory")
+public class InMemoryRepositoryConfig {
+
+    @Bean
+    public ReactiveTransactionManager transactionManager() {
+        return new InMemoryTransactionManager();
+    }
+}
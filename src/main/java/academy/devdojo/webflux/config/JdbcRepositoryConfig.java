@@ -0,0 +1,77 @@
+package academy.devdojo.webflux.config;
+
+import academy.devdojo.webflux.repository.jdbc.JdbcTransactionManager;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.ReactiveTransactionManager;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Infrastructure for {@code devdojo.repository.mode=jdbc}: a Hikari pool, a {@link JdbcTemplate}, the
+ * scheduler the JDBC repositories run their statements on and the transaction manager, which replaces
+ * the R2DBC one so that the services' transactions span their JDBC statements.
+ * <p>
+ * On JDK 21+ the scheduler is backed by a virtual-thread-per-task executor, so a blocked statement only
+ * parks a virtual thread and concurrency is bounded by the pool size alone. Older JDKs fall back to a
+ * bounded elastic scheduler sized to the pool. The executor is looked up reflectively because the
+ * default build still targets Java 11.
+ */
+@Log4j2
+@Configuration
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "jdbc")
+public class JdbcRepositoryConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource jdbcDataSource(@Value("${devdojo.jdbc.url}") String url,
+                                           @Value("${devdojo.jdbc.username}") String username,
+                                           @Value("${devdojo.jdbc.password}") String password,
+                                           @Value("${devdojo.jdbc.maximum-pool-size:10}") int maximumPoolSize) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("devdojo-jdbc");
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(maximumPoolSize);
+        return dataSource;
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(HikariDataSource jdbcDataSource) {
+        return new JdbcTemplate(jdbcDataSource);
+    }
+
+    @Bean
+    public ReactiveTransactionManager transactionManager(HikariDataSource jdbcDataSource,
+                                                         @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        return new JdbcTransactionManager(jdbcDataSource, jdbcScheduler);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${devdojo.jdbc.maximum-pool-size:10}") int maximumPoolSize) {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        if (virtualThreads != null) {
+            log.info("Executando repositórios JDBC em virtual threads");
+            return Schedulers.fromExecutorService(virtualThreads, "jdbc-virtual");
+        }
+        log.warn("Virtual threads indisponíveis no Java {}, usando boundedElastic", System.getProperty("java.version"));
+        return Schedulers.newBoundedElastic(maximumPoolSize, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "jdbc");
+    }
+
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
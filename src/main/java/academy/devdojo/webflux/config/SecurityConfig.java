@@ -1,40 +1,105 @@
 package academy.devdojo.webflux.config;
 
+import academy.devdojo.webflux.security.AuthorizationPolicy;
+import academy.devdojo.webflux.security.Role;
+import academy.devdojo.webflux.security.RoleAuthorizationWebFilter;
+import academy.devdojo.webflux.security.TokenService;
 import academy.devdojo.webflux.service.DevDojoUserDetailsService;
+import academy.devdojo.webflux.tracing.SecurityChainSpan;
+import academy.devdojo.webflux.tracing.Tracer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
-import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.DelegatingServerAuthenticationEntryPoint;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpBasicServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authentication.RedirectServerAuthenticationEntryPoint;
+import org.springframework.security.web.server.authorization.ExceptionTranslationWebFilter;
+import org.springframework.security.web.server.util.matcher.MediaTypeServerWebExchangeMatcher;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
 
 @EnableWebFluxSecurity
-@EnableReactiveMethodSecurity
 public class SecurityConfig {
 
+    /**
+     * Every authorization rule of the application, first match wins; {@code GET} rules also cover
+     * {@code HEAD}. {@code GET /animes} is served by AnimeController#listAll or, with the snapshot enabled,
+     * by AnimeCatalogSnapshotHandler.
+     */
     @Bean
-    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http){
+    public AuthorizationPolicy authorizationPolicy(){
+        return AuthorizationPolicy.builder()
+                .permitAll(HttpMethod.POST, "/auth/refresh")
+                .permitAll(HttpMethod.GET, "/actuator/health/**")
+                .rule(HttpMethod.GET, "/actuator/statements", Role.ADMIN)
+                .rule(HttpMethod.GET, "/animes", Role.ADMIN)
+                .rule(HttpMethod.GET, "/animes/export", Role.ADMIN)
+                .rule(HttpMethod.GET, "/animes/changes", Role.ADMIN)
+                .rule(HttpMethod.POST, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.DELETE, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.PUT, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.PATCH, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.GET, "/animes/**", Role.USER)
+                .build();
+    }
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http,
+                                                         AuthorizationPolicy authorizationPolicy,
+                                                         TokenService tokenService,
+                                                         Tracer tracer){
+        SecurityChainSpan securityChainSpan = new SecurityChainSpan(tracer);
+        ReactiveAuthenticationManager bearerAuthenticationManager = tokenService.authenticationManager();
         //formatter:off
         return http
                 .csrf().disable()
-                .authorizeExchange()
-                    .pathMatchers(HttpMethod.POST, "/animes/**").hasRole("ADMIN")
-                    .pathMatchers(HttpMethod.DELETE, "/animes/**").hasRole("ADMIN")
-                    .pathMatchers(HttpMethod.PUT, "/animes/**").hasRole("ADMIN")
-                    .pathMatchers(HttpMethod.GET, "/animes/**").hasRole("USER")
-                .anyExchange().authenticated()
-                .and()
+                .addFilterAt(securityChainSpan.start(), SecurityWebFiltersOrder.FIRST)
+                .addFilterAt(securityChainSpan.end(), SecurityWebFiltersOrder.LAST)
+                .addFilterAt(exceptionTranslationWebFilter(), SecurityWebFiltersOrder.EXCEPTION_TRANSLATION)
+                .addFilterAt(new RoleAuthorizationWebFilter(authorizationPolicy), SecurityWebFiltersOrder.AUTHORIZATION)
                     .formLogin()
                 .and()
                     .httpBasic()
+                .and()
+                    .oauth2ResourceServer()
+                        .jwt()
+                            .authenticationManager(authentication -> tracer.trace("authenticate.bearer",
+                                    Mono.defer(() -> bearerAuthenticationManager.authenticate(authentication))))
+                    .and()
                 .and().build();
         //formatter:on
     }
 
+    /**
+     * ServerHttpSecurity only adds exception translation along with authorizeExchange(), so this restores
+     * its entry points: the login page for browsers, a Basic challenge for everything else.
+     */
+    private static ExceptionTranslationWebFilter exceptionTranslationWebFilter(){
+        MediaTypeServerWebExchangeMatcher browser = new MediaTypeServerWebExchangeMatcher(MediaType.TEXT_HTML);
+        browser.setIgnoredMediaTypes(Set.of(MediaType.ALL));
+        DelegatingServerAuthenticationEntryPoint entryPoint = new DelegatingServerAuthenticationEntryPoint(
+                new DelegatingServerAuthenticationEntryPoint.DelegateEntry(browser,
+                        new RedirectServerAuthenticationEntryPoint("/login")));
+        entryPoint.setDefaultEntryPoint(new HttpBasicServerAuthenticationEntryPoint());
+
+        ExceptionTranslationWebFilter exceptionTranslationWebFilter = new ExceptionTranslationWebFilter();
+        exceptionTranslationWebFilter.setAuthenticationEntryPoint(entryPoint);
+        return exceptionTranslationWebFilter;
+    }
+
     @Bean
-    ReactiveAuthenticationManager authenticationManager(DevDojoUserDetailsService devDojoUserDetailsService){
-        return new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserDetailsService);
+    ReactiveAuthenticationManager authenticationManager(DevDojoUserDetailsService devDojoUserDetailsService,
+                                                        Tracer tracer){
+        UserDetailsRepositoryReactiveAuthenticationManager authenticationManager =
+                new UserDetailsRepositoryReactiveAuthenticationManager(devDojoUserDetailsService);
+        return authentication -> tracer.trace("authenticate.basic",
+                Mono.defer(() -> authenticationManager.authenticate(authentication)));
     }
 }
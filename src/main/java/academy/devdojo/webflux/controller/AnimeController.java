@@ -1,7 +1,16 @@
 package academy.devdojo.webflux.controller;
 
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeBatchOutcome;
+import academy.devdojo.webflux.domain.AnimeChanges;
+import academy.devdojo.webflux.domain.AnimeCount;
+import academy.devdojo.webflux.domain.AnimeSummary;
+import academy.devdojo.webflux.idempotency.IdempotencyService;
+import academy.devdojo.webflux.service.AnimeBulkService;
 import academy.devdojo.webflux.service.AnimeService;
+import academy.devdojo.webflux.service.AnimeStatsService;
+import academy.devdojo.webflux.sync.AnimeSyncService;
+import academy.devdojo.webflux.tracing.Traced;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -9,14 +18,16 @@ import io.swagger.v3.oas.annotations.security.SecurityScheme;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
@@ -25,9 +36,11 @@ import reactor.core.publisher.Mono;
 
 import javax.validation.Valid;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @RestController
+@Traced
 @RequestMapping("animes")
 @Slf4j
 @SecurityScheme(
@@ -38,10 +51,13 @@ import java.util.List;
 public class AnimeController {
 
     private final AnimeService animeService;
+    private final AnimeStatsService animeStatsService;
+    private final AnimeBulkService animeBulkService;
+    private final IdempotencyService idempotencyService;
+    private final AnimeSyncService animeSyncService;
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "List all animes",
             security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
@@ -58,20 +74,74 @@ public class AnimeController {
                 .switchIfEmpty(monoResponseStatusNotFoundException());
     }
 
+    @GetMapping(path = "stats")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Total, counts by initial letter and most recent animes",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<AnimeSummary> stats() {
+        return animeStatsService.summary();
+    }
+
+    @GetMapping(path = "stats/count")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Count all animes, or those whose name starts with prefix",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<Long> count(@RequestParam(required = false) String prefix) {
+        return animeStatsService.count(prefix);
+    }
+
+    @GetMapping(path = "stats/prefixes")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Count animes grouped by the first length letters of the name",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeCount> countByNamePrefix(@RequestParam(defaultValue = "1") int length) {
+        return animeStatsService.countByNamePrefix(length);
+    }
+
+    @GetMapping(path = "recent")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Most recently created animes",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<Anime> findRecent(@RequestParam(defaultValue = "10") int limit) {
+        return animeStatsService.findRecent(limit);
+    }
+
+    @GetMapping(path = "changes")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Changes after the watermark since, deletes included as tombstones; 410 when since has expired",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Mono<AnimeChanges> changes(@RequestParam(required = false) String since,
+                                      @RequestParam(defaultValue = "500") int limit) {
+        return animeSyncService.changesSince(since, limit);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    @Operation(security = @SecurityRequirement(name = "Basic Authentication"),
+    @Operation(summary = "Create an anime; retries with the same Idempotency-Key replay the first response",
+            security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Mono<Anime> save(@Valid @RequestBody Anime anime){
-        return animeService.save(anime);
+    public Mono<Anime> save(@Valid @RequestBody Anime anime,
+                            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey){
+        // anime_id is generated on deserialization, so only the name identifies the request
+        return idempotencyService.execute(idempotencyKey, "POST /animes", anime.getName(), Anime.class,
+                () -> animeService.save(anime));
     }
 
     @PostMapping("batch")
     @ResponseStatus(HttpStatus.CREATED)
-    @Operation(security = @SecurityRequirement(name = "Basic Authentication"),
+    @Operation(summary = "Create animes; retries with the same Idempotency-Key replay the first response",
+            security = @SecurityRequirement(name = "Basic Authentication"),
             tags = {"animes"})
-    public Flux<Anime> saveBatch(@RequestBody List<Anime> animes){
-        return animeService.saveAll(animes);
+    public Flux<Anime> saveBatch(@RequestBody List<Anime> animes,
+                                 @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey){
+        List<String> names = animes.stream().map(Anime::getName).collect(Collectors.toList());
+        return idempotencyService.executeMany(idempotencyKey, "POST /animes/batch", names, Anime.class,
+                () -> animeService.saveAll(animes));
     }
 
     @PutMapping(path = "{id}")
@@ -82,6 +152,24 @@ public class AnimeController {
         return animeService.update(anime.withId(id));
     }
 
+    @PatchMapping("batch")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Rename animes by id, streaming one outcome per id",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeBatchOutcome> updateBatch(@RequestBody List<Anime> animes){
+        return animeBulkService.updateAll(animes);
+    }
+
+    @DeleteMapping("batch")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Delete animes by id, streaming one outcome per id",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"animes"})
+    public Flux<AnimeBatchOutcome> deleteBatch(@RequestBody List<Integer> ids){
+        return animeBulkService.deleteAll(ids);
+    }
+
     @DeleteMapping(path = "{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @Operation(security = @SecurityRequirement(name = "Basic Authentication"),
@@ -0,0 +1,51 @@
+package academy.devdojo.webflux.controller;
+
+import academy.devdojo.webflux.domain.AuthToken;
+import academy.devdojo.webflux.domain.RefreshTokenRequest;
+import academy.devdojo.webflux.security.TokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("auth")
+@Slf4j
+public class AuthController {
+
+    private final TokenService tokenService;
+
+    @PostMapping("token")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exchange Basic credentials for a bearer access token and a refresh token",
+            security = @SecurityRequirement(name = "Basic Authentication"),
+            tags = {"auth"})
+    public Mono<AuthToken> token(@AuthenticationPrincipal UserDetails user) {
+        // only a password login issues tokens, a bearer token cannot extend itself
+        if (user == null) {
+            return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Tokens are issued for Basic credentials only"));
+        }
+        return Mono.fromSupplier(() -> tokenService.issue(user));
+    }
+
+    @PostMapping("refresh")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Exchange a refresh token for a new access token and refresh token",
+            tags = {"auth"})
+    public Mono<AuthToken> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        return tokenService.refresh(request.getRefreshToken());
+    }
+}
@@ -1,5 +1,6 @@
 package academy.devdojo.webflux.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,12 +8,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.With;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Table;
 
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.util.Objects;
-import java.util.UUID;
 
 @Data
 @AllArgsConstructor
@@ -30,5 +32,28 @@ public class Anime {
     private int id;
 
     @JsonProperty("anime_id")
-    private String animeId = Objects.nonNull(getAnimeId()) ? getAnimeId() : UUID.randomUUID().toString();
+    private String animeId = Objects.nonNull(getAnimeId()) ? getAnimeId() : Uuids.random().toString();
+
+    // set by the database on every write
+    @ReadOnlyProperty
+    @JsonProperty(value = "updated_at", access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant updatedAt;
+
+    // a tombstone, only ever read through GET /animes/changes
+    @ReadOnlyProperty
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean deleted;
+
+    public Anime(String name, int id, String animeId) {
+        this(name, id, animeId, null, false);
+    }
+
+    /**
+     * A new instance with the same values, for holders of animes shared between callers.
+     */
+    public Anime copy() {
+        return new Anime(name, id, animeId, updatedAt, deleted);
+    }
 }
@@ -0,0 +1,24 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of one id in a bulk update or delete. The id is null for null items.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnimeBatchOutcome {
+
+    private Integer id;
+    private Status status;
+
+    public enum Status {
+        UPDATED,
+        DELETED,
+        NOT_FOUND,
+        INVALID
+    }
+}
@@ -0,0 +1,25 @@
+package academy.devdojo.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeChanges {
+
+    // in change order; deleted animes come as tombstones with "deleted": true
+    private List<Anime> changes;
+
+    // pass back as since to get the changes that follow
+    private String watermark;
+
+    @JsonProperty("has_more")
+    private boolean hasMore;
+}
@@ -0,0 +1,17 @@
+package academy.devdojo.webflux.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of animes sharing a grouping key, e.g. the upper-cased first letters of the name.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnimeCount {
+
+    private String key;
+    private long total;
+}
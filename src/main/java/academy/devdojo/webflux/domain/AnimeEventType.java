@@ -0,0 +1,7 @@
+package academy.devdojo.webflux.domain;
+
+public enum AnimeEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,35 @@
+package academy.devdojo.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table("anime_outbox")
+public class AnimeOutboxEvent {
+
+    @Id
+    private Long id;
+
+    @JsonProperty("aggregate_id")
+    private int aggregateId;
+
+    @JsonProperty("event_type")
+    private AnimeEventType eventType;
+
+    @JsonRawValue
+    private String payload;
+
+    @JsonProperty("created_at")
+    private Instant createdAt;
+}
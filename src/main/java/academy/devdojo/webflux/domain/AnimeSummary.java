@@ -0,0 +1,27 @@
+package academy.devdojo.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class AnimeSummary {
+
+    private long total;
+
+    @JsonProperty("by_initial")
+    private List<AnimeCount> byInitial;
+
+    private List<Anime> recent;
+
+    @JsonProperty("computed_at")
+    private Instant computedAt;
+}
@@ -1,9 +1,15 @@
 package academy.devdojo.webflux.domain;
 
-import lombok.AllArgsConstructor;
+import academy.devdojo.webflux.security.Role;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.relational.core.mapping.Table;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -11,10 +17,10 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 @Table("devdojo_user")
 public class DevDojoUser implements UserDetails {
@@ -26,11 +32,32 @@ public class DevDojoUser implements UserDetails {
     private String password;
     private String authorities;
 
+    // parsed once per loaded user, however often its authorities and role mask are read
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient ParsedAuthorities parsedAuthorities;
+
+    public DevDojoUser(Integer id, String name, String username, String password, String authorities) {
+        this.id = id;
+        this.name = name;
+        this.username = username;
+        this.password = password;
+        this.authorities = authorities;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return Arrays.stream(authorities.split(","))
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toList());
+        return parsedAuthorities().grantedAuthorities;
+    }
+
+    /**
+     * The user's {@link Role}s as a bitset.
+     */
+    public int getRoleMask() {
+        return parsedAuthorities().roleMask;
     }
 
     @Override
@@ -52,4 +79,27 @@ public class DevDojoUser implements UserDetails {
     public boolean isEnabled() {
         return true;
     }
+
+    private ParsedAuthorities parsedAuthorities() {
+        ParsedAuthorities parsed = parsedAuthorities;
+        if (parsed == null || parsed.source != authorities) {
+            parsed = new ParsedAuthorities(authorities);
+            parsedAuthorities = parsed;
+        }
+        return parsed;
+    }
+
+    private static class ParsedAuthorities {
+        private final String source;
+        private final List<GrantedAuthority> grantedAuthorities;
+        private final int roleMask;
+
+        private ParsedAuthorities(String source) {
+            this.source = source;
+            this.grantedAuthorities = Arrays.stream(source.split(","))
+                    .map(SimpleGrantedAuthority::new)
+                    .collect(Collectors.toUnmodifiableList());
+            this.roleMask = Role.mask(grantedAuthorities);
+        }
+    }
 }
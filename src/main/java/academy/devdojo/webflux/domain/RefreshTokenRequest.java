@@ -0,0 +1,18 @@
+package academy.devdojo.webflux.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RefreshTokenRequest {
+
+    @NotEmpty(message = "Esse campo não pode ser vazio")
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+}
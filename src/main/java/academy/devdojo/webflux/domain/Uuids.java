@@ -0,0 +1,22 @@
+package academy.devdojo.webflux.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random (version 4) UUIDs that are safe to create on an event loop. {@link UUID#randomUUID()} draws from
+ * SecureRandom, which may read /dev/urandom; these come from {@link ThreadLocalRandom} instead, so they
+ * are unique but predictable: fine for identifiers, never for secrets.
+ */
+public final class Uuids {
+
+    private Uuids() {
+    }
+
+    public static UUID random() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long mostSignificantBits = random.nextLong() & ~0xF000L | 0x4000L;
+        long leastSignificantBits = random.nextLong() & ~(0xC0L << 56) | 0x80L << 56;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
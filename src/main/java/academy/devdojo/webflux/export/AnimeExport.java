@@ -0,0 +1,139 @@
+package academy.devdojo.webflux.export;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the whole anime table, encoded as CSV or NDJSON, for {@link AnimeExportHandler}.
+ * <p>
+ * Rows are read in id order in keyset pages of {@code devdojo.export.page-size}, each page a statement of
+ * its own run in the batch {@link Bulkheads} workload, so no connection or cursor is held while the client
+ * is slow to read and at most a few pages are in memory whatever the size of the table. The next page is
+ * only read once the previous one has been requested downstream. Every row carries its id, and
+ * {@code after} resumes the export behind the last row received. Rows written during an export show up
+ * when their id is still ahead of it; there is no snapshot isolation across pages.
+ */
+@Component
+public class AnimeExport {
+
+    static final String CSV_HEADER = "id,name,anime_id\r\n";
+
+    public enum Format {
+        CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "csv"),
+        NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson");
+
+        private final MediaType mediaType;
+        private final String extension;
+
+        Format(MediaType mediaType, String extension) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private final AnimeRepository animeRepository;
+    private final Bulkheads bulkheads;
+    private final ObjectMapper objectMapper;
+    private final int pageSize;
+
+    public AnimeExport(AnimeRepository animeRepository,
+                       Bulkheads bulkheads,
+                       ObjectMapper objectMapper,
+                       @Value("${devdojo.export.page-size:1000}") int pageSize) {
+        this.animeRepository = animeRepository;
+        this.bulkheads = bulkheads;
+        this.objectMapper = objectMapper;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * The animes with an id greater than {@code after} in {@code format}, one chunk per page. A CSV export
+     * starts with a header line unless it resumes one ({@code after > 0}).
+     */
+    public Flux<byte[]> export(Format format, int after) {
+        Flux<byte[]> rows = pagesAfter(after).map(page -> encode(format, page));
+        return format == Format.CSV && after <= 0
+                ? Flux.just(CSV_HEADER.getBytes(StandardCharsets.UTF_8)).concatWith(rows)
+                : rows;
+    }
+
+    // a repeated query over a moving key rather than nested concatenations, which would keep every page
+    // reachable until the export ends
+    Flux<List<Anime>> pagesAfter(int after) {
+        return Flux.defer(() -> {
+            AtomicInteger lastId = new AtomicInteger(after);
+            return Mono.defer(() -> page(lastId.get()))
+                    .doOnNext(page -> {
+                        if (!page.isEmpty()) {
+                            lastId.set(page.get(page.size() - 1).getId());
+                        }
+                    })
+                    .repeat()
+                    .takeUntil(page -> page.size() < pageSize)
+                    .filter(page -> !page.isEmpty());
+        });
+    }
+
+    // collected before the batch scheduler hop, so the rows are requested once and not replenished from it
+    private Mono<List<Anime>> page(int after) {
+        return bulkheads.batch(animeRepository.findPageAfter(after, pageSize).collectList());
+    }
+
+    private byte[] encode(Format format, List<Anime> page) {
+        if (format == Format.CSV) {
+            StringBuilder csv = new StringBuilder(page.size() * 64);
+            page.forEach(anime -> csv.append(anime.getId()).append(',')
+                    .append(csvField(anime.getName())).append(',')
+                    .append(csvField(anime.getAnimeId())).append("\r\n"));
+            return csv.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream(page.size() * 96);
+        for (Anime anime : page) {
+            ndjson.writeBytes(serialize(anime));
+            ndjson.write('\n');
+        }
+        return ndjson.toByteArray();
+    }
+
+    private byte[] serialize(Anime anime) {
+        try {
+            return objectMapper.writeValueAsBytes(anime);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not serialize anime " + anime.getId(), exception);
+        }
+    }
+
+    /**
+     * RFC 4180: fields holding a comma, quote or line break are quoted, with quotes doubled.
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,88 @@
+package academy.devdojo.webflux.export;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@code GET /animes/export}: the whole catalog as a download, streamed by {@link AnimeExport}.
+ * <ul>
+ *     <li>{@code format=csv|ndjson}, or else {@code Accept: text/csv} for CSV; NDJSON by default;</li>
+ *     <li>{@code after=<id>} resumes an interrupted export behind the last row received. Byte ranges are
+ *     not supported ({@code Accept-Ranges: none}), the encoded, compressed stream is not reproducible;</li>
+ *     <li>gzip-encoded while streaming when the client accepts it.</li>
+ * </ul>
+ */
+@Configuration
+@RequiredArgsConstructor
+public class AnimeExportHandler {
+
+    private static final String AFTER = "after";
+    private static final String FORMAT = "format";
+
+    private final AnimeExport animeExport;
+
+    @Bean
+    public RouterFunction<ServerResponse> animeExportRoute() {
+        return RouterFunctions.route(RequestPredicates.GET("/animes/export"), this::export);
+    }
+
+    public Mono<ServerResponse> export(ServerRequest request) {
+        AnimeExport.Format format;
+        int after;
+        try {
+            format = format(request);
+            after = Integer.parseInt(request.queryParam(AFTER).orElse("0"));
+        } catch (IllegalArgumentException exception) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid export parameters"));
+        }
+        boolean gzip = acceptsGzip(request);
+        Flux<byte[]> chunks = gzip ? gzip(animeExport.export(format, after)) : animeExport.export(format, after);
+        DataBufferFactory bufferFactory = request.exchange().getResponse().bufferFactory();
+        ServerResponse.BodyBuilder response = ServerResponse.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("animes." + format.getExtension()).build().toString())
+                .header(HttpHeaders.ACCEPT_RANGES, "none")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(BodyInserters.fromDataBuffers(chunks.map(bufferFactory::wrap)));
+    }
+
+    private static Flux<byte[]> gzip(Flux<byte[]> chunks) {
+        return Flux.using(StreamingGzip::new,
+                encoder -> chunks.map(encoder::encode).concatWith(Mono.fromCallable(encoder::finish)),
+                StreamingGzip::close);
+    }
+
+    private static AnimeExport.Format format(ServerRequest request) {
+        String format = request.queryParam(FORMAT).orElse(null);
+        if (format != null) {
+            return AnimeExport.Format.valueOf(format.toUpperCase());
+        }
+        return request.headers().accept().stream()
+                .anyMatch(accept -> "text".equals(accept.getType()) && "csv".equals(accept.getSubtype()))
+                ? AnimeExport.Format.CSV
+                : AnimeExport.Format.NDJSON;
+    }
+
+    private static boolean acceptsGzip(ServerRequest request) {
+        return request.headers().header(HttpHeaders.ACCEPT_ENCODING).stream()
+                .anyMatch(value -> value.contains("gzip"));
+    }
+}
@@ -0,0 +1,63 @@
+package academy.devdojo.webflux.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip stream encoded chunk by chunk: every {@link #encode} ends with a sync flush, so the bytes it
+ * returns decompress to the whole chunk on their own and can be sent right away. Only the compressor
+ * window and the last chunk are held in memory.
+ */
+class StreamingGzip implements AutoCloseable {
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final GZIPOutputStream gzip;
+
+    StreamingGzip() {
+        try {
+            gzip = new GZIPOutputStream(buffer, true);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    byte[] encode(byte[] chunk) {
+        try {
+            gzip.write(chunk);
+            gzip.flush();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return drain();
+    }
+
+    /**
+     * The end of the stream: whatever the compressor still holds and the gzip trailer.
+     */
+    byte[] finish() {
+        try {
+            gzip.finish();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return drain();
+    }
+
+    private byte[] drain() {
+        byte[] bytes = buffer.toByteArray();
+        buffer.reset();
+        return bytes;
+    }
+
+    // releases the native compressor, also when the stream is abandoned half way
+    @Override
+    public void close() {
+        try {
+            gzip.close();
+        } catch (IOException ignored) {
+            // nothing is written to a ByteArrayOutputStream that could fail
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package academy.devdojo.webflux.idempotency;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * What the store keeps per key: the request fingerprint and, once the first execution finished, its
+ * serialized response. A record without a response is a claim still being executed.
+ */
+@Value
+public class IdempotencyRecord {
+
+    byte[] fingerprint;
+    byte[] response;
+    Instant expiresAt;
+
+    public static IdempotencyRecord pending(byte[] fingerprint, Instant expiresAt) {
+        return new IdempotencyRecord(fingerprint, null, expiresAt);
+    }
+
+    public IdempotencyRecord complete(byte[] response, Instant expiresAt) {
+        return new IdempotencyRecord(fingerprint, response, expiresAt);
+    }
+
+    public boolean isPending() {
+        return response == null;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
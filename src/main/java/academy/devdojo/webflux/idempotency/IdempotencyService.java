@@ -0,0 +1,222 @@
+package academy.devdojo.webflux.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.ContextView;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Executes a write at most once per {@code Idempotency-Key} and replays its response to retries.
+ * <p>
+ * Keys are scoped to the authenticated user and bound to a fingerprint of the operation and request; a
+ * key reused with a different request is rejected with 422. The first request claims the key in the
+ * {@link IdempotencyStore}, duplicates arriving on the same node while it runs share its result, and
+ * duplicates on another node get 409 until it completes. Once started, an execution runs to the end
+ * even if its client disconnects, so the gateway's retry finds the stored response. Failed executions
+ * are not recorded. Responses are kept for {@code devdojo.idempotency.ttl}.
+ */
+@Log4j2
+@Service
+@Lazy(false)
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String ANONYMOUS = "anonymous";
+    private static final byte[] EMPTY_RESPONSE = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration pendingTimeout;
+    private final Duration purgeInterval;
+    private final Map<String, Execution> executions = new ConcurrentHashMap<>();
+    private Disposable purger;
+
+    public IdempotencyService(IdempotencyStore idempotencyStore,
+                              ObjectMapper objectMapper,
+                              @Value("${devdojo.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${devdojo.idempotency.pending-timeout:1m}") Duration pendingTimeout,
+                              @Value("${devdojo.idempotency.purge-interval:1m}") Duration purgeInterval) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.pendingTimeout = pendingTimeout;
+        this.purgeInterval = purgeInterval;
+    }
+
+    @PostConstruct
+    public void start() {
+        purger = Flux.interval(purgeInterval, purgeInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> idempotencyStore.purgeExpired()
+                        .onErrorResume(error -> {
+                            log.warn("Falha ao remover chaves de idempotência expiradas", error);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (purger != null) {
+            purger.dispose();
+        }
+    }
+
+    /**
+     * Runs {@code action} unless {@code key} was already used for the same {@code operation} and
+     * {@code request}, in which case the recorded response is returned. Without a key the action simply
+     * runs.
+     */
+    public <T> Mono<T> execute(String key, String operation, Object request, Class<T> type,
+                               Supplier<Mono<T>> action) {
+        if (key == null) {
+            return Mono.defer(action);
+        }
+        JavaType responseType = objectMapper.constructType(type);
+        return execute(key, operation, request, () -> action.get().map(this::write))
+                .flatMap(response -> Mono.justOrEmpty(this.<T>read(response, responseType)));
+    }
+
+    public <T> Flux<T> executeMany(String key, String operation, Object request, Class<T> type,
+                                   Supplier<Flux<T>> action) {
+        if (key == null) {
+            return Flux.defer(action);
+        }
+        JavaType responseType = objectMapper.getTypeFactory().constructCollectionType(List.class, type);
+        return execute(key, operation, request, () -> action.get().collectList().map(this::write))
+                .flatMapIterable(response -> this.<List<T>>read(response, responseType));
+    }
+
+    private Mono<byte[]> execute(String key, String operation, Object request, Supplier<Mono<byte[]>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must have between 1 and " + MAX_KEY_LENGTH + " characters"));
+        }
+        return Mono.deferContextual(context -> ReactiveSecurityContextHolder.getContext()
+                .map(SecurityContext::getAuthentication)
+                .map(Authentication::getName)
+                .defaultIfEmpty(ANONYMOUS)
+                .flatMap(principal -> {
+                    String scopedKey = principal + ":" + key;
+                    byte[] fingerprint = fingerprint(operation, request);
+                    Execution execution = new Execution(fingerprint);
+                    Execution running = executions.putIfAbsent(scopedKey, execution);
+                    if (running != null) {
+                        log.info("Requisição duplicada aguardando execução em andamento da chave {}", scopedKey);
+                        return running.join(fingerprint);
+                    }
+                    run(scopedKey, execution, action, context);
+                    return execution.result.asMono();
+                }));
+    }
+
+    private void run(String scopedKey, Execution execution, Supplier<Mono<byte[]>> action, ContextView context) {
+        idempotencyStore.claim(scopedKey, execution.fingerprint, pendingTimeout)
+                .map(record -> replay(scopedKey, record, execution.fingerprint))
+                .switchIfEmpty(Mono.fromSupplier(() -> perform(scopedKey, action)))
+                .flatMap(Function.identity())
+                .doFinally(signal -> executions.remove(scopedKey, execution))
+                .contextWrite(context)
+                .subscribe(execution.result::tryEmitValue, execution.result::tryEmitError);
+    }
+
+    private Mono<byte[]> perform(String scopedKey, Supplier<Mono<byte[]>> action) {
+        return Mono.defer(action)
+                .defaultIfEmpty(EMPTY_RESPONSE)
+                .flatMap(response -> idempotencyStore.complete(scopedKey, response, ttl).thenReturn(response))
+                .onErrorResume(error -> idempotencyStore.release(scopedKey)
+                        .onErrorResume(releaseError -> {
+                            log.warn("Falha ao liberar a chave de idempotência {}", scopedKey, releaseError);
+                            return Mono.empty();
+                        })
+                        .then(Mono.error(error)));
+    }
+
+    private Mono<byte[]> replay(String scopedKey, IdempotencyRecord record, byte[] fingerprint) {
+        if (!Arrays.equals(record.getFingerprint(), fingerprint)) {
+            return Mono.error(keyReused());
+        }
+        if (record.isPending()) {
+            return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is still being processed"));
+        }
+        log.info("Reaproveitando resposta registrada para a chave {}", scopedKey);
+        return Mono.just(record.getResponse());
+    }
+
+    byte[] fingerprint(String operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return digest.digest();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Could not fingerprint " + operation, e);
+        }
+    }
+
+    private byte[] write(Object response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent response", e);
+        }
+    }
+
+    private <T> T read(byte[] response, JavaType type) {
+        try {
+            return objectMapper.readValue(response, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read idempotent response", e);
+        }
+    }
+
+    private static ResponseStatusException keyReused() {
+        return new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                HEADER + " was already used with a different request");
+    }
+
+    @RequiredArgsConstructor
+    private static class Execution {
+        private final byte[] fingerprint;
+        private final Sinks.One<byte[]> result = Sinks.one();
+
+        private Mono<byte[]> join(byte[] requestFingerprint) {
+            if (!Arrays.equals(fingerprint, requestFingerprint)) {
+                return Mono.error(keyReused());
+            }
+            return result.asMono();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package academy.devdojo.webflux.idempotency;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key for a new execution. Completes empty when the claim succeeded, otherwise emits the
+     * unexpired record already held for the key.
+     */
+    Mono<IdempotencyRecord> claim(String key, byte[] fingerprint, Duration pendingTimeout);
+
+    Mono<Void> complete(String key, byte[] response, Duration ttl);
+
+    /**
+     * Drops a claim whose execution failed, so that a retry executes again.
+     */
+    Mono<Void> release(String key);
+
+    Mono<Long> purgeExpired();
+}
@@ -0,0 +1,84 @@
+package academy.devdojo.webflux.idempotency;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single-node store. Once {@code maximumSize} keys are held, new requests are executed without being
+ * recorded until the periodic {@link #purgeExpired()} frees room; a claim never scans the store itself.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "devdojo.idempotency.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final int maximumSize;
+    private final Clock clock;
+    private final Map<String, IdempotencyRecord> records = new ConcurrentHashMap<>();
+
+    @Autowired
+    public InMemoryIdempotencyStore(@Value("${devdojo.idempotency.maximum-size:100000}") int maximumSize) {
+        this(maximumSize, Clock.systemUTC());
+    }
+
+    InMemoryIdempotencyStore(int maximumSize, Clock clock) {
+        this.maximumSize = maximumSize;
+        this.clock = clock;
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> claim(String key, byte[] fingerprint, Duration pendingTimeout) {
+        return Mono.fromSupplier(() -> {
+            Instant now = clock.instant();
+            if (records.size() >= maximumSize && !records.containsKey(key)) {
+                log.warn("Limite de {} chaves de idempotência atingido, requisição não será registrada", maximumSize);
+                return null;
+            }
+            AtomicReference<IdempotencyRecord> existing = new AtomicReference<>();
+            records.compute(key, (k, current) -> {
+                if (current != null && !current.isExpired(now)) {
+                    existing.set(current);
+                    return current;
+                }
+                return IdempotencyRecord.pending(fingerprint, now.plus(pendingTimeout));
+            });
+            return existing.get();
+        });
+    }
+
+    @Override
+    public Mono<Void> complete(String key, byte[] response, Duration ttl) {
+        return Mono.fromRunnable(() -> records.computeIfPresent(key,
+                (k, record) -> record.complete(response, clock.instant().plus(ttl))));
+    }
+
+    @Override
+    public Mono<Void> release(String key) {
+        return Mono.fromRunnable(() -> records.computeIfPresent(key, (k, record) -> record.isPending() ? null : record));
+    }
+
+    @Override
+    public Mono<Long> purgeExpired() {
+        return Mono.fromSupplier(() -> {
+            int before = records.size();
+            Instant now = clock.instant();
+            records.values().removeIf(record -> record.isExpired(now));
+            return (long) (before - records.size());
+        });
+    }
+
+    int size() {
+        return records.size();
+    }
+}
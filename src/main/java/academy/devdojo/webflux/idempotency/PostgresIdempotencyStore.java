@@ -0,0 +1,119 @@
+package academy.devdojo.webflux.idempotency;
+
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Store on the {@code anime_idempotency} table, shared by all replicas. A claim is an insert that only
+ * replaces an expired row, so exactly one replica executes a given key. When the row that blocked the
+ * insert is gone by the time it is read, released or purged in between, the claim is attempted again, up
+ * to {@value #CLAIM_ATTEMPTS} times before answering 409.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.idempotency.store", havingValue = "postgres")
+public class PostgresIdempotencyStore implements IdempotencyStore {
+
+    private static final String CLAIM = "INSERT INTO anime_idempotency (idempotency_key, fingerprint, expires_at) " +
+            "VALUES (:key, :fingerprint, :expiresAt) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE " +
+            "SET fingerprint = EXCLUDED.fingerprint, response = NULL, expires_at = EXCLUDED.expires_at " +
+            "WHERE anime_idempotency.expires_at <= :now " +
+            "RETURNING idempotency_key";
+
+    private static final int CLAIM_ATTEMPTS = 3;
+
+    private final DatabaseClient databaseClient;
+
+    public PostgresIdempotencyStore(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    @Override
+    public Mono<IdempotencyRecord> claim(String key, byte[] fingerprint, Duration pendingTimeout) {
+        return claim(key, fingerprint, pendingTimeout, CLAIM_ATTEMPTS);
+    }
+
+    private Mono<IdempotencyRecord> claim(String key, byte[] fingerprint, Duration pendingTimeout, int attempts) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        return databaseClient.sql(CLAIM)
+                .bind("key", key)
+                .bind("fingerprint", ByteBuffer.wrap(fingerprint))
+                .bind("expiresAt", now.plus(pendingTimeout))
+                .bind("now", now)
+                .fetch()
+                .first()
+                .hasElement()
+                .flatMap(claimed -> claimed ? Mono.empty() : find(key)
+                        .switchIfEmpty(Mono.defer(() -> attempts > 1
+                                ? claim(key, fingerprint, pendingTimeout, attempts - 1)
+                                : Mono.error(contended()))));
+    }
+
+    private static ResponseStatusException contended() {
+        return new ResponseStatusException(HttpStatus.CONFLICT,
+                "A request with this " + IdempotencyService.HEADER + " is being claimed concurrently, retry later");
+    }
+
+    @Override
+    public Mono<Void> complete(String key, byte[] response, Duration ttl) {
+        return databaseClient.sql("UPDATE anime_idempotency SET response = :response, expires_at = :expiresAt " +
+                        "WHERE idempotency_key = :key")
+                .bind("key", key)
+                .bind("response", ByteBuffer.wrap(response))
+                .bind("expiresAt", OffsetDateTime.now(ZoneOffset.UTC).plus(ttl))
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    @Override
+    public Mono<Void> release(String key) {
+        return databaseClient.sql("DELETE FROM anime_idempotency WHERE idempotency_key = :key AND response IS NULL")
+                .bind("key", key)
+                .fetch()
+                .rowsUpdated()
+                .then();
+    }
+
+    @Override
+    public Mono<Long> purgeExpired() {
+        return databaseClient.sql("DELETE FROM anime_idempotency WHERE expires_at <= :now")
+                .bind("now", OffsetDateTime.now(ZoneOffset.UTC))
+                .fetch()
+                .rowsUpdated()
+                .map(Integer::longValue);
+    }
+
+    private Mono<IdempotencyRecord> find(String key) {
+        return databaseClient.sql("SELECT fingerprint, response, expires_at FROM anime_idempotency " +
+                        "WHERE idempotency_key = :key")
+                .bind("key", key)
+                .map((row, rowMetadata) -> toRecord(row))
+                .first();
+    }
+
+    private static IdempotencyRecord toRecord(Row row) {
+        return new IdempotencyRecord(bytes(row.get("fingerprint", ByteBuffer.class)),
+                bytes(row.get("response", ByteBuffer.class)),
+                row.get("expires_at", OffsetDateTime.class).toInstant());
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        if (buffer == null) {
+            return null;
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,46 @@
+package academy.devdojo.webflux.lifecycle;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * First step of the shutdown. Spring Boot reports the readiness probe as {@code REFUSING_TRAFFIC} as soon
+ * as the context starts closing, but load balancers only stop routing to the instance after their next
+ * probe or endpoint update. The instance keeps serving normally for {@code devdojo.shutdown.drain-delay}
+ * before the web server stops accepting connections and drains the requests in flight, within
+ * {@code spring.lifecycle.timeout-per-shutdown-phase}.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+public class ShutdownDrainDelay {
+
+    private final ApplicationContext applicationContext;
+    private final Duration drainDelay;
+
+    public ShutdownDrainDelay(ApplicationContext applicationContext,
+                              @Value("${devdojo.shutdown.drain-delay:0s}") Duration drainDelay) {
+        this.applicationContext = applicationContext;
+        this.drainDelay = drainDelay;
+    }
+
+    @EventListener
+    public void onClose(ContextClosedEvent event) {
+        if (event.getApplicationContext() != applicationContext || drainDelay.isZero()) {
+            return;
+        }
+        log.info("Desligando: readiness fora de servico, atendendo por mais {} antes de drenar", drainDelay);
+        try {
+            Thread.sleep(drainDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
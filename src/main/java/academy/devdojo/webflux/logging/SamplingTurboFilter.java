@@ -0,0 +1,132 @@
+package academy.devdojo.webflux.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a sample of the INFO and lower events of chatty loggers and caps how many of them are written per
+ * second, declared in {@code logback-spring.xml}:
+ * <pre>
+ * &lt;turboFilter class="academy.devdojo.webflux.logging.SamplingTurboFilter"&gt;
+ *     &lt;rule&gt;
+ *         &lt;logger&gt;academy.devdojo.webflux.service&lt;/logger&gt;
+ *         &lt;sampleEvery&gt;10&lt;/sampleEvery&gt;
+ *         &lt;maxPerSecond&gt;100&lt;/maxPerSecond&gt;
+ *     &lt;/rule&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ * A rule applies to its logger and the loggers below it, the most specific rule wins. WARN and ERROR
+ * events, events of disabled levels and {@code isXxxEnabled()} checks are never dropped or counted.
+ * Events are dropped before they reach the appenders, but after the Log4j API bridge has formatted them,
+ * so arguments that are expensive to render should still be passed as suppliers.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private static final Rule NO_RULE = new Rule();
+
+    private final List<Rule> rules = new ArrayList<>();
+    private final Map<String, Rule> rulesByLogger = new ConcurrentHashMap<>();
+    private LongSupplier clock = System::currentTimeMillis;
+
+    public void addRule(Rule rule) {
+        rules.add(rule);
+    }
+
+    void setClock(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public void start() {
+        for (Rule rule : rules) {
+            if (rule.logger == null || rule.sampleEvery < 1 || rule.maxPerSecond < 0) {
+                addError("Invalid sampling rule for logger " + rule.logger);
+                return;
+            }
+        }
+        rules.sort(Comparator.comparingInt((Rule rule) -> rule.logger.length()).reversed());
+        rulesByLogger.clear();
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || format == null || level.levelInt >= Level.WARN_INT
+                || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        Rule rule = rulesByLogger.computeIfAbsent(logger.getName(), this::ruleFor);
+        return rule == NO_RULE || rule.accept(clock.getAsLong()) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private Rule ruleFor(String loggerName) {
+        for (Rule rule : rules) {
+            if (rule.appliesTo(loggerName)) {
+                return rule;
+            }
+        }
+        return NO_RULE;
+    }
+
+    public static class Rule {
+
+        private String logger;
+        private int sampleEvery = 1;
+        private int maxPerSecond;
+
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong currentSecond = new AtomicLong();
+        private final AtomicInteger writtenInSecond = new AtomicInteger();
+
+        public void setLogger(String logger) {
+            this.logger = logger;
+        }
+
+        /**
+         * Writes one of every {@code sampleEvery} events, 1 writes all of them.
+         */
+        public void setSampleEvery(int sampleEvery) {
+            this.sampleEvery = sampleEvery;
+        }
+
+        /**
+         * Caps the sampled events written per second, 0 means no cap.
+         */
+        public void setMaxPerSecond(int maxPerSecond) {
+            this.maxPerSecond = maxPerSecond;
+        }
+
+        private boolean appliesTo(String loggerName) {
+            return logger.isEmpty()
+                    || loggerName.equals(logger)
+                    || loggerName.startsWith(logger) && loggerName.charAt(logger.length()) == '.';
+        }
+
+        private boolean accept(long now) {
+            if (sampleEvery > 1 && events.getAndIncrement() % sampleEvery != 0) {
+                return false;
+            }
+            if (maxPerSecond == 0) {
+                return true;
+            }
+            long second = now / 1000;
+            long current = currentSecond.get();
+            if (second != current && currentSecond.compareAndSet(current, second)) {
+                writtenInSecond.set(0);
+            }
+            return writtenInSecond.incrementAndGet() <= maxPerSecond;
+        }
+    }
+}
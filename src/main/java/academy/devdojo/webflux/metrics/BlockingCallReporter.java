@@ -0,0 +1,67 @@
+package academy.devdojo.webflux.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.log4j.Log4j2;
+import reactor.blockhound.BlockHound;
+import reactor.blockhound.BlockingMethod;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Production-safe BlockHound mode: blocking calls on non-blocking threads are counted in
+ * {@code devdojo.blocking.calls} (tagged by method) and logged with a stack trace for the first
+ * occurrence of each method and then once every {@code log-every} occurrences, instead of failing
+ * the call with a {@code BlockingOperationError}.
+ * <p>
+ * BlockHound must be installed before any event loop starts, so this is switched on from
+ * {@code main} through the {@code devdojo.blockhound.mode=report} system property (or the
+ * {@code DEVDOJO_BLOCKHOUND_MODE} environment variable). On JDK 13+ the JVM also needs
+ * {@code -XX:+AllowRedefinitionToAddDeleteMethods}.
+ */
+@Log4j2
+public class BlockingCallReporter {
+
+    private final MeterRegistry meterRegistry;
+    private final long logEvery;
+    private final ConcurrentHashMap<String, AtomicLong> occurrences = new ConcurrentHashMap<>();
+
+    public BlockingCallReporter(MeterRegistry meterRegistry, long logEvery) {
+        this.meterRegistry = meterRegistry;
+        this.logEvery = Math.max(1, logEvery);
+    }
+
+    public static void installIfEnabled() {
+        String mode = System.getProperty("devdojo.blockhound.mode", System.getenv("DEVDOJO_BLOCKHOUND_MODE"));
+        if (!"report".equalsIgnoreCase(mode)) {
+            return;
+        }
+        long logEvery = Long.getLong("devdojo.blockhound.log-every", 100);
+        BlockingCallReporter reporter = new BlockingCallReporter(Metrics.globalRegistry, logEvery);
+        BlockHound.builder()
+                .blockingMethodCallback(reporter::report)
+                .install();
+        log.info("BlockHound instalado em modo report, registrando 1 a cada {} chamadas bloqueantes", logEvery);
+    }
+
+    public void report(BlockingMethod method) {
+        String name = method.getClassName() + "#" + method.getName();
+        meterRegistry.counter("devdojo.blocking.calls", "method", name).increment();
+
+        long occurrence = occurrences.computeIfAbsent(name, key -> new AtomicLong()).incrementAndGet();
+        if (occurrence == 1 || occurrence % logEvery == 0) {
+            log.warn("Chamada bloqueante {} na thread {} (ocorrencia {})", name, Thread.currentThread().getName(),
+                    occurrence, new BlockingCallDetected(name));
+        }
+    }
+
+    /**
+     * Carries the stack trace of the offending call into the log; never thrown.
+     */
+    static class BlockingCallDetected extends RuntimeException {
+        BlockingCallDetected(String method) {
+            super("Blocking call to " + method, null, false, true);
+        }
+    }
+}
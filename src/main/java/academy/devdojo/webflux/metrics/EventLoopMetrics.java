@@ -0,0 +1,92 @@
+package academy.devdojo.webflux.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.HttpResources;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the health of the Reactor Netty server event loops.
+ * <ul>
+ *     <li>{@code devdojo.eventloop.pending.tasks}: tasks queued on each loop</li>
+ *     <li>{@code devdojo.eventloop.lag}: delay between submitting a probe task to a loop and the loop running it,
+ *     sampled every {@code devdojo.metrics.eventloop.probe-interval}</li>
+ * </ul>
+ */
+@Component
+public class EventLoopMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Duration probeInterval;
+    private final List<Probe> probes = new ArrayList<>();
+    private Disposable probing;
+
+    public EventLoopMetrics(MeterRegistry meterRegistry,
+                            @Value("${devdojo.metrics.eventloop.probe-interval:1s}") Duration probeInterval) {
+        this.meterRegistry = meterRegistry;
+        this.probeInterval = probeInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        bind(HttpResources.get().onServer(true));
+    }
+
+    public void bind(EventLoopGroup eventLoopGroup) {
+        int index = 0;
+        for (EventExecutor executor : eventLoopGroup) {
+            String loop = String.valueOf(index++);
+            if (executor instanceof SingleThreadEventExecutor) {
+                SingleThreadEventExecutor singleThreadExecutor = (SingleThreadEventExecutor) executor;
+                Gauge.builder("devdojo.eventloop.pending.tasks", singleThreadExecutor, SingleThreadEventExecutor::pendingTasks)
+                        .tag("loop", loop)
+                        .register(meterRegistry);
+            }
+            Timer lag = Timer.builder("devdojo.eventloop.lag")
+                    .tag("loop", loop)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(meterRegistry);
+            probes.add(new Probe(executor, lag));
+        }
+        probing = Flux.interval(probeInterval)
+                .onBackpressureDrop()
+                .subscribe(tick -> probes.forEach(Probe::submit));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (probing != null) {
+            probing.dispose();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Probe {
+        private final EventExecutor executor;
+        private final Timer lag;
+
+        void submit() {
+            if (executor.isShuttingDown()) {
+                return;
+            }
+            long submittedAt = System.nanoTime();
+            executor.execute(() -> lag.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Destination of the anime change events relayed from the outbox.
+ * <p>
+ * Delivery is at-least-once: a batch whose publication fails, or whose rows could not be deleted
+ * afterwards, is published again, so sinks and their consumers must tolerate duplicates
+ * (the event {@code id} is stable and can be used to deduplicate).
+ */
+public interface AnimeEventSink {
+
+    Mono<Void> publish(List<AnimeOutboxEvent> events);
+}
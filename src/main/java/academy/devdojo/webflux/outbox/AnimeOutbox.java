@@ -0,0 +1,56 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records anime change events in the {@code anime_outbox} table.
+ * <p>
+ * Callers must subscribe inside the transaction that performs the change itself, so the event is
+ * committed (or rolled back) together with it; {@link AnimeOutboxRelay} delivers it afterwards.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnimeOutbox {
+
+    private final AnimeOutboxRepository animeOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public Mono<Void> record(AnimeEventType eventType, Anime anime) {
+        return Mono.fromCallable(() -> toEvent(eventType, anime))
+                .flatMap(animeOutboxRepository::save)
+                .then();
+    }
+
+    public Mono<Void> recordAll(AnimeEventType eventType, List<Anime> animes) {
+        return Mono.fromCallable(() -> animes.stream()
+                        .map(anime -> toEvent(eventType, anime))
+                        .collect(Collectors.toList()))
+                .flatMapMany(animeOutboxRepository::saveAll)
+                .then();
+    }
+
+    private AnimeOutboxEvent toEvent(AnimeEventType eventType, Anime anime) {
+        try {
+            return AnimeOutboxEvent.builder()
+                    .aggregateId(anime.getId())
+                    .eventType(eventType)
+                    .payload(objectMapper.writeValueAsString(anime))
+                    .createdAt(Instant.now())
+                    .build();
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not serialize anime " + anime.getId(), exception);
+        }
+    }
+}
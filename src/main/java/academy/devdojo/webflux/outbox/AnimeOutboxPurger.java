@@ -0,0 +1,84 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Every {@code devdojo.outbox.purge.interval}, removes the events older than {@code devdojo.outbox.retention}
+ * that no relay is delivering, {@code devdojo.outbox.purge.batch-size} rows per statement on the batch
+ * bulkhead. It runs whether or not a sink is configured, so {@code anime_outbox} stays bounded when
+ * nothing relays it or the sink keeps failing. Nothing depends on the purger, so it opts out of lazy
+ * initialization.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "devdojo.outbox.purge.enabled", havingValue = "true", matchIfMissing = true)
+public class AnimeOutboxPurger {
+
+    private final AnimeOutboxRepository animeOutboxRepository;
+    private final Bulkheads bulkheads;
+    private final Duration retention;
+    private final Duration interval;
+    private final int batchSize;
+    private Disposable purge;
+
+    public AnimeOutboxPurger(AnimeOutboxRepository animeOutboxRepository,
+                             Bulkheads bulkheads,
+                             @Value("${devdojo.outbox.retention:7d}") Duration retention,
+                             @Value("${devdojo.outbox.purge.interval:1h}") Duration interval,
+                             @Value("${devdojo.outbox.purge.batch-size:1000}") int batchSize) {
+        this.animeOutboxRepository = animeOutboxRepository;
+        this.bulkheads = bulkheads;
+        this.retention = retention;
+        this.interval = interval;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        purge = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> purgeExpired(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        purge.dispose();
+    }
+
+    /**
+     * Purges batches until one comes back short, emitting the total removed.
+     */
+    public Mono<Long> purgeExpired() {
+        return purgeBatch()
+                .expand(purged -> purged == batchSize ? purgeBatch() : Mono.empty())
+                .reduce(0L, (total, purged) -> total + purged)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.warn("{} eventos do outbox removidos sem entrega apos {}", total, retention);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.warn("Falha ao remover eventos antigos do outbox, nova tentativa em {}", interval, error);
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Integer> purgeBatch() {
+        return bulkheads.batch(Mono.defer(() -> animeOutboxRepository.purgeOlderThan(retention.toMillis(), batchSize)));
+    }
+}
@@ -0,0 +1,104 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically drains {@code anime_outbox} into the configured {@link AnimeEventSink}.
+ * <p>
+ * Each batch is leased for {@code devdojo.outbox.lease} by a single statement, then published outside
+ * any transaction and deleted once the sink acknowledged it, so no lock or connection is held while the
+ * sink is called and several replicas can relay concurrently. A batch the sink rejects is released for
+ * the next poll, one whose relay died is relayed again when its lease expires. Batches are drained back
+ * to back until the table is empty.
+ * Nothing depends on the relay, so it opts out of lazy initialization.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "devdojo.outbox.sink")
+public class AnimeOutboxRelay {
+
+    private final AnimeOutboxRepository animeOutboxRepository;
+    private final AnimeEventSink animeEventSink;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private Disposable relay;
+
+    public AnimeOutboxRelay(AnimeOutboxRepository animeOutboxRepository,
+                            AnimeEventSink animeEventSink,
+                            @Value("${devdojo.outbox.batch-size:100}") int batchSize,
+                            @Value("${devdojo.outbox.poll-interval:1s}") Duration pollInterval,
+                            @Value("${devdojo.outbox.lease:1m}") Duration lease) {
+        this.animeOutboxRepository = animeOutboxRepository;
+        this.animeEventSink = animeEventSink;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+    }
+
+    @PostConstruct
+    public void start() {
+        relay = Flux.interval(pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> relayPending(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        relay.dispose();
+    }
+
+    /**
+     * Relays batches until fewer than {@code batchSize} events are pending, emitting the total delivered.
+     */
+    public Mono<Long> relayPending() {
+        return relayBatch()
+                .expand(delivered -> delivered == batchSize ? relayBatch() : Mono.empty())
+                .reduce(0L, (total, delivered) -> total + delivered)
+                .onErrorResume(error -> {
+                    log.warn("Falha ao publicar eventos do outbox, nova tentativa em {}", pollInterval, error);
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Integer> relayBatch() {
+        return animeOutboxRepository.leaseOldest(batchSize, lease.toMillis())
+                .sort(Comparator.comparing(AnimeOutboxEvent::getId))
+                .collectList()
+                .flatMap(this::publishAndDelete);
+    }
+
+    private Mono<Integer> publishAndDelete(List<AnimeOutboxEvent> events) {
+        if (events.isEmpty()) {
+            return Mono.just(0);
+        }
+        List<Long> ids = events.stream()
+                .map(AnimeOutboxEvent::getId)
+                .collect(Collectors.toList());
+        return animeEventSink.publish(events)
+                .onErrorResume(error -> animeOutboxRepository.releaseByIdIn(ids)
+                        // left leased, the batch is relayed again once the lease expires
+                        .onErrorResume(releaseError -> Mono.empty())
+                        .then(Mono.error(error)))
+                .then(Mono.defer(() -> animeOutboxRepository.deleteByIdIn(ids)))
+                .thenReturn(events.size());
+    }
+}
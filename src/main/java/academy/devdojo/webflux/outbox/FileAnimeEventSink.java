@@ -0,0 +1,54 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every event as one JSON line (NDJSON) to {@code devdojo.outbox.file.path}.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.outbox.sink", havingValue = "file")
+public class FileAnimeEventSink implements AnimeEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileAnimeEventSink(@Value("${devdojo.outbox.file.path:anime-events.ndjson}") Path path,
+                              ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> publish(List<AnimeOutboxEvent> events) {
+        return Mono.fromCallable(() -> append(toLines(events)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private byte[] toLines(List<AnimeOutboxEvent> events) throws JsonProcessingException {
+        StringBuilder lines = new StringBuilder();
+        for (AnimeOutboxEvent event : events) {
+            lines.append(objectMapper.writeValueAsString(event)).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private synchronized Path append(byte[] lines) throws IOException {
+        return Files.write(path, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND,
+                StandardOpenOption.WRITE, StandardOpenOption.DSYNC);
+    }
+}
@@ -0,0 +1,33 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps published events in memory; meant for tests and local demos, not for production delivery.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.outbox.sink", havingValue = "memory")
+public class InMemoryAnimeEventSink implements AnimeEventSink {
+
+    private final ConcurrentLinkedQueue<AnimeOutboxEvent> events = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public Mono<Void> publish(List<AnimeOutboxEvent> batch) {
+        return Mono.fromRunnable(() -> events.addAll(batch));
+    }
+
+    public List<AnimeOutboxEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    public void clear() {
+        events.clear();
+    }
+}
@@ -0,0 +1,42 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch as a JSON array to {@code devdojo.outbox.webhook.url}; any non-2xx answer fails
+ * the batch so it is delivered again on the next relay run.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.outbox.sink", havingValue = "webhook")
+public class WebhookAnimeEventSink implements AnimeEventSink {
+
+    private final WebClient webClient;
+    private final Duration timeout;
+
+    public WebhookAnimeEventSink(WebClient.Builder webClientBuilder,
+                                 @Value("${devdojo.outbox.webhook.url}") String url,
+                                 @Value("${devdojo.outbox.webhook.timeout:5s}") Duration timeout) {
+        this.webClient = webClientBuilder.baseUrl(url).build();
+        this.timeout = timeout;
+    }
+
+    @Override
+    public Mono<Void> publish(List<AnimeOutboxEvent> events) {
+        return webClient.post()
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(events)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .then();
+    }
+}
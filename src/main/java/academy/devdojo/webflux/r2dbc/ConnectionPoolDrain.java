@@ -0,0 +1,76 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Holds back the disposal of each connection pool on shutdown until no connection is acquired or waited
+ * for, up to {@code devdojo.shutdown.pool-drain-timeout}. By then the web server has drained its requests
+ * and the beans that use the pool have stopped their background jobs, so what is left are transactions
+ * finishing or rolling back. Connections still acquired at the deadline are closed with the pool and the
+ * database rolls back whatever they left open.
+ */
+@Log4j2
+@Component
+public class ConnectionPoolDrain implements DestructionAwareBeanPostProcessor {
+
+    private static final long POLL_MILLIS = 50;
+
+    private final Duration timeout;
+
+    public ConnectionPoolDrain(@Value("${devdojo.shutdown.pool-drain-timeout:10s}") Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public boolean requiresDestruction(Object bean) {
+        return bean instanceof ConnectionFactory;
+    }
+
+    @Override
+    public void postProcessBeforeDestruction(Object bean, String beanName) {
+        if (bean instanceof ConnectionFactory) {
+            drain(ConnectionPools.of(beanName, (ConnectionFactory) bean));
+        }
+    }
+
+    /**
+     * Waits until none of {@code pools} has a connection acquired or an acquisition pending, and returns
+     * whether they drained before the timeout.
+     */
+    boolean drain(Map<String, ConnectionPool> pools) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            int busy = pools.values().stream().mapToInt(ConnectionPoolDrain::busy).sum();
+            if (busy == 0) {
+                return true;
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                log.warn("Fechando pools {} com {} conexoes ainda em uso apos {}", pools.keySet(), busy, timeout);
+                return false;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    private static int busy(ConnectionPool pool) {
+        if (pool.isDisposed()) {
+            return 0;
+        }
+        return pool.getMetrics()
+                .map(metrics -> metrics.acquiredSize() + metrics.pendingAcquireSize())
+                .orElse(0);
+    }
+}
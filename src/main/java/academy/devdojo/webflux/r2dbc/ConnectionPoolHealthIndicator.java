@@ -0,0 +1,58 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The {@code connectionPool} health, part of the readiness probe, read from the pool counters without
+ * acquiring a connection, so it answers at once even when every connection is busy. It is down once a
+ * pool is disposed and details each pool by its acquired, idle, allocated, max and pending counts; a busy
+ * pool is left to the bulkheads rather than taking the instance out of rotation.
+ */
+@Component
+public class ConnectionPoolHealthIndicator implements HealthIndicator {
+
+    private final ObjectProvider<Map<String, ConnectionFactory>> connectionFactories;
+
+    public ConnectionPoolHealthIndicator(ObjectProvider<Map<String, ConnectionFactory>> connectionFactories) {
+        this.connectionFactories = connectionFactories;
+    }
+
+    @Override
+    public Health health() {
+        Status status = Status.UP;
+        Map<String, Object> details = new LinkedHashMap<>();
+        for (Map.Entry<String, ConnectionFactory> bean : connectionFactories.getIfAvailable(Map::of).entrySet()) {
+            for (Map.Entry<String, ConnectionPool> entry : ConnectionPools.of(bean.getKey(), bean.getValue()).entrySet()) {
+                ConnectionPool pool = entry.getValue();
+                PoolMetrics metrics = pool.getMetrics().orElse(null);
+                if (pool.isDisposed()) {
+                    status = Status.DOWN;
+                    details.put(entry.getKey(), Map.of("disposed", true));
+                } else if (metrics != null) {
+                    details.put(entry.getKey(), details(metrics));
+                }
+            }
+        }
+        return Health.status(status).withDetails(details).build();
+    }
+
+    private static Map<String, Object> details(PoolMetrics metrics) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("acquired", metrics.acquiredSize());
+        details.put("idle", metrics.idleSize());
+        details.put("allocated", metrics.allocatedSize());
+        details.put("max", metrics.getMaxAllocatedSize());
+        details.put("pending", metrics.pendingAcquireSize());
+        return details;
+    }
+}
@@ -0,0 +1,49 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Finds the connection pools behind a {@link ConnectionFactory} bean, looking through wrappers such as
+ * {@link ObservedConnectionFactory}.
+ */
+final class ConnectionPools {
+
+    private ConnectionPools() {
+    }
+
+    /**
+     * The pools of {@code connectionFactory} by name: the bean name for a single pool and
+     * {@code read}, {@code write} and {@code batch} for the pools of a {@link WorkloadRoutingConnectionFactory}.
+     */
+    static Map<String, ConnectionPool> of(String beanName, ConnectionFactory connectionFactory) {
+        Map<String, ConnectionPool> pools = new TreeMap<>();
+        ConnectionFactory factory = unwrap(connectionFactory);
+        if (factory instanceof WorkloadRoutingConnectionFactory) {
+            ((WorkloadRoutingConnectionFactory) factory).getPools()
+                    .forEach((workload, pool) -> pools.put(workload.name().toLowerCase(), pool));
+        } else if (factory instanceof ConnectionPool) {
+            pools.put(beanName, (ConnectionPool) factory);
+        }
+        return pools;
+    }
+
+    static WorkloadRoutingConnectionFactory routing(ConnectionFactory connectionFactory) {
+        ConnectionFactory factory = unwrap(connectionFactory);
+        return factory instanceof WorkloadRoutingConnectionFactory ? (WorkloadRoutingConnectionFactory) factory : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConnectionFactory unwrap(ConnectionFactory connectionFactory) {
+        ConnectionFactory factory = connectionFactory;
+        while (!(factory instanceof WorkloadRoutingConnectionFactory) && !(factory instanceof ConnectionPool)
+                && factory instanceof Wrapped) {
+            factory = ((Wrapped<ConnectionFactory>) factory).unwrap();
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,334 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.spi.Batch;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.ConnectionMetadata;
+import io.r2dbc.spi.IsolationLevel;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Statement;
+import io.r2dbc.spi.ValidationDepth;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Decorates the pooled {@link ConnectionFactory} to report connection acquire times and every statement's
+ * duration, row count and outcome to the {@link StatementListener}s, tagged with the
+ * {@link StatementOrigin} found in the subscriber's context.
+ * <p>
+ * A statement is timed from subscribing to its execution until the execution and every result publisher
+ * subscribed to so far have terminated, so the time to read the rows is included.
+ */
+public class ObservedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+    private final ConnectionFactory delegate;
+    private final StatementListener[] listeners;
+
+    public ObservedConnectionFactory(ConnectionFactory delegate, List<StatementListener> listeners) {
+        this.delegate = delegate;
+        this.listeners = listeners.toArray(new StatementListener[0]);
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.deferContextual(context -> {
+            String origin = StatementOrigin.of(context);
+            long start = System.nanoTime();
+            return Mono.from(delegate.create())
+                    .map(connection -> {
+                        Duration acquireTime = Duration.ofNanos(System.nanoTime() - start);
+                        for (StatementListener listener : listeners) {
+                            listener.connectionAcquired(origin, acquireTime, context);
+                        }
+                        return new ObservedConnection(connection);
+                    });
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    /**
+     * Disposes the pool, the bean is declared with {@code destroyMethod = "dispose"}.
+     */
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable) {
+            ((Disposable) delegate).dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable && ((Disposable) delegate).isDisposed();
+    }
+
+    private Flux<Result> observe(String sql, Publisher<? extends Result> results) {
+        return Flux.deferContextual(context -> {
+            Execution execution = new Execution(sql, context);
+            return Flux.from(results)
+                    .<Result>map(result -> new ObservedResult(result, execution))
+                    .doOnError(execution::fail)
+                    .doFinally(execution::release);
+        });
+    }
+
+    private class Execution {
+
+        private final String sql;
+        private final ContextView context;
+        private final long start = System.nanoTime();
+        // the execution itself plus the result publishers still running
+        private final AtomicInteger running = new AtomicInteger(1);
+        private final AtomicLong rows = new AtomicLong();
+        private volatile boolean failed;
+
+        private Execution(String sql, ContextView context) {
+            this.sql = sql;
+            this.context = context;
+        }
+
+        private void acquire() {
+            running.incrementAndGet();
+        }
+
+        private void fail(Throwable error) {
+            failed = true;
+        }
+
+        private void release(SignalType signal) {
+            if (running.decrementAndGet() != 0) {
+                return;
+            }
+            StatementExecution execution = new StatementExecution(sql, StatementOrigin.of(context),
+                    Duration.ofNanos(System.nanoTime() - start), rows.get(), !failed);
+            for (StatementListener listener : listeners) {
+                listener.statementExecuted(execution, context);
+            }
+        }
+    }
+
+    private static class ObservedResult implements Result {
+
+        private final Result delegate;
+        private final Execution execution;
+
+        private ObservedResult(Result delegate, Execution execution) {
+            this.delegate = delegate;
+            this.execution = execution;
+        }
+
+        @Override
+        public Publisher<Integer> getRowsUpdated() {
+            return Flux.defer(() -> {
+                execution.acquire();
+                return Flux.from(delegate.getRowsUpdated())
+                        .doOnNext(execution.rows::addAndGet)
+                        .doOnError(execution::fail)
+                        .doFinally(execution::release);
+            });
+        }
+
+        @Override
+        public <T> Publisher<T> map(BiFunction<Row, RowMetadata, ? extends T> mappingFunction) {
+            return Flux.defer(() -> {
+                execution.acquire();
+                return Flux.<T>from(delegate.map(mappingFunction))
+                        .doOnNext(row -> execution.rows.incrementAndGet())
+                        .doOnError(execution::fail)
+                        .doFinally(execution::release);
+            });
+        }
+    }
+
+    private class ObservedConnection implements Connection, Wrapped<Connection> {
+
+        private final Connection delegate;
+
+        private ObservedConnection(Connection delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Statement createStatement(String sql) {
+            return new ObservedStatement(delegate.createStatement(sql), sql);
+        }
+
+        @Override
+        public Batch createBatch() {
+            return new ObservedBatch(delegate.createBatch());
+        }
+
+        @Override
+        public Publisher<Void> beginTransaction() {
+            return delegate.beginTransaction();
+        }
+
+        @Override
+        public Publisher<Void> close() {
+            return delegate.close();
+        }
+
+        @Override
+        public Publisher<Void> commitTransaction() {
+            return delegate.commitTransaction();
+        }
+
+        @Override
+        public Publisher<Void> createSavepoint(String name) {
+            return delegate.createSavepoint(name);
+        }
+
+        @Override
+        public boolean isAutoCommit() {
+            return delegate.isAutoCommit();
+        }
+
+        @Override
+        public ConnectionMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public IsolationLevel getTransactionIsolationLevel() {
+            return delegate.getTransactionIsolationLevel();
+        }
+
+        @Override
+        public Publisher<Void> releaseSavepoint(String name) {
+            return delegate.releaseSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransaction() {
+            return delegate.rollbackTransaction();
+        }
+
+        @Override
+        public Publisher<Void> rollbackTransactionToSavepoint(String name) {
+            return delegate.rollbackTransactionToSavepoint(name);
+        }
+
+        @Override
+        public Publisher<Void> setAutoCommit(boolean autoCommit) {
+            return delegate.setAutoCommit(autoCommit);
+        }
+
+        @Override
+        public Publisher<Void> setTransactionIsolationLevel(IsolationLevel isolationLevel) {
+            return delegate.setTransactionIsolationLevel(isolationLevel);
+        }
+
+        @Override
+        public Publisher<Boolean> validate(ValidationDepth depth) {
+            return delegate.validate(depth);
+        }
+
+        @Override
+        public Connection unwrap() {
+            return delegate;
+        }
+    }
+
+    private class ObservedStatement implements Statement {
+
+        private final Statement delegate;
+        private final String sql;
+
+        private ObservedStatement(Statement delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public Statement add() {
+            delegate.add();
+            return this;
+        }
+
+        @Override
+        public Statement bind(int index, Object value) {
+            delegate.bind(index, value);
+            return this;
+        }
+
+        @Override
+        public Statement bind(String name, Object value) {
+            delegate.bind(name, value);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(int index, Class<?> type) {
+            delegate.bindNull(index, type);
+            return this;
+        }
+
+        @Override
+        public Statement bindNull(String name, Class<?> type) {
+            delegate.bindNull(name, type);
+            return this;
+        }
+
+        @Override
+        public Statement returnGeneratedValues(String... columns) {
+            delegate.returnGeneratedValues(columns);
+            return this;
+        }
+
+        @Override
+        public Statement fetchSize(int rows) {
+            delegate.fetchSize(rows);
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return observe(sql, delegate.execute());
+        }
+    }
+
+    private class ObservedBatch implements Batch {
+
+        private final Batch delegate;
+        private final List<String> statements = new ArrayList<>();
+
+        private ObservedBatch(Batch delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Batch add(String sql) {
+            delegate.add(sql);
+            statements.add(sql);
+            return this;
+        }
+
+        @Override
+        public Publisher<? extends Result> execute() {
+            return observe(String.join("; ", statements), delegate.execute());
+        }
+    }
+}
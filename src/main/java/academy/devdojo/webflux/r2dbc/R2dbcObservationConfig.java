@@ -0,0 +1,72 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactoryBean;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Wraps the {@link ConnectionFactory} bean, the connection pool, in an {@link ObservedConnectionFactory}
+ * when there are {@link StatementListener} beans, and tags the statements of R2DBC repositories with the
+ * repository method that issued them.
+ * <p>
+ * Spring Boot only publishes the {@code r2dbc.pool} metrics of a bare {@link ConnectionPool} bean, they
+ * are bound here for the wrapped one.
+ */
+@Configuration(proxyBeanMethods = false)
+public class R2dbcObservationConfig {
+
+    @Bean
+    public static BeanPostProcessor observedConnectionFactoryPostProcessor(ObjectProvider<StatementListener> listeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof ConnectionFactory) || bean instanceof ObservedConnectionFactory) {
+                    return bean;
+                }
+                List<StatementListener> statementListeners = listeners.orderedStream().collect(Collectors.toList());
+                return statementListeners.isEmpty() ? bean
+                        : new ObservedConnectionFactory((ConnectionFactory) bean, statementListeners);
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor statementOriginPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof R2dbcRepositoryFactoryBean) {
+                    ((R2dbcRepositoryFactoryBean<?, ?, ?>) bean).addRepositoryFactoryCustomizer(factory ->
+                            factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+                                    proxyFactory.addAdvice(new StatementOrigin.RepositoryInterceptor(
+                                            repositoryInformation.getRepositoryInterface()))));
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SmartInitializingSingleton observedConnectionPoolMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                                                   ObjectProvider<Map<String, ConnectionFactory>> connectionFactories) {
+        return () -> meterRegistry.ifAvailable(registry -> connectionFactories.getObject().forEach((name, connectionFactory) -> {
+            if (connectionFactory instanceof ObservedConnectionFactory
+                    && ((ObservedConnectionFactory) connectionFactory).unwrap() instanceof ConnectionPool) {
+                ConnectionPool pool = (ConnectionPool) ((ObservedConnectionFactory) connectionFactory).unwrap();
+                new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(registry);
+            }
+        }));
+    }
+}
@@ -0,0 +1,35 @@
+package academy.devdojo.webflux.r2dbc;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+/**
+ * Logs statements that take at least {@code devdojo.r2dbc.slow-query.threshold}, replacing DEBUG logging
+ * of every statement. Bound values are left out. The log is rate capped in {@code logback-spring.xml}
+ * by {@code devdojo.r2dbc.slow-query.max-per-second}.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "devdojo.r2dbc.slow-query.enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryListener implements StatementListener {
+
+    private final Duration threshold;
+
+    public SlowQueryListener(@Value("${devdojo.r2dbc.slow-query.threshold:200ms}") Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void statementExecuted(StatementExecution execution, ContextView context) {
+        if (execution.getDuration().compareTo(threshold) < 0) {
+            return;
+        }
+        log.info("Consulta lenta de {} ms em {} ({} linhas, sucesso: {}): {}", execution.getDuration().toMillis(),
+                execution.getOrigin(), execution.getRows(), execution.isSuccess(), execution.getSql());
+    }
+}
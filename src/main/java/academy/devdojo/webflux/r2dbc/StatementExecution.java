@@ -0,0 +1,20 @@
+package academy.devdojo.webflux.r2dbc;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * One statement run, from subscribing to its execution until its last result was consumed.
+ */
+@Value
+public class StatementExecution {
+    String sql;
+    String origin;
+    Duration duration;
+    /**
+     * Rows returned plus rows updated.
+     */
+    long rows;
+    boolean success;
+}
@@ -0,0 +1,22 @@
+package academy.devdojo.webflux.r2dbc;
+
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+/**
+ * Observes the connections and statements of the {@link ObservedConnectionFactory}. Callbacks run on the
+ * thread that completed the operation, usually an event loop, and must not block. The {@code context} is the
+ * Reactor context of the subscriber that ran the statement or asked for the connection.
+ */
+public interface StatementListener {
+
+    void statementExecuted(StatementExecution execution, ContextView context);
+
+    /**
+     * @param origin      the {@link StatementOrigin} of the caller that asked for the connection
+     * @param acquireTime time from asking the pool for a connection to getting it
+     */
+    default void connectionAcquired(String origin, Duration acquireTime, ContextView context) {
+    }
+}
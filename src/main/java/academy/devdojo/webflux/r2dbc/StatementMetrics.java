@@ -0,0 +1,147 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes R2DBC statement metrics tagged by {@link StatementOrigin}:
+ * <ul>
+ *     <li>{@code devdojo.r2dbc.statement}: statement latency histogram, also tagged by {@code outcome}</li>
+ *     <li>{@code devdojo.r2dbc.statement.rows}: rows returned or updated per statement</li>
+ *     <li>{@code devdojo.r2dbc.connection.acquire}: time to get a connection from the pool</li>
+ * </ul>
+ * It also keeps totals per SQL text for {@link StatementsEndpoint}, for at most
+ * {@code devdojo.r2dbc.metrics.max-statements} distinct texts.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.r2dbc.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementMetrics implements StatementListener {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final Map<String, OriginMeters> metersByOrigin = new ConcurrentHashMap<>();
+    private final Map<String, Totals> totalsBySql = new ConcurrentHashMap<>();
+
+    public StatementMetrics(MeterRegistry meterRegistry,
+                            @Value("${devdojo.r2dbc.metrics.max-statements:500}") int maxStatements) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void statementExecuted(StatementExecution execution, ContextView context) {
+        OriginMeters meters = meters(execution.getOrigin());
+        (execution.isSuccess() ? meters.succeeded : meters.failed).record(execution.getDuration());
+        meters.rows.record(execution.getRows());
+
+        Totals totals = totalsBySql.get(execution.getSql());
+        if (totals == null && totalsBySql.size() < maxStatements) {
+            totals = totalsBySql.computeIfAbsent(execution.getSql(), sql -> new Totals(execution.getOrigin()));
+        }
+        if (totals != null) {
+            totals.add(execution);
+        }
+    }
+
+    @Override
+    public void connectionAcquired(String origin, Duration acquireTime, ContextView context) {
+        meters(origin).acquire.record(acquireTime);
+    }
+
+    /**
+     * The {@code limit} statements with the highest maximum duration, slowest first.
+     */
+    public List<StatementSummary> slowest(int limit) {
+        return totalsBySql.entrySet().stream()
+                .map(entry -> entry.getValue().summary(entry.getKey()))
+                .sorted(Comparator.comparingDouble(StatementSummary::getMaxMillis).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private OriginMeters meters(String origin) {
+        OriginMeters meters = metersByOrigin.get(origin);
+        return meters != null ? meters : metersByOrigin.computeIfAbsent(origin, this::register);
+    }
+
+    private OriginMeters register(String origin) {
+        return new OriginMeters(statementTimer(origin, "success"), statementTimer(origin, "error"),
+                DistributionSummary.builder("devdojo.r2dbc.statement.rows")
+                        .tag("origin", origin)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry),
+                Timer.builder("devdojo.r2dbc.connection.acquire")
+                        .tag("origin", origin)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry));
+    }
+
+    private Timer statementTimer(String origin, String outcome) {
+        return Timer.builder("devdojo.r2dbc.statement")
+                .tag("origin", origin)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static class OriginMeters {
+        private final Timer succeeded;
+        private final Timer failed;
+        private final DistributionSummary rows;
+        private final Timer acquire;
+
+        private OriginMeters(Timer succeeded, Timer failed, DistributionSummary rows, Timer acquire) {
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.rows = rows;
+            this.acquire = acquire;
+        }
+    }
+
+    private static class Totals {
+        private final String origin;
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Totals(String origin) {
+            this.origin = origin;
+        }
+
+        private void add(StatementExecution execution) {
+            long nanos = execution.getDuration().toNanos();
+            executions.increment();
+            if (!execution.isSuccess()) {
+                failures.increment();
+            }
+            rows.add(execution.getRows());
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private StatementSummary summary(String sql) {
+            long count = executions.sum();
+            double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+            return new StatementSummary(sql, origin, count, failures.sum(), rows.sum(),
+                    count == 0 ? 0 : totalNanos.sum() / nanosPerMilli / count, maxNanos.get() / nanosPerMilli);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package academy.devdojo.webflux.r2dbc;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Names the code that issued a statement, {@code AnimeRepository.findById} for instance, and carries the
+ * name to the {@link ObservedConnectionFactory} in the Reactor context. Repository methods are tagged by
+ * {@link RepositoryInterceptor}, statements issued elsewhere are reported as {@link #OTHER}.
+ */
+public final class StatementOrigin {
+
+    public static final String OTHER = "other";
+    private static final String CONTEXT_KEY = StatementOrigin.class.getName();
+
+    private StatementOrigin() {
+    }
+
+    public static String of(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, OTHER);
+    }
+
+    static Context context(String origin) {
+        return Context.of(CONTEXT_KEY, origin);
+    }
+
+    /**
+     * Added to every R2DBC repository proxy by {@link R2dbcObservationConfig}.
+     */
+    static class RepositoryInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        private final Map<Method, Context> contexts = new ConcurrentHashMap<>();
+
+        RepositoryInterceptor(Class<?> repositoryInterface) {
+            this.repository = repositoryInterface.getSimpleName();
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (result instanceof Mono) {
+                return ((Mono<?>) result).contextWrite(context(invocation.getMethod()));
+            }
+            if (result instanceof Flux) {
+                return ((Flux<?>) result).contextWrite(context(invocation.getMethod()));
+            }
+            return result;
+        }
+
+        private Context context(Method method) {
+            return contexts.computeIfAbsent(method, key -> StatementOrigin.context(repository + "." + key.getName()));
+        }
+    }
+}
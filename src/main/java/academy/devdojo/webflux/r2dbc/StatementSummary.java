@@ -0,0 +1,17 @@
+package academy.devdojo.webflux.r2dbc;
+
+import lombok.Value;
+
+/**
+ * Totals of one SQL text since startup, as listed by {@code /actuator/statements}.
+ */
+@Value
+public class StatementSummary {
+    String sql;
+    String origin;
+    long executions;
+    long failures;
+    long rows;
+    double meanMillis;
+    double maxMillis;
+}
@@ -0,0 +1,32 @@
+package academy.devdojo.webflux.r2dbc;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code GET /actuator/statements?limit=N} lists the N slowest statements, 10 by default. Exposed with
+ * {@code management.endpoints.web.exposure.include} and restricted to admins by the authorization policy.
+ */
+@Component
+@Endpoint(id = "statements")
+@ConditionalOnProperty(name = "devdojo.r2dbc.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementsEndpoint {
+
+    private static final int DEFAULT_LIMIT = 10;
+
+    private final StatementMetrics statementMetrics;
+
+    public StatementsEndpoint(StatementMetrics statementMetrics) {
+        this.statementMetrics = statementMetrics;
+    }
+
+    @ReadOperation
+    public List<StatementSummary> slowest(@Nullable Integer limit) {
+        return statementMetrics.slowest(limit == null ? DEFAULT_LIMIT : Math.max(0, limit));
+    }
+}
@@ -0,0 +1,77 @@
+package academy.devdojo.webflux.r2dbc;
+
+import academy.devdojo.webflux.resilience.Workload;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.context.properties.PropertyMapper;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Replaces the single connection pool with one pool per {@link Workload}, sized by
+ * {@code devdojo.bulkhead.<workload>.pool-size}, so that batch work holding its connections cannot make
+ * reads wait for one. The other {@code spring.r2dbc.pool.*} settings apply to every pool. Calls made
+ * outside a {@link academy.devdojo.webflux.resilience.Bulkheads} workload use the write pool.
+ * <p>
+ * The pools publish the {@code r2dbc.pool} metrics tagged {@code name=read|write|batch}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "devdojo.bulkhead.partitions.enabled", havingValue = "true")
+public class WorkloadPoolConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionFactory connectionFactory(R2dbcProperties properties,
+                                               @Value("${devdojo.bulkhead.read.pool-size:6}") int readPoolSize,
+                                               @Value("${devdojo.bulkhead.write.pool-size:3}") int writePoolSize,
+                                               @Value("${devdojo.bulkhead.batch.pool-size:2}") int batchPoolSize) {
+        ConnectionFactory driver = ConnectionFactoryBuilder.withUrl(properties.getUrl())
+                .username(properties.getUsername())
+                .password(properties.getPassword())
+                .build();
+        Map<Workload, ConnectionPool> pools = new EnumMap<>(Workload.class);
+        pools.put(Workload.READ, pool(driver, properties.getPool(), "read", readPoolSize));
+        pools.put(Workload.WRITE, pool(driver, properties.getPool(), "write", writePoolSize));
+        pools.put(Workload.BATCH, pool(driver, properties.getPool(), "batch", batchPoolSize));
+        return new WorkloadRoutingConnectionFactory(driver, pools);
+    }
+
+    private static ConnectionPool pool(ConnectionFactory driver, R2dbcProperties.Pool properties, String name, int size) {
+        ConnectionPoolConfiguration.Builder builder = ConnectionPoolConfiguration.builder(driver)
+                .name(name)
+                .initialSize(size)
+                .maxSize(size)
+                .validationDepth(properties.getValidationDepth());
+        PropertyMapper map = PropertyMapper.get().alwaysApplyingWhenNonNull();
+        map.from(properties.getMaxIdleTime()).to(builder::maxIdleTime);
+        map.from(properties.getMaxLifeTime()).to(builder::maxLifeTime);
+        map.from(properties.getMaxAcquireTime()).to(builder::maxAcquireTime);
+        map.from(properties.getMaxCreateConnectionTime()).to(builder::maxCreateConnectionTime);
+        map.from(properties.getValidationQuery()).whenHasText().to(builder::validationQuery);
+        return new ConnectionPool(builder.build());
+    }
+
+    @Bean
+    public SmartInitializingSingleton workloadPoolMetrics(ObjectProvider<MeterRegistry> meterRegistry,
+                                                          ObjectProvider<Map<String, ConnectionFactory>> connectionFactories) {
+        return () -> meterRegistry.ifAvailable(registry -> connectionFactories.getObject().values().forEach(connectionFactory -> {
+            WorkloadRoutingConnectionFactory routing = ConnectionPools.routing(connectionFactory);
+            if (routing != null) {
+                routing.getPools().forEach((workload, pool) ->
+                        new ConnectionPoolMetrics(pool, workload.name().toLowerCase(), Tags.empty()).bindTo(registry));
+            }
+        }));
+    }
+}
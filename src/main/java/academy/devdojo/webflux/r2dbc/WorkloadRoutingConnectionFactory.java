@@ -0,0 +1,54 @@
+package academy.devdojo.webflux.r2dbc;
+
+import academy.devdojo.webflux.resilience.Workload;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.r2dbc.connection.lookup.AbstractRoutingConnectionFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Serves each connection from the pool of the {@link Workload} found in the subscriber's context, and from
+ * the {@link Workload#WRITE} pool without one. Unwraps to the unpooled driver factory shared by the pools.
+ */
+public class WorkloadRoutingConnectionFactory extends AbstractRoutingConnectionFactory
+        implements Wrapped<ConnectionFactory>, Disposable {
+
+    private final ConnectionFactory driver;
+    private final Map<Workload, ConnectionPool> pools;
+
+    public WorkloadRoutingConnectionFactory(ConnectionFactory driver, Map<Workload, ConnectionPool> pools) {
+        this.driver = driver;
+        this.pools = Map.copyOf(pools);
+        setTargetConnectionFactories(this.pools);
+        setDefaultTargetConnectionFactory(this.pools.get(Workload.WRITE));
+        afterPropertiesSet();
+    }
+
+    public Map<Workload, ConnectionPool> getPools() {
+        return pools;
+    }
+
+    @Override
+    protected Mono<Object> determineCurrentLookupKey() {
+        return Mono.deferContextual(context -> Mono.justOrEmpty(Workload.of(context)));
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return driver;
+    }
+
+    @Override
+    public void dispose() {
+        pools.values().forEach(ConnectionPool::dispose);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return pools.values().stream().allMatch(ConnectionPool::isDisposed);
+    }
+}
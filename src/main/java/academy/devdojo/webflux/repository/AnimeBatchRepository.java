@@ -0,0 +1,27 @@
+package academy.devdojo.webflux.repository;
+
+import academy.devdojo.webflux.domain.Anime;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+public interface AnimeBatchRepository {
+
+    /**
+     * Inserts every anime with a single multi-row statement and emits them, in the given order,
+     * carrying the id generated by the database. Several animes may share an anime_id.
+     */
+    Flux<Anime> insertAll(List<Anime> animes);
+
+    /**
+     * Renames every anime by id with a single {@code UPDATE ... FROM (VALUES ...)} and emits the rows
+     * that existed and were not deleted, in no particular order. Ids must be distinct.
+     */
+    Flux<Anime> updateNames(List<Anime> animes);
+
+    /**
+     * Soft-deletes every id with a single {@code UPDATE ... WHERE id = ANY(...)}, leaving tombstones, and
+     * emits the rows that existed and were not deleted yet, in no particular order.
+     */
+    Flux<Anime> deleteAllReturning(List<Integer> ids);
+}
@@ -0,0 +1,99 @@
+package academy.devdojo.webflux.repository;
+
+import academy.devdojo.webflux.domain.Anime;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@RequiredArgsConstructor
+public class AnimeBatchRepositoryImpl implements AnimeBatchRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        // RETURNING gives no ordering guarantee and anime_id may repeat, so each row draws its id in a CTE,
+        // evaluated once, and the ids come back with the position of their row
+        StringBuilder sql = new StringBuilder("WITH v (name, anime_id, position) AS (VALUES ");
+        for (int i = 0; i < animes.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:name").append(i).append(", :animeId").append(i).append(", ")
+                    .append(i).append(')');
+        }
+        sql.append("), numbered AS (SELECT nextval(pg_get_serial_sequence('anime', 'id'))::int AS id, name, anime_id,")
+                .append(" position FROM v), inserted AS (INSERT INTO anime (id, name, anime_id)")
+                .append(" SELECT id, name, anime_id FROM numbered RETURNING id)")
+                .append(" SELECT numbered.position, numbered.id FROM numbered JOIN inserted USING (id)");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < animes.size(); i++) {
+            Anime anime = animes.get(i);
+            spec = bind(spec, "name" + i, anime.getName());
+            spec = bind(spec, "animeId" + i, anime.getAnimeId());
+        }
+
+        return spec.map((row, metadata) -> Map.entry(row.get("position", Integer.class), row.get("id", Integer.class)))
+                .all()
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMapIterable(ids -> IntStream.range(0, animes.size())
+                        .mapToObj(position -> animes.get(position).withId(generatedId(ids, position)))
+                        .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Flux<Anime> updateNames(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        StringBuilder sql = new StringBuilder("UPDATE anime AS a SET name = v.name FROM (VALUES ");
+        for (int i = 0; i < animes.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:id").append(i).append(", :name").append(i).append(')');
+        }
+        sql.append(") AS v(id, name) WHERE a.id = v.id AND NOT a.deleted RETURNING a.*");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < animes.size(); i++) {
+            spec = spec.bind("id" + i, animes.get(i).getId());
+            spec = bind(spec, "name" + i, animes.get(i).getName());
+        }
+        return spec.map(AnimeBatchRepositoryImpl::toAnime).all();
+    }
+
+    @Override
+    public Flux<Anime> deleteAllReturning(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql("UPDATE anime SET deleted = true WHERE id = ANY(:ids) AND NOT deleted RETURNING *")
+                .bind("ids", ids.toArray(new Integer[0]))
+                .map(AnimeBatchRepositoryImpl::toAnime)
+                .all();
+    }
+
+    private static Anime toAnime(Row row, RowMetadata metadata) {
+        return new Anime(row.get("name", String.class), row.get("id", Integer.class), row.get("anime_id", String.class),
+                row.get("updated_at", Instant.class), Boolean.TRUE.equals(row.get("deleted", Boolean.class)));
+    }
+
+    private static int generatedId(Map<Integer, Integer> ids, int position) {
+        Integer id = ids.get(position);
+        if (id == null) {
+            throw new IllegalStateException("No generated id returned for the anime at position " + position);
+        }
+        return id;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+}
@@ -0,0 +1,42 @@
+package academy.devdojo.webflux.repository;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface AnimeOutboxRepository extends ReactiveCrudRepository<AnimeOutboxEvent, Long> {
+
+    /**
+     * Leases the oldest events that are not leased, or whose lease expired, for {@code leaseMillis},
+     * skipping rows another relay instance is leasing at the same time. The rows are only locked by this
+     * single statement, so the leased events are published outside any transaction. Rows come back
+     * in no particular order.
+     */
+    @Query("UPDATE anime_outbox SET leased_until = now() + :leaseMillis * interval '1 millisecond' "
+            + "WHERE id IN (SELECT id FROM anime_outbox WHERE leased_until IS NULL OR leased_until < now() "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) RETURNING *")
+    Flux<AnimeOutboxEvent> leaseOldest(int limit, long leaseMillis);
+
+    @Modifying
+    @Query("UPDATE anime_outbox SET leased_until = NULL WHERE id IN (:ids)")
+    Mono<Integer> releaseByIdIn(Collection<Long> ids);
+
+    @Modifying
+    @Query("DELETE FROM anime_outbox WHERE id IN (:ids)")
+    Mono<Integer> deleteByIdIn(Collection<Long> ids);
+
+    /**
+     * Removes up to {@code limit} events older than {@code retentionMillis} that are not leased, returning
+     * how many.
+     */
+    @Modifying
+    @Query("DELETE FROM anime_outbox WHERE id IN (SELECT id FROM anime_outbox"
+            + " WHERE created_at < now() - :retentionMillis * interval '1 millisecond'"
+            + " AND (leased_until IS NULL OR leased_until < now()) ORDER BY id LIMIT :limit)")
+    Mono<Integer> purgeOlderThan(long retentionMillis, int limit);
+}
@@ -1,10 +1,79 @@
 package academy.devdojo.webflux.repository;
 
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer> {
+import java.time.Instant;
 
+/**
+ * Deleted animes stay in the table as tombstones until compacted; every read except
+ * {@link #findChangedAfter} skips them.
+ */
+public interface AnimeRepository extends ReactiveCrudRepository<Anime, Integer>, AnimeBatchRepository {
+
+    @Override
+    @Query("SELECT * FROM anime WHERE NOT deleted")
+    Flux<Anime> findAll();
+
+    @Override
+    @Query("SELECT count(*) FROM anime WHERE NOT deleted")
+    Mono<Long> count();
+
+    @Query("SELECT * FROM anime WHERE id = :id AND NOT deleted")
     Mono<Anime> findById(int id);
+
+    @Query("SELECT * FROM anime WHERE anime_id = :animeId AND NOT deleted LIMIT 1")
+    Mono<Anime> findByAnimeId(String animeId);
+
+    @Query("SELECT count(*) FROM anime WHERE NOT deleted AND left(lower(name), length(:prefix)) = lower(:prefix)")
+    Mono<Long> countByNamePrefix(String prefix);
+
+    /**
+     * Groups by the first {@code length} characters of the name, upper-cased.
+     */
+    @Query("SELECT upper(left(name, :length)) AS key, count(*) AS total FROM anime WHERE NOT deleted GROUP BY 1 ORDER BY 1")
+    Flux<AnimeCount> countGroupedByNamePrefix(int length);
+
+    /**
+     * Most recently created animes first; ids come from a sequence, so they follow creation order.
+     */
+    @Query("SELECT * FROM anime WHERE NOT deleted ORDER BY id DESC LIMIT :limit")
+    Flux<Anime> findRecent(int limit);
+
+    /**
+     * Up to {@code limit} animes with an id greater than {@code after}, in id order: a keyset page that
+     * continues where the previous one ended.
+     */
+    @Query("SELECT * FROM anime WHERE id > :after AND NOT deleted ORDER BY id LIMIT :limit")
+    Flux<Anime> findPageAfter(int after, int limit);
+
+    /**
+     * Turns the anime into a tombstone, returning 1, or 0 when it does not exist or is already deleted.
+     */
+    @Modifying
+    @Query("UPDATE anime SET deleted = true WHERE id = :id AND NOT deleted")
+    Mono<Integer> markDeleted(int id);
+
+    /**
+     * Up to {@code limit} animes, tombstones included, changed after ({@code since}, {@code afterId}) in
+     * (updated_at, id) order. Changes of the last {@code settleMillis} are left out, a transaction that
+     * is still open may yet commit a row stamped within them.
+     */
+    @Query("SELECT * FROM anime WHERE (updated_at, id) > (:since, :afterId)"
+            + " AND updated_at < now() - :settleMillis * interval '1 millisecond'"
+            + " ORDER BY updated_at, id LIMIT :limit")
+    Flux<Anime> findChangedAfter(Instant since, int afterId, long settleMillis, int limit);
+
+    /**
+     * Removes up to {@code limit} tombstones older than {@code retentionMillis}, returning how many.
+     */
+    @Modifying
+    @Query("DELETE FROM anime WHERE id IN (SELECT id FROM anime WHERE deleted"
+            + " AND updated_at < now() - :retentionMillis * interval '1 millisecond' LIMIT :limit)")
+    Mono<Integer> purgeTombstones(long retentionMillis, int limit);
 }
@@ -0,0 +1,104 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.sql.PreparedStatement;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+
+/**
+ * JDBC {@link AnimeOutboxRepository}, so that in jdbc mode the outbox rows are written in the same
+ * transaction as the anime changes they record.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "jdbc")
+public class JdbcAnimeOutboxRepository extends JdbcCrudRepository<AnimeOutboxEvent, Long>
+        implements AnimeOutboxRepository {
+
+    private static final RowMapper<AnimeOutboxEvent> OUTBOX_ROW_MAPPER =
+            (rs, rowNum) -> new AnimeOutboxEvent(rs.getLong("id"), rs.getInt("aggregate_id"),
+                    AnimeEventType.valueOf(rs.getString("event_type")), rs.getString("payload"),
+                    rs.getObject("created_at", OffsetDateTime.class).toInstant());
+
+    public JdbcAnimeOutboxRepository(JdbcTemplate jdbcTemplate, @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        super(jdbcTemplate, jdbcScheduler, "anime_outbox", OUTBOX_ROW_MAPPER);
+    }
+
+    @Override
+    public Flux<AnimeOutboxEvent> leaseOldest(int limit, long leaseMillis) {
+        return query("UPDATE anime_outbox SET leased_until = now() + ? * interval '1 millisecond'"
+                + " WHERE id IN (SELECT id FROM anime_outbox WHERE leased_until IS NULL OR leased_until < now()"
+                + " ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING *", leaseMillis, limit);
+    }
+
+    @Override
+    public Mono<Integer> releaseByIdIn(Collection<Long> ids) {
+        return updateByIdIn("UPDATE anime_outbox SET leased_until = NULL WHERE id = ANY(?)", ids);
+    }
+
+    @Override
+    public Mono<Integer> deleteByIdIn(Collection<Long> ids) {
+        return updateByIdIn("DELETE FROM anime_outbox WHERE id = ANY(?)", ids);
+    }
+
+    @Override
+    public Mono<Integer> purgeOlderThan(long retentionMillis, int limit) {
+        return call(() -> jdbcTemplate.update("DELETE FROM anime_outbox WHERE id IN (SELECT id FROM anime_outbox"
+                + " WHERE created_at < now() - ? * interval '1 millisecond'"
+                + " AND (leased_until IS NULL OR leased_until < now()) ORDER BY id LIMIT ?)", retentionMillis, limit));
+    }
+
+    private Mono<Integer> updateByIdIn(String sql, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return call(() -> jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("bigint", ids.toArray()));
+            return statement;
+        }));
+    }
+
+    @Override
+    protected Long idOf(AnimeOutboxEvent event) {
+        return event.getId();
+    }
+
+    @Override
+    protected boolean isNew(AnimeOutboxEvent event) {
+        return event.getId() == null;
+    }
+
+    @Override
+    protected AnimeOutboxEvent insert(AnimeOutboxEvent event) {
+        Long id = jdbcTemplate.queryForObject(
+                "INSERT INTO anime_outbox (aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?) RETURNING id",
+                Long.class, event.getAggregateId(), event.getEventType().name(), event.getPayload(), createdAt(event));
+        event.setId(id);
+        return event;
+    }
+
+    @Override
+    protected int update(AnimeOutboxEvent event) {
+        return jdbcTemplate.update(
+                "UPDATE anime_outbox SET aggregate_id = ?, event_type = ?, payload = ?, created_at = ? WHERE id = ?",
+                event.getAggregateId(), event.getEventType().name(), event.getPayload(), createdAt(event), event.getId());
+    }
+
+    private static OffsetDateTime createdAt(AnimeOutboxEvent event) {
+        return event.getCreatedAt() == null ? OffsetDateTime.now(ZoneOffset.UTC) : event.getCreatedAt().atOffset(ZoneOffset.UTC);
+    }
+}
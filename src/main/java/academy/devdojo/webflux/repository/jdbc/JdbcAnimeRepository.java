@@ -0,0 +1,192 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.sql.PreparedStatement;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+@Primary
+@Repository
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "jdbc")
+public class JdbcAnimeRepository extends JdbcCrudRepository<Anime, Integer> implements AnimeRepository {
+
+    private static final RowMapper<Anime> ANIME_ROW_MAPPER =
+            (rs, rowNum) -> new Anime(rs.getString("name"), rs.getInt("id"), rs.getString("anime_id"),
+                    rs.getObject("updated_at", OffsetDateTime.class).toInstant(), rs.getBoolean("deleted"));
+
+    public JdbcAnimeRepository(JdbcTemplate jdbcTemplate, @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        super(jdbcTemplate, jdbcScheduler, "anime", ANIME_ROW_MAPPER);
+    }
+
+    @Override
+    public Flux<Anime> findAll() {
+        return query("SELECT * FROM anime WHERE NOT deleted");
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return call(() -> jdbcTemplate.queryForObject("SELECT count(*) FROM anime WHERE NOT deleted", Long.class));
+    }
+
+    @Override
+    public Mono<Anime> findById(int id) {
+        return queryOne("SELECT * FROM anime WHERE id = ? AND NOT deleted", id);
+    }
+
+    @Override
+    public Mono<Anime> findByAnimeId(String animeId) {
+        return queryOne("SELECT * FROM anime WHERE anime_id = ? AND NOT deleted LIMIT 1", animeId);
+    }
+
+    @Override
+    public Mono<Long> countByNamePrefix(String prefix) {
+        return call(() -> jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM anime WHERE NOT deleted AND left(lower(name), length(?)) = lower(?)", Long.class, prefix, prefix));
+    }
+
+    @Override
+    public Flux<AnimeCount> countGroupedByNamePrefix(int length) {
+        return call(() -> jdbcTemplate.query(
+                "SELECT upper(left(name, ?)) AS key, count(*) AS total FROM anime WHERE NOT deleted GROUP BY 1 ORDER BY 1",
+                (rs, rowNum) -> new AnimeCount(rs.getString("key"), rs.getLong("total")), length))
+                .flatMapIterable(counts -> counts);
+    }
+
+    @Override
+    public Flux<Anime> findRecent(int limit) {
+        return query("SELECT * FROM anime WHERE NOT deleted ORDER BY id DESC LIMIT ?", limit);
+    }
+
+    @Override
+    public Flux<Anime> findPageAfter(int after, int limit) {
+        return query("SELECT * FROM anime WHERE id > ? AND NOT deleted ORDER BY id LIMIT ?", after, limit);
+    }
+
+    @Override
+    public Mono<Integer> markDeleted(int id) {
+        return call(() -> jdbcTemplate.update("UPDATE anime SET deleted = true WHERE id = ? AND NOT deleted", id));
+    }
+
+    @Override
+    public Flux<Anime> findChangedAfter(Instant since, int afterId, long settleMillis, int limit) {
+        return query("SELECT * FROM anime WHERE (updated_at, id) > (?, ?)"
+                        + " AND updated_at < now() - ? * interval '1 millisecond'"
+                        + " ORDER BY updated_at, id LIMIT ?",
+                since.atOffset(ZoneOffset.UTC), afterId, settleMillis, limit);
+    }
+
+    @Override
+    public Mono<Integer> purgeTombstones(long retentionMillis, int limit) {
+        return call(() -> jdbcTemplate.update("DELETE FROM anime WHERE id IN (SELECT id FROM anime WHERE deleted"
+                + " AND updated_at < now() - ? * interval '1 millisecond' LIMIT ?)", retentionMillis, limit));
+    }
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Object> args = new ArrayList<>(animes.size() * 2);
+        animes.forEach(anime -> {
+            args.add(anime.getName());
+            args.add(anime.getAnimeId());
+        });
+        String sql = "WITH v (name, anime_id, position) AS (VALUES "
+                + IntStream.range(0, animes.size())
+                .mapToObj(position -> "(?::varchar, ?::varchar, " + position + ")")
+                .collect(Collectors.joining(", "))
+                + "), numbered AS (SELECT nextval(pg_get_serial_sequence('anime', 'id'))::int AS id, name, anime_id,"
+                + " position FROM v), inserted AS (INSERT INTO anime (id, name, anime_id)"
+                + " SELECT id, name, anime_id FROM numbered RETURNING id)"
+                + " SELECT numbered.position, numbered.id FROM numbered JOIN inserted USING (id)";
+
+        // same as the R2DBC fragment: RETURNING order is not guaranteed and anime_id may repeat, ids are
+        // matched through the position of their row
+        return call(() -> {
+            Map<Integer, Integer> ids = new HashMap<>();
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> ids.put(rs.getInt("position"), rs.getInt("id")), args.toArray());
+            return IntStream.range(0, animes.size())
+                    .mapToObj(position -> animes.get(position).withId(generatedId(ids, position)))
+                    .collect(Collectors.toList());
+        }).flatMapIterable(saved -> saved);
+    }
+
+    @Override
+    public Flux<Anime> updateNames(List<Anime> animes) {
+        if (animes.isEmpty()) {
+            return Flux.empty();
+        }
+        List<Object> args = new ArrayList<>(animes.size() * 2);
+        animes.forEach(anime -> {
+            args.add(anime.getId());
+            args.add(anime.getName());
+        });
+        return query("UPDATE anime AS a SET name = v.name FROM (VALUES "
+                + String.join(", ", Collections.nCopies(animes.size(), "(?::integer, ?)"))
+                + ") AS v(id, name) WHERE a.id = v.id AND NOT a.deleted RETURNING a.*", args.toArray());
+    }
+
+    @Override
+    public Flux<Anime> deleteAllReturning(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return call(() -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("UPDATE anime SET deleted = true WHERE id = ANY(?) AND NOT deleted RETURNING *");
+            statement.setArray(1, connection.createArrayOf("integer", ids.toArray()));
+            return statement;
+        }, ANIME_ROW_MAPPER)).flatMapIterable(deleted -> deleted);
+    }
+
+    @Override
+    protected Integer idOf(Anime anime) {
+        return anime.getId();
+    }
+
+    @Override
+    protected boolean isNew(Anime anime) {
+        return anime.getId() == 0;
+    }
+
+    @Override
+    protected Anime insert(Anime anime) {
+        Integer id = jdbcTemplate.queryForObject("INSERT INTO anime (name, anime_id) VALUES (?, ?) RETURNING id",
+                Integer.class, anime.getName(), anime.getAnimeId());
+        return anime.withId(id);
+    }
+
+    @Override
+    protected int update(Anime anime) {
+        return jdbcTemplate.update("UPDATE anime SET name = ?, anime_id = ? WHERE id = ?",
+                anime.getName(), anime.getAnimeId(), anime.getId());
+    }
+
+    private static int generatedId(Map<Integer, Integer> ids, int position) {
+        Integer id = ids.get(position);
+        if (id == null) {
+            throw new IllegalStateException("No generated id returned for the anime at position " + position);
+        }
+        return id;
+    }
+}
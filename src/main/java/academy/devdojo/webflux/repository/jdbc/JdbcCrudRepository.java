@@ -0,0 +1,182 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import org.reactivestreams.Publisher;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link ReactiveCrudRepository} over blocking {@link JdbcTemplate} calls.
+ * <p>
+ * Every statement runs as one task on the given {@link Scheduler} (virtual threads where available),
+ * so the event loop never blocks and callers keep the reactive API. Statements join the current
+ * {@link JdbcTransactionManager} transaction and auto-commit outside one. Result sets are read
+ * completely before they are emitted.
+ */
+abstract class JdbcCrudRepository<T, ID> implements ReactiveCrudRepository<T, ID> {
+
+    protected final JdbcTemplate jdbcTemplate;
+    private final Scheduler scheduler;
+    private final String table;
+    private final RowMapper<T> rowMapper;
+
+    protected JdbcCrudRepository(JdbcTemplate jdbcTemplate, Scheduler scheduler, String table, RowMapper<T> rowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.scheduler = scheduler;
+        this.table = table;
+        this.rowMapper = rowMapper;
+    }
+
+    protected abstract ID idOf(T entity);
+
+    protected abstract boolean isNew(T entity);
+
+    /**
+     * Inserts the entity and returns it with its generated id.
+     */
+    protected abstract T insert(T entity);
+
+    /**
+     * Updates the entity by id and returns the number of affected rows.
+     */
+    protected abstract int update(T entity);
+
+    protected <R> Mono<R> call(Callable<R> statement) {
+        return JdbcTransactionManager.call(jdbcTemplate.getDataSource(), scheduler, statement);
+    }
+
+    protected Flux<T> query(String sql, Object... args) {
+        return call(() -> jdbcTemplate.query(sql, rowMapper, args)).flatMapIterable(rows -> rows);
+    }
+
+    protected Mono<T> queryOne(String sql, Object... args) {
+        return query(sql, args).next();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends T> Mono<S> save(S entity) {
+        if (isNew(entity)) {
+            return call(() -> (S) insert(entity));
+        }
+        return call(() -> {
+            if (update(entity) == 0) {
+                throw new TransientDataAccessResourceException(String.format(
+                        "Failed to update table [%s]. Row with Id [%s] does not exist.", table, idOf(entity)));
+            }
+            return entity;
+        });
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<T> findById(ID id) {
+        return queryOne("SELECT * FROM " + table + " WHERE id = ?", id);
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(ID id) {
+        return call(() -> !jdbcTemplate.queryForList("SELECT 1 FROM " + table + " WHERE id = ?", Integer.class, id).isEmpty());
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return query("SELECT * FROM " + table);
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<ID> ids) {
+        return findAllById(Flux.fromIterable(ids));
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<ID> idStream) {
+        return Flux.from(idStream)
+                .collectList()
+                .flatMapMany(ids -> ids.isEmpty()
+                        ? Flux.empty()
+                        : query("SELECT * FROM " + table + " WHERE id IN (" + placeholders(ids.size()) + ")", ids.toArray()));
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return call(() -> jdbcTemplate.queryForObject("SELECT count(*) FROM " + table, Long.class));
+    }
+
+    @Override
+    public Mono<Void> deleteById(ID id) {
+        return call(() -> jdbcTemplate.update("DELETE FROM " + table + " WHERE id = ?", id)).then();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return deleteById(idOf(entity));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends ID> ids) {
+        List<Object[]> batchArgs = StreamSupport.stream(ids.spliterator(), false)
+                .map(id -> new Object[]{id})
+                .collect(Collectors.toList());
+        if (batchArgs.isEmpty()) {
+            return Mono.empty();
+        }
+        return call(() -> jdbcTemplate.batchUpdate("DELETE FROM " + table + " WHERE id = ?", batchArgs)).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return deleteAll(Flux.fromIterable(entities));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return Flux.from(entityStream)
+                .map(this::idOf)
+                .collectList()
+                .flatMap(this::deleteAllById);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return call(() -> jdbcTemplate.update("DELETE FROM " + table)).then();
+    }
+
+    protected static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,52 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import academy.devdojo.webflux.repository.DevDojoUserRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+@Primary
+@Repository
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "jdbc")
+public class JdbcDevDojoUserRepository extends JdbcCrudRepository<DevDojoUser, Integer> implements DevDojoUserRepository {
+
+    public JdbcDevDojoUserRepository(JdbcTemplate jdbcTemplate, @Qualifier("jdbcScheduler") Scheduler jdbcScheduler) {
+        super(jdbcTemplate, jdbcScheduler, "devdojo_user", (rs, rowNum) -> new DevDojoUser(rs.getInt("id"),
+                rs.getString("name"), rs.getString("username"), rs.getString("password"), rs.getString("authorities")));
+    }
+
+    @Override
+    public Mono<DevDojoUser> findByUsername(String username) {
+        return queryOne("SELECT * FROM devdojo_user WHERE username = ?", username);
+    }
+
+    @Override
+    protected Integer idOf(DevDojoUser user) {
+        return user.getId();
+    }
+
+    @Override
+    protected boolean isNew(DevDojoUser user) {
+        return user.getId() == null || user.getId() == 0;
+    }
+
+    @Override
+    protected DevDojoUser insert(DevDojoUser user) {
+        Integer id = jdbcTemplate.queryForObject(
+                "INSERT INTO devdojo_user (name, username, password, authorities) VALUES (?, ?, ?, ?) RETURNING id",
+                Integer.class, user.getName(), user.getUsername(), user.getPassword(), user.getAuthorities());
+        user.setId(id);
+        return user;
+    }
+
+    @Override
+    protected int update(DevDojoUser user) {
+        return jdbcTemplate.update("UPDATE devdojo_user SET name = ?, username = ?, password = ?, authorities = ? WHERE id = ?",
+                user.getName(), user.getUsername(), user.getPassword(), user.getAuthorities(), user.getId());
+    }
+}
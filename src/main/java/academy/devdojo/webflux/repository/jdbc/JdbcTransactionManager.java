@@ -0,0 +1,215 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import org.springframework.jdbc.datasource.ConnectionHolder;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.reactive.AbstractReactiveTransactionManager;
+import org.springframework.transaction.reactive.GenericReactiveTransaction;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import org.springframework.transaction.support.SmartTransactionObject;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reactive transactions over a JDBC {@link DataSource}, so the {@code TransactionalOperator} used by the
+ * services spans the statements of {@link JdbcCrudRepository} as it spans R2DBC ones.
+ * <p>
+ * A transaction holds one connection with auto-commit off, bound to the Reactor transaction context
+ * rather than to a thread. Each statement runs on the JDBC scheduler with that connection bound to its
+ * worker thread for the duration of the statement, where {@code JdbcTemplate} picks it up as it would
+ * inside a {@code DataSourceTransactionManager} transaction. Begin, commit, rollback and release also
+ * run on the scheduler. Nested calls join the current transaction; suspending it is not supported.
+ * <p>
+ * A cancelled statement may still be running on its worker when the transaction completes, as when an
+ * error cancels the statements of a batch still in flight. Statements, commit and rollback therefore
+ * take turns on the connection, and statements that get it after completion fail instead of running
+ * outside the transaction.
+ */
+public class JdbcTransactionManager extends AbstractReactiveTransactionManager {
+
+    private final DataSource dataSource;
+    private final Scheduler scheduler;
+
+    public JdbcTransactionManager(DataSource dataSource, Scheduler scheduler) {
+        this.dataSource = dataSource;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs {@code statement} on {@code scheduler}, inside the current transaction on {@code dataSource}
+     * when there is one, otherwise in auto-commit mode.
+     */
+    static <R> Mono<R> call(DataSource dataSource, Scheduler scheduler, Callable<R> statement) {
+        return currentConnection(dataSource)
+                .map(holder -> (Callable<R>) () -> callWith(dataSource, holder, statement))
+                .defaultIfEmpty(statement)
+                .flatMap(callable -> Mono.fromCallable(callable).subscribeOn(scheduler));
+    }
+
+    private static Mono<TransactionConnectionHolder> currentConnection(DataSource dataSource) {
+        if (dataSource == null) {
+            return Mono.empty();
+        }
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .flatMap(synchronizationManager -> Mono.justOrEmpty(
+                        (TransactionConnectionHolder) synchronizationManager.getResource(dataSource)))
+                .onErrorResume(NoTransactionException.class, error -> Mono.empty());
+    }
+
+    private static <R> R callWith(DataSource dataSource, TransactionConnectionHolder holder, Callable<R> statement)
+            throws Exception {
+        holder.lock.lock();
+        try {
+            if (holder.completed) {
+                throw new IllegalTransactionStateException("JDBC transaction already completed");
+            }
+            org.springframework.transaction.support.TransactionSynchronizationManager.bindResource(dataSource, holder);
+            try {
+                return statement.call();
+            } finally {
+                org.springframework.transaction.support.TransactionSynchronizationManager.unbindResource(dataSource);
+            }
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    @Override
+    protected Object doGetTransaction(TransactionSynchronizationManager synchronizationManager) {
+        JdbcTransaction transaction = new JdbcTransaction();
+        transaction.holder = (TransactionConnectionHolder) synchronizationManager.getResource(dataSource);
+        return transaction;
+    }
+
+    @Override
+    protected boolean isExistingTransaction(Object transaction) {
+        return ((JdbcTransaction) transaction).holder != null;
+    }
+
+    @Override
+    protected Mono<Void> doBegin(TransactionSynchronizationManager synchronizationManager, Object transaction,
+                                 TransactionDefinition definition) {
+        JdbcTransaction jdbcTransaction = (JdbcTransaction) transaction;
+        return Mono.fromCallable(() -> {
+                    Connection connection = dataSource.getConnection();
+                    try {
+                        jdbcTransaction.previousIsolationLevel =
+                                DataSourceUtils.prepareConnectionForTransaction(connection, definition);
+                        jdbcTransaction.readOnly = definition.isReadOnly();
+                        connection.setAutoCommit(false);
+                        return connection;
+                    } catch (SQLException | RuntimeException exception) {
+                        connection.close();
+                        throw exception;
+                    }
+                })
+                .subscribeOn(scheduler)
+                .onErrorMap(SQLException.class, exception ->
+                        new CannotCreateTransactionException("Could not open JDBC connection for transaction", exception))
+                .doOnNext(connection -> {
+                    jdbcTransaction.holder = new TransactionConnectionHolder(connection);
+                    synchronizationManager.bindResource(dataSource, jdbcTransaction.holder);
+                })
+                .then();
+    }
+
+    @Override
+    protected Mono<Void> doCommit(TransactionSynchronizationManager synchronizationManager,
+                                  GenericReactiveTransaction status) {
+        TransactionConnectionHolder holder = ((JdbcTransaction) status.getTransaction()).holder;
+        return Mono.<Void>fromRunnable(() -> holder.complete(Connection::commit, "Could not commit JDBC transaction"))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    protected Mono<Void> doRollback(TransactionSynchronizationManager synchronizationManager,
+                                    GenericReactiveTransaction status) {
+        TransactionConnectionHolder holder = ((JdbcTransaction) status.getTransaction()).holder;
+        return Mono.<Void>fromRunnable(() -> holder.complete(Connection::rollback, "Could not roll back JDBC transaction"))
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    protected Mono<Void> doSetRollbackOnly(TransactionSynchronizationManager synchronizationManager,
+                                           GenericReactiveTransaction status) {
+        return Mono.fromRunnable(() -> ((JdbcTransaction) status.getTransaction()).holder.setRollbackOnly());
+    }
+
+    @Override
+    protected Mono<Void> doCleanupAfterCompletion(TransactionSynchronizationManager synchronizationManager,
+                                                  Object transaction) {
+        JdbcTransaction jdbcTransaction = (JdbcTransaction) transaction;
+        synchronizationManager.unbindResource(dataSource);
+        TransactionConnectionHolder holder = jdbcTransaction.holder;
+        Connection connection = holder.getConnection();
+        holder.clear();
+        return Mono.<Void>fromRunnable(() -> {
+                    holder.lock.lock();
+                    try {
+                        holder.completed = true;
+                        connection.setAutoCommit(true);
+                        DataSourceUtils.resetConnectionAfterTransaction(connection,
+                                jdbcTransaction.previousIsolationLevel, jdbcTransaction.readOnly);
+                    } catch (SQLException exception) {
+                        logger.debug("Could not reset JDBC connection after transaction", exception);
+                    } finally {
+                        holder.lock.unlock();
+                        DataSourceUtils.releaseConnection(connection, null);
+                    }
+                })
+                .subscribeOn(scheduler);
+    }
+
+    private static class TransactionConnectionHolder extends ConnectionHolder {
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean completed;
+
+        private TransactionConnectionHolder(Connection connection) {
+            super(connection);
+        }
+
+        /**
+         * Commits or rolls back once no statement is running, turning away the statements that come after.
+         */
+        private void complete(ConnectionAction action, String failure) {
+            lock.lock();
+            try {
+                completed = true;
+                action.apply(getConnection());
+            } catch (SQLException exception) {
+                throw new TransactionSystemException(failure, exception);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private interface ConnectionAction {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static class JdbcTransaction implements SmartTransactionObject {
+        private TransactionConnectionHolder holder;
+        private Integer previousIsolationLevel;
+        private boolean readOnly;
+
+        @Override
+        public boolean isRollbackOnly() {
+            return holder.isRollbackOnly();
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
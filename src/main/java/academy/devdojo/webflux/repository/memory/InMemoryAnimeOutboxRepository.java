@@ -0,0 +1,162 @@
+package academy.devdojo.webflux.repository.memory;
+
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AnimeOutboxRepository} held in memory. A single node relays its own events, so leases only
+ * keep track of the batch in flight. As with the table, events not relayed are kept until
+ * {@link academy.devdojo.webflux.outbox.AnimeOutboxPurger} removes them.
+ */
+@Primary
+@Repository
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "memory")
+public class InMemoryAnimeOutboxRepository extends InMemoryCrudRepository<AnimeOutboxEvent, Long>
+        implements AnimeOutboxRepository {
+
+    private final ConcurrentSkipListMap<Long, AnimeOutboxEvent> events = new ConcurrentSkipListMap<>();
+    // guarded by the write lock
+    private long lastId;
+    // deadlines in System.nanoTime, guarded by itself
+    private final Map<Long, Long> leases = new HashMap<>();
+
+    public InMemoryAnimeOutboxRepository(@Value("${devdojo.repository.memory.read-only:false}") boolean readOnly) {
+        super("anime_outbox", readOnly);
+    }
+
+    @Override
+    public Flux<AnimeOutboxEvent> leaseOldest(int limit, long leaseMillis) {
+        return Flux.defer(() -> {
+            long now = System.nanoTime();
+            List<AnimeOutboxEvent> leased = new ArrayList<>();
+            synchronized (leases) {
+                for (AnimeOutboxEvent event : events.values()) {
+                    if (leased.size() == limit) {
+                        break;
+                    }
+                    Long leasedUntil = leases.get(event.getId());
+                    if (leasedUntil == null || leasedUntil - now < 0) {
+                        leases.put(event.getId(), now + TimeUnit.MILLISECONDS.toNanos(leaseMillis));
+                        leased.add(copy(event));
+                    }
+                }
+            }
+            return Flux.fromIterable(leased);
+        });
+    }
+
+    @Override
+    public Mono<Integer> releaseByIdIn(Collection<Long> ids) {
+        return Mono.fromSupplier(() -> {
+            int released = 0;
+            synchronized (leases) {
+                for (Long id : ids) {
+                    if (leases.remove(id) != null) {
+                        released++;
+                    }
+                }
+            }
+            return released;
+        });
+    }
+
+    @Override
+    public Mono<Integer> deleteByIdIn(Collection<Long> ids) {
+        return write(undo -> {
+            int deleted = 0;
+            for (Long id : ids) {
+                if (replace(id, null, undo) != null) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public Mono<Integer> purgeOlderThan(long retentionMillis, int limit) {
+        return write(undo -> {
+            Instant purgeBefore = Instant.now().minusMillis(retentionMillis);
+            long now = System.nanoTime();
+            List<Long> expired = new ArrayList<>();
+            synchronized (leases) {
+                for (AnimeOutboxEvent event : events.values()) {
+                    if (expired.size() == limit) {
+                        break;
+                    }
+                    Long leasedUntil = leases.get(event.getId());
+                    if (event.getCreatedAt().isBefore(purgeBefore) && (leasedUntil == null || leasedUntil - now < 0)) {
+                        expired.add(event.getId());
+                    }
+                }
+            }
+            expired.forEach(id -> replace(id, null, undo));
+            return expired.size();
+        });
+    }
+
+    @Override
+    protected Long idOf(AnimeOutboxEvent event) {
+        return event.getId();
+    }
+
+    @Override
+    protected boolean isNew(AnimeOutboxEvent event) {
+        return event.getId() == null;
+    }
+
+    @Override
+    protected AnimeOutboxEvent get(Long id) {
+        return events.get(id);
+    }
+
+    @Override
+    protected Iterable<AnimeOutboxEvent> all() {
+        return events.values();
+    }
+
+    @Override
+    protected long size() {
+        return events.size();
+    }
+
+    @Override
+    protected AnimeOutboxEvent insert(AnimeOutboxEvent event) {
+        AnimeOutboxEvent inserted = copy(event);
+        inserted.setId(++lastId);
+        events.put(inserted.getId(), inserted);
+        return inserted;
+    }
+
+    @Override
+    protected AnimeOutboxEvent put(Long id, AnimeOutboxEvent event) {
+        if (event == null) {
+            synchronized (leases) {
+                leases.remove(id);
+            }
+            return events.remove(id);
+        }
+        return events.put(id, event);
+    }
+
+    @Override
+    protected AnimeOutboxEvent copy(AnimeOutboxEvent event) {
+        return new AnimeOutboxEvent(event.getId(), event.getAggregateId(), event.getEventType(), event.getPayload(),
+                event.getCreatedAt());
+    }
+}
@@ -0,0 +1,380 @@
+package academy.devdojo.webflux.repository.memory;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * {@link AnimeRepository} held in memory, for tests, demos and read-only edge nodes.
+ * <p>
+ * Animes are stored by id in an {@link IntKeyedTable}, with secondary indexes on {@code anime_id} and on
+ * (updated_at, id) for {@link #findChangedAfter}. Deletes leave tombstones, like the table does. With
+ * {@code devdojo.repository.memory.snapshot} the catalog is loaded at startup from an NDJSON file in the
+ * format of {@code GET /animes/export?format=ndjson}, gzip-compressed when the name ends in {@code .gz}.
+ */
+@Log4j2
+@Primary
+@Repository
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "memory")
+public class InMemoryAnimeRepository extends InMemoryCrudRepository<Anime, Integer> implements AnimeRepository {
+
+    private final ObjectMapper objectMapper;
+    private final Path snapshot;
+    private final IntKeyedTable<Anime> rows = new IntKeyedTable<>();
+    private final Map<String, Integer> idsByAnimeId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Change> changes = new ConcurrentSkipListSet<>();
+    private volatile int live;
+    // guarded by the write lock
+    private int lastId;
+    private long lastStampMicros;
+
+    public InMemoryAnimeRepository(ObjectMapper objectMapper,
+                                   @Value("${devdojo.repository.memory.read-only:false}") boolean readOnly,
+                                   @Value("${devdojo.repository.memory.snapshot:}") String snapshot) {
+        super("anime", readOnly);
+        this.objectMapper = objectMapper;
+        this.snapshot = snapshot.isEmpty() ? null : Path.of(snapshot);
+    }
+
+    @PostConstruct
+    public void loadSnapshot() {
+        if (snapshot != null) {
+            int loaded = load(snapshot);
+            log.info("{} animes carregados do snapshot {}", loaded, snapshot);
+        }
+    }
+
+    /**
+     * Adds every anime of an NDJSON file, keeping its id; read-only mode does not apply.
+     */
+    public synchronized int load(Path file) {
+        int loaded = 0;
+        try (InputStream input = open(file);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                Anime anime = objectMapper.readValue(line, Anime.class);
+                put(anime.getId(), new Anime(anime.getName(), anime.getId(), anime.getAnimeId(), stamp(), false));
+                loaded++;
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not load animes from " + file, exception);
+        }
+        return loaded;
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        InputStream input = Files.newInputStream(file);
+        return file.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(input) : input;
+    }
+
+    @Override
+    public Flux<Anime> findAll() {
+        return liveAfter(0).map(this::copy);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(() -> (long) live);
+    }
+
+    @Override
+    public Mono<Anime> findById(int id) {
+        return Mono.fromSupplier(() -> {
+            Anime anime = rows.get(id);
+            return anime == null || anime.isDeleted() ? null : copy(anime);
+        });
+    }
+
+    @Override
+    public Mono<Anime> findByAnimeId(String animeId) {
+        return Mono.fromSupplier(() -> {
+            Integer id = idsByAnimeId.get(animeId);
+            Anime anime = id == null ? null : rows.get(id);
+            return anime == null || anime.isDeleted() || !animeId.equals(anime.getAnimeId()) ? null : copy(anime);
+        });
+    }
+
+    @Override
+    public Mono<Long> countByNamePrefix(String prefix) {
+        String lowerPrefix = prefix.toLowerCase(Locale.ROOT);
+        return liveAfter(0)
+                .filter(anime -> anime.getName().toLowerCase(Locale.ROOT).startsWith(lowerPrefix))
+                .count();
+    }
+
+    @Override
+    public Flux<AnimeCount> countGroupedByNamePrefix(int length) {
+        return Flux.defer(() -> {
+            TreeMap<String, Long> counts = new TreeMap<>();
+            for (Anime anime : rows.ascendingAfter(0)) {
+                if (!anime.isDeleted()) {
+                    String name = anime.getName();
+                    counts.merge(name.substring(0, Math.min(length, name.length())).toUpperCase(Locale.ROOT), 1L, Long::sum);
+                }
+            }
+            return Flux.fromIterable(counts.entrySet())
+                    .map(count -> new AnimeCount(count.getKey(), count.getValue()));
+        });
+    }
+
+    @Override
+    public Flux<Anime> findRecent(int limit) {
+        return Flux.defer(() -> Flux.fromIterable(rows.descendingBefore(Integer.MAX_VALUE)))
+                .filter(anime -> !anime.isDeleted())
+                .take(limit)
+                .map(this::copy);
+    }
+
+    @Override
+    public Flux<Anime> findPageAfter(int after, int limit) {
+        return liveAfter(after).take(limit).map(this::copy);
+    }
+
+    // the stored animes, callers copy what they emit
+    private Flux<Anime> liveAfter(int after) {
+        return Flux.defer(() -> Flux.fromIterable(rows.ascendingAfter(after)))
+                .filter(anime -> !anime.isDeleted());
+    }
+
+    @Override
+    public Mono<Integer> markDeleted(int id) {
+        return write(undo -> {
+            Anime anime = rows.get(id);
+            if (anime == null || anime.isDeleted()) {
+                return 0;
+            }
+            replace(id, tombstone(anime), undo);
+            return 1;
+        });
+    }
+
+    @Override
+    public Flux<Anime> findChangedAfter(Instant since, int afterId, long settleMillis, int limit) {
+        return Flux.defer(() -> {
+            long settledBefore = nowMicros() - settleMillis * 1000;
+            return Flux.fromIterable(changes.tailSet(new Change(micros(since), afterId), false))
+                    .takeWhile(change -> change.micros < settledBefore)
+                    .<Anime>handle((change, sink) -> {
+                        // skips a change superseded since the iteration started
+                        Anime anime = rows.get(change.id);
+                        if (anime != null && micros(anime.getUpdatedAt()) == change.micros) {
+                            sink.next(copy(anime));
+                        }
+                    })
+                    .take(limit);
+        });
+    }
+
+    // maintenance, so it also runs on a read-only replica
+    @Override
+    public Mono<Integer> purgeTombstones(long retentionMillis, int limit) {
+        return Mono.fromSupplier(() -> {
+            long purgeBefore = nowMicros() - retentionMillis * 1000;
+            int purged = 0;
+            synchronized (this) {
+                for (Change change : changes) {
+                    if (change.micros >= purgeBefore || purged == limit) {
+                        break;
+                    }
+                    Anime anime = rows.get(change.id);
+                    if (anime != null && anime.isDeleted()) {
+                        put(change.id, null);
+                        purged++;
+                    }
+                }
+            }
+            return purged;
+        });
+    }
+
+    @Override
+    public Flux<Anime> insertAll(List<Anime> animes) {
+        return write(undo -> {
+            List<Anime> saved = new ArrayList<>(animes.size());
+            for (Anime anime : animes) {
+                Anime inserted = insert(anime);
+                undo.add(() -> put(inserted.getId(), null));
+                saved.add(copy(inserted));
+            }
+            return saved;
+        }).flatMapIterable(saved -> saved);
+    }
+
+    @Override
+    public Flux<Anime> updateNames(List<Anime> animes) {
+        return write(undo -> {
+            List<Anime> updated = new ArrayList<>(animes.size());
+            for (Anime rename : animes) {
+                Anime anime = rows.get(rename.getId());
+                if (anime != null && !anime.isDeleted()) {
+                    Anime renamed = new Anime(rename.getName(), anime.getId(), anime.getAnimeId(), stamp(), false);
+                    replace(anime.getId(), renamed, undo);
+                    updated.add(copy(renamed));
+                }
+            }
+            return updated;
+        }).flatMapIterable(updated -> updated);
+    }
+
+    @Override
+    public Flux<Anime> deleteAllReturning(List<Integer> ids) {
+        return write(undo -> {
+            List<Anime> deleted = new ArrayList<>(ids.size());
+            for (int id : ids) {
+                Anime anime = rows.get(id);
+                if (anime != null && !anime.isDeleted()) {
+                    Anime tombstone = tombstone(anime);
+                    replace(id, tombstone, undo);
+                    deleted.add(copy(tombstone));
+                }
+            }
+            return deleted;
+        }).flatMapIterable(deleted -> deleted);
+    }
+
+    @Override
+    protected Integer idOf(Anime anime) {
+        return anime.getId();
+    }
+
+    @Override
+    protected boolean isNew(Anime anime) {
+        return anime.getId() == 0;
+    }
+
+    @Override
+    protected Anime get(Integer id) {
+        return rows.get(id);
+    }
+
+    @Override
+    protected Iterable<Anime> all() {
+        return rows.ascendingAfter(0);
+    }
+
+    @Override
+    protected long size() {
+        return rows.size();
+    }
+
+    @Override
+    protected Anime insert(Anime anime) {
+        lastId = Math.max(lastId, rows.maxKey()) + 1;
+        Anime inserted = new Anime(anime.getName(), lastId, anime.getAnimeId(), stamp(), false);
+        put(lastId, inserted);
+        return inserted;
+    }
+
+    @Override
+    protected Anime updated(Anime current, Anime anime) {
+        return new Anime(anime.getName(), current.getId(), anime.getAnimeId(), stamp(), current.isDeleted());
+    }
+
+    // keeps the indexes in step with the table
+    @Override
+    protected Anime put(Integer id, Anime anime) {
+        Anime previous = anime == null ? rows.remove(id) : rows.put(id, anime);
+        if (previous != null) {
+            changes.remove(new Change(micros(previous.getUpdatedAt()), id));
+            if (previous.getAnimeId() != null) {
+                idsByAnimeId.remove(previous.getAnimeId(), id);
+            }
+            if (!previous.isDeleted()) {
+                live--;
+            }
+        }
+        if (anime != null) {
+            changes.add(new Change(micros(anime.getUpdatedAt()), id));
+            if (anime.getAnimeId() != null) {
+                idsByAnimeId.put(anime.getAnimeId(), id);
+            }
+            if (!anime.isDeleted()) {
+                live++;
+            }
+        }
+        return previous;
+    }
+
+    @Override
+    protected Anime copy(Anime anime) {
+        return new Anime(anime.getName(), anime.getId(), anime.getAnimeId(), anime.getUpdatedAt(), anime.isDeleted());
+    }
+
+    private Anime tombstone(Anime anime) {
+        return new Anime(anime.getName(), anime.getId(), anime.getAnimeId(), stamp(), true);
+    }
+
+    // strictly increasing, so that every write gets its own position in the change index
+    private Instant stamp() {
+        lastStampMicros = Math.max(nowMicros(), lastStampMicros + 1);
+        return Instant.EPOCH.plus(lastStampMicros, ChronoUnit.MICROS);
+    }
+
+    private static long nowMicros() {
+        return micros(Instant.now());
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static final class Change implements Comparable<Change> {
+
+        private final long micros;
+        private final int id;
+
+        private Change(long micros, int id) {
+            this.micros = micros;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Change other) {
+            int byTime = Long.compare(micros, other.micros);
+            return byTime != 0 ? byTime : Integer.compare(id, other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Change && compareTo((Change) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(micros, id);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package academy.devdojo.webflux.repository.memory;
+
+import org.reactivestreams.Publisher;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link ReactiveCrudRepository} over in-memory storage.
+ * <p>
+ * Reads never lock. Writes run one at a time under the repository's monitor and are visible at once;
+ * there is no isolation between concurrent transactions. Within a transaction of
+ * {@link InMemoryTransactionManager} every write records its undo, and a rollback restores the previous
+ * entries in reverse order. Stored entities are never handed out, callers get copies.
+ */
+abstract class InMemoryCrudRepository<T, ID> implements ReactiveCrudRepository<T, ID> {
+
+    private final String table;
+    private final boolean readOnly;
+
+    protected InMemoryCrudRepository(String table, boolean readOnly) {
+        this.table = table;
+        this.readOnly = readOnly;
+    }
+
+    protected abstract ID idOf(T entity);
+
+    protected abstract boolean isNew(T entity);
+
+    /**
+     * The stored entity, or null.
+     */
+    protected abstract T get(ID id);
+
+    protected abstract Iterable<T> all();
+
+    protected abstract long size();
+
+    /**
+     * Stores a new entity under a generated id and returns the stored entity.
+     */
+    protected abstract T insert(T entity);
+
+    /**
+     * Stores {@code entity} under its id, null removes the entry; returns the entity it replaced, or null.
+     */
+    protected abstract T put(ID id, T entity);
+
+    protected abstract T copy(T entity);
+
+    /**
+     * What an update of {@code current} with {@code entity} stores; a copy of {@code entity} by default.
+     */
+    protected T updated(T current, T entity) {
+        return copy(entity);
+    }
+
+    /**
+     * Runs {@code change} under the write lock. Every undo it adds is kept for a rollback of the current
+     * transaction, also when the change fails halfway.
+     */
+    protected <R> Mono<R> write(Function<List<Runnable>, R> change) {
+        return Mono.defer(() -> {
+            if (readOnly) {
+                return Mono.error(new ReadOnlyRepositoryException());
+            }
+            List<Runnable> undo = new ArrayList<>();
+            R result = null;
+            RuntimeException failure = null;
+            synchronized (this) {
+                try {
+                    result = change.apply(undo);
+                } catch (RuntimeException exception) {
+                    failure = exception;
+                }
+            }
+            Mono<R> outcome = failure == null ? Mono.justOrEmpty(result) : Mono.error(failure);
+            return undo.isEmpty() ? outcome : undoOnRollback(undo).then(outcome);
+        });
+    }
+
+    /**
+     * Stores {@code entity} under {@code id} and adds the undo restoring what it replaced.
+     */
+    protected T replace(ID id, T entity, List<Runnable> undo) {
+        T previous = put(id, entity);
+        undo.add(() -> put(id, previous));
+        return previous;
+    }
+
+    private Mono<Void> undoOnRollback(List<Runnable> undo) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> {
+                    UndoLog log = (UndoLog) synchronizationManager.getResource(this);
+                    if (log == null) {
+                        log = new UndoLog();
+                        synchronizationManager.bindResource(this, log);
+                        synchronizationManager.registerSynchronization(log);
+                    }
+                    undo.forEach(log.undo::push);
+                })
+                .onErrorResume(NoTransactionException.class, error -> Mono.empty())
+                .then();
+    }
+
+    @Override
+    public <S extends T> Mono<S> save(S entity) {
+        return write(undo -> {
+            if (isNew(entity)) {
+                T saved = insert(entity);
+                undo.add(() -> put(idOf(saved), null));
+                return cast(copy(saved));
+            }
+            ID id = idOf(entity);
+            T current = get(id);
+            if (current == null) {
+                throw new TransientDataAccessResourceException(String.format(
+                        "Failed to update table [%s]. Row with Id [%s] does not exist.", table, id));
+            }
+            replace(id, updated(current, entity), undo);
+            return entity;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S cast(Object entity) {
+        return (S) entity;
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Iterable<S> entities) {
+        return Flux.fromIterable(entities).concatMap(this::save);
+    }
+
+    @Override
+    public <S extends T> Flux<S> saveAll(Publisher<S> entityStream) {
+        return Flux.from(entityStream).concatMap(this::save);
+    }
+
+    @Override
+    public Mono<T> findById(ID id) {
+        return Mono.fromSupplier(() -> {
+            T entity = get(id);
+            return entity == null ? null : copy(entity);
+        });
+    }
+
+    @Override
+    public Mono<T> findById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(ID id) {
+        return Mono.fromSupplier(() -> get(id) != null);
+    }
+
+    @Override
+    public Mono<Boolean> existsById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::existsById);
+    }
+
+    @Override
+    public Flux<T> findAll() {
+        return Flux.defer(() -> Flux.fromIterable(all())).map(this::copy);
+    }
+
+    @Override
+    public Flux<T> findAllById(Iterable<ID> ids) {
+        return findAllById(Flux.fromIterable(ids));
+    }
+
+    @Override
+    public Flux<T> findAllById(Publisher<ID> idStream) {
+        return Flux.from(idStream)
+                .concatMap(this::findById);
+    }
+
+    @Override
+    public Mono<Long> count() {
+        return Mono.fromSupplier(this::size);
+    }
+
+    @Override
+    public Mono<Void> deleteById(ID id) {
+        return write(undo -> replace(id, null, undo)).then();
+    }
+
+    @Override
+    public Mono<Void> deleteById(Publisher<ID> id) {
+        return Mono.from(id).flatMap(this::deleteById);
+    }
+
+    @Override
+    public Mono<Void> delete(T entity) {
+        return deleteById(idOf(entity));
+    }
+
+    @Override
+    public Mono<Void> deleteAllById(Iterable<? extends ID> ids) {
+        return write(undo -> {
+            ids.forEach(id -> replace(id, null, undo));
+            return null;
+        }).then();
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Iterable<? extends T> entities) {
+        return deleteAll(Flux.fromIterable(entities));
+    }
+
+    @Override
+    public Mono<Void> deleteAll(Publisher<? extends T> entityStream) {
+        return Flux.from(entityStream)
+                .map(this::idOf)
+                .collectList()
+                .flatMap(this::deleteAllById);
+    }
+
+    @Override
+    public Mono<Void> deleteAll() {
+        return write(undo -> {
+            List<ID> ids = new ArrayList<>();
+            all().forEach(entity -> ids.add(idOf(entity)));
+            ids.forEach(id -> replace(id, null, undo));
+            return null;
+        }).then();
+    }
+
+    private class UndoLog implements TransactionSynchronization {
+
+        private final Deque<Runnable> undo = new ArrayDeque<>();
+
+        @Override
+        public Mono<Void> afterCompletion(int status) {
+            if (status == STATUS_ROLLED_BACK) {
+                synchronized (InMemoryCrudRepository.this) {
+                    undo.forEach(Runnable::run);
+                }
+            }
+            return Mono.empty();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package academy.devdojo.webflux.repository.memory;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import academy.devdojo.webflux.repository.DevDojoUserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DevDojoUserRepository} held in memory, indexed by id and by username. The users are loaded at
+ * startup from {@code devdojo.repository.memory.users}, one JSON object per line with the columns of
+ * {@code devdojo_user}. No users ship with the application: startup fails unless the file is set and exists.
+ */
+@Log4j2
+@Primary
+@Repository
+@Lazy(false)
+@ConditionalOnProperty(name = "devdojo.repository.mode", havingValue = "memory")
+public class InMemoryDevDojoUserRepository extends InMemoryCrudRepository<DevDojoUser, Integer>
+        implements DevDojoUserRepository {
+
+    private final ObjectMapper objectMapper;
+    private final Resource users;
+    private final IntKeyedTable<DevDojoUser> rows = new IntKeyedTable<>();
+    private final Map<String, Integer> idsByUsername = new ConcurrentHashMap<>();
+    // guarded by the write lock
+    private int lastId;
+
+    public InMemoryDevDojoUserRepository(ObjectMapper objectMapper,
+                                         @Value("${devdojo.repository.memory.read-only:false}") boolean readOnly,
+                                         ResourceLoader resourceLoader,
+                                         @Value("${devdojo.repository.memory.users:}") String users) {
+        super("devdojo_user", readOnly);
+        if (users.isBlank()) {
+            throw new IllegalStateException("devdojo.repository.memory.users must point to the users file in memory mode");
+        }
+        this.objectMapper = objectMapper;
+        this.users = resourceLoader.getResource(users);
+    }
+
+    @PostConstruct
+    public synchronized void loadUsers() {
+        if (!users.exists()) {
+            throw new IllegalStateException("Users file " + users + " does not exist");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(users.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode user = objectMapper.readTree(line);
+                DevDojoUser loaded = new DevDojoUser(user.path("id").asInt(), user.path("name").asText(null),
+                        user.path("username").asText(), user.path("password").asText(), user.path("authorities").asText());
+                put(loaded.getId(), loaded);
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Could not load users from " + users, exception);
+        }
+        log.info("{} usuarios carregados de {}", rows.size(), users);
+    }
+
+    @Override
+    public Mono<DevDojoUser> findByUsername(String username) {
+        return Mono.fromSupplier(() -> {
+            Integer id = idsByUsername.get(username);
+            DevDojoUser user = id == null ? null : rows.get(id);
+            return user == null || !username.equals(user.getUsername()) ? null : copy(user);
+        });
+    }
+
+    @Override
+    protected Integer idOf(DevDojoUser user) {
+        return user.getId();
+    }
+
+    @Override
+    protected boolean isNew(DevDojoUser user) {
+        return user.getId() == null || user.getId() == 0;
+    }
+
+    @Override
+    protected DevDojoUser get(Integer id) {
+        return rows.get(id);
+    }
+
+    @Override
+    protected Iterable<DevDojoUser> all() {
+        return rows.ascendingAfter(0);
+    }
+
+    @Override
+    protected long size() {
+        return rows.size();
+    }
+
+    @Override
+    protected DevDojoUser insert(DevDojoUser user) {
+        if (idsByUsername.containsKey(user.getUsername())) {
+            throw new DuplicateKeyException("Username already exists: " + user.getUsername());
+        }
+        lastId = Math.max(lastId, rows.maxKey()) + 1;
+        DevDojoUser inserted = copy(user);
+        inserted.setId(lastId);
+        put(lastId, inserted);
+        return inserted;
+    }
+
+    @Override
+    protected DevDojoUser put(Integer id, DevDojoUser user) {
+        DevDojoUser previous = user == null ? rows.remove(id) : rows.put(id, user);
+        if (previous != null) {
+            idsByUsername.remove(previous.getUsername(), id);
+        }
+        if (user != null) {
+            idsByUsername.put(user.getUsername(), id);
+        }
+        return previous;
+    }
+
+    @Override
+    protected DevDojoUser copy(DevDojoUser user) {
+        // getAuthorities() returns the parsed column
+        String authorities = user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        return new DevDojoUser(user.getId(), user.getName(), user.getUsername(), user.getPassword(), authorities);
+    }
+}
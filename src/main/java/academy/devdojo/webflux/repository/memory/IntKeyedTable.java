@@ -0,0 +1,155 @@
+package academy.devdojo.webflux.repository.memory;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Values by non-negative int key, stored directly at their key in chunks of {@value #CHUNK_SIZE} slots,
+ * without boxing or hashing. Keys handed out by a sequence are dense, so lookups are two array reads and
+ * iteration in key order needs no sorting; chunks that would only hold gaps are never allocated.
+ * <p>
+ * Reads never lock and see every write completed before they started. Writes must be serialized by the
+ * caller.
+ */
+final class IntKeyedTable<T> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile AtomicReferenceArray<AtomicReferenceArray<T>> chunks = new AtomicReferenceArray<>(16);
+    private volatile int size;
+    private volatile int maxKey = -1;
+
+    T get(int key) {
+        if (key < 0) {
+            return null;
+        }
+        AtomicReferenceArray<AtomicReferenceArray<T>> directory = chunks;
+        int index = key >>> CHUNK_BITS;
+        if (index >= directory.length()) {
+            return null;
+        }
+        AtomicReferenceArray<T> chunk = directory.get(index);
+        return chunk == null ? null : chunk.get(key & CHUNK_MASK);
+    }
+
+    /**
+     * Stores {@code value} at {@code key} and returns the value it replaced, or null.
+     */
+    T put(int key, T value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("Invalid entry for key " + key);
+        }
+        T previous = chunk(key).getAndSet(key & CHUNK_MASK, value);
+        if (previous == null) {
+            size++;
+            if (key > maxKey) {
+                maxKey = key;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the value at {@code key} and returns it, or null when there was none.
+     */
+    T remove(int key) {
+        AtomicReferenceArray<AtomicReferenceArray<T>> directory = chunks;
+        int index = key >>> CHUNK_BITS;
+        if (key < 0 || index >= directory.length() || directory.get(index) == null) {
+            return null;
+        }
+        T previous = directory.get(index).getAndSet(key & CHUNK_MASK, null);
+        if (previous != null) {
+            size--;
+        }
+        return previous;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The highest key ever stored, -1 when empty.
+     */
+    int maxKey() {
+        return maxKey;
+    }
+
+    /**
+     * Values with a key greater than {@code after}, in ascending key order. The iteration is lazy and sees
+     * the table as it changes.
+     */
+    Iterable<T> ascendingAfter(int after) {
+        return () -> new Cursor(after + 1, 1);
+    }
+
+    /**
+     * Values with a key less than {@code before}, in descending key order.
+     */
+    Iterable<T> descendingBefore(int before) {
+        return () -> new Cursor(Math.min(before - 1, maxKey), -1);
+    }
+
+    private AtomicReferenceArray<T> chunk(int key) {
+        int index = key >>> CHUNK_BITS;
+        AtomicReferenceArray<AtomicReferenceArray<T>> directory = chunks;
+        if (index >= directory.length()) {
+            AtomicReferenceArray<AtomicReferenceArray<T>> grown =
+                    new AtomicReferenceArray<>(Math.max(index + 1, directory.length() * 2));
+            for (int i = 0; i < directory.length(); i++) {
+                grown.set(i, directory.get(i));
+            }
+            chunks = grown;
+            directory = grown;
+        }
+        AtomicReferenceArray<T> chunk = directory.get(index);
+        if (chunk == null) {
+            chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+            directory.set(index, chunk);
+        }
+        return chunk;
+    }
+
+    private class Cursor implements Iterator<T> {
+
+        private final int step;
+        private int key;
+        private T next;
+
+        private Cursor(int from, int step) {
+            this.key = step > 0 ? Math.max(from, 0) : from;
+            this.step = step;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && key >= 0 && key <= maxKey) {
+                AtomicReferenceArray<AtomicReferenceArray<T>> directory = chunks;
+                int index = key >>> CHUNK_BITS;
+                AtomicReferenceArray<T> chunk = index < directory.length() ? directory.get(index) : null;
+                if (chunk == null) {
+                    // skip the whole missing chunk
+                    key = step > 0 ? (index + 1) << CHUNK_BITS : (index << CHUNK_BITS) - 1;
+                    continue;
+                }
+                next = chunk.get(key & CHUNK_MASK);
+                key += step;
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T value = next;
+            next = null;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package academy.devdojo.webflux.repository.memory;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * A write reached an in-memory repository running with {@code devdojo.repository.memory.read-only}.
+ */
+public class ReadOnlyRepositoryException extends ResponseStatusException {
+
+    public ReadOnlyRepositoryException() {
+        super(HttpStatus.METHOD_NOT_ALLOWED, "Read-only replica, send writes to the primary");
+    }
+}
@@ -0,0 +1,123 @@
+package academy.devdojo.webflux.resilience;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs at most {@code maxConcurrent} calls at a time. Further calls wait, without holding a thread, in a
+ * FIFO queue of at most {@code maxQueue} calls and are rejected with {@link BulkheadFullException} beyond
+ * it. A call holds its slot until it terminates or is cancelled; a queued call that is cancelled leaves
+ * the queue.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+
+    // guarded by this
+    private int active;
+    private final Queue<Waiter> waiting = new ArrayDeque<>();
+
+    public Bulkhead(String name, int maxConcurrent, int maxQueue) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+
+    public <T> Mono<T> run(Mono<T> mono) {
+        return Mono.usingWhen(acquire(), permit -> mono, permit -> release(), (permit, error) -> release(),
+                permit -> release());
+    }
+
+    public <T> Flux<T> run(Flux<T> flux) {
+        return Flux.usingWhen(acquire(), permit -> flux, permit -> release(), (permit, error) -> release(),
+                permit -> release());
+    }
+
+    private Mono<Boolean> acquire() {
+        return Mono.create(sink -> {
+            Waiter waiter;
+            synchronized (this) {
+                if (active < maxConcurrent) {
+                    active++;
+                    waiter = null;
+                } else if (waiting.size() < maxQueue) {
+                    waiter = new Waiter(sink);
+                    waiting.add(waiter);
+                } else {
+                    sink.error(new BulkheadFullException(name));
+                    return;
+                }
+            }
+            if (waiter == null) {
+                sink.success(Boolean.TRUE);
+            } else {
+                sink.onCancel(() -> cancel(waiter));
+            }
+        });
+    }
+
+    private Mono<Void> release() {
+        return Mono.fromRunnable(this::releaseSlot);
+    }
+
+    // hands the slot over to the first waiter still waiting, or frees it
+    private void releaseSlot() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+            }
+            if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                next.sink.success(Boolean.TRUE);
+                return;
+            }
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+            synchronized (this) {
+                waiting.remove(waiter);
+            }
+        } else {
+            // the slot was handed over while the call was being cancelled
+            releaseSlot();
+        }
+    }
+
+    private static class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final MonoSink<Boolean> sink;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Waiter(MonoSink<Boolean> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package academy.devdojo.webflux.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised when a {@link Bulkhead} has no free slot and its queue is full; answered with 503.
+ */
+public class BulkheadFullException extends ResponseStatusException {
+
+    public BulkheadFullException(String bulkhead) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Bulkhead " + bulkhead + " is full");
+    }
+}
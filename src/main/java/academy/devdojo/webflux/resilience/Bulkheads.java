@@ -0,0 +1,123 @@
+package academy.devdojo.webflux.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+
+/**
+ * Keeps reads, single writes and batch work from starving each other: each {@link Workload} runs in its
+ * own {@link Bulkhead}, {@code devdojo.bulkhead.<workload>.max-concurrent} calls at a time with up to
+ * {@code devdojo.bulkhead.<workload>.max-queue} more waiting, and carries its workload in the Reactor
+ * context so that, with {@code devdojo.bulkhead.partitions.enabled}, its statements use the workload's
+ * own connection pool. Batch work also runs on its own {@code anime-batch} scheduler of
+ * {@code devdojo.bulkhead.batch.scheduler-threads} threads instead of the event loops serving requests.
+ * <p>
+ * Publishes {@code devdojo.bulkhead.active}, {@code devdojo.bulkhead.queued} and
+ * {@code devdojo.bulkhead.rejected}, tagged with the workload. With {@code devdojo.bulkhead.enabled=false}
+ * every method returns its argument unchanged.
+ */
+@Component
+public class Bulkheads {
+
+    private final boolean enabled;
+    private final Map<Workload, Bulkhead> bulkheads;
+    private final Map<Workload, Counter> rejections;
+    private final Scheduler batchScheduler;
+
+    public Bulkheads(MeterRegistry meterRegistry,
+                     @Value("${devdojo.bulkhead.enabled:true}") boolean enabled,
+                     @Value("${devdojo.bulkhead.read.max-concurrent:64}") int readMaxConcurrent,
+                     @Value("${devdojo.bulkhead.read.max-queue:256}") int readMaxQueue,
+                     @Value("${devdojo.bulkhead.write.max-concurrent:16}") int writeMaxConcurrent,
+                     @Value("${devdojo.bulkhead.write.max-queue:64}") int writeMaxQueue,
+                     @Value("${devdojo.bulkhead.batch.max-concurrent:2}") int batchMaxConcurrent,
+                     @Value("${devdojo.bulkhead.batch.max-queue:8}") int batchMaxQueue,
+                     @Value("${devdojo.bulkhead.batch.scheduler-threads:2}") int batchSchedulerThreads) {
+        this.enabled = enabled;
+        this.bulkheads = Map.of(
+                Workload.READ, new Bulkhead("read", readMaxConcurrent, readMaxQueue),
+                Workload.WRITE, new Bulkhead("write", writeMaxConcurrent, writeMaxQueue),
+                Workload.BATCH, new Bulkhead("batch", batchMaxConcurrent, batchMaxQueue));
+        this.rejections = Map.of(
+                Workload.READ, rejections(meterRegistry, "read"),
+                Workload.WRITE, rejections(meterRegistry, "write"),
+                Workload.BATCH, rejections(meterRegistry, "batch"));
+        this.batchScheduler = enabled ? Schedulers.newParallel("anime-batch", batchSchedulerThreads) : null;
+        bulkheads.values().forEach(bulkhead -> {
+            Gauge.builder("devdojo.bulkhead.active", bulkhead, Bulkhead::getActive)
+                    .tag("name", bulkhead.getName())
+                    .register(meterRegistry);
+            Gauge.builder("devdojo.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+                    .tag("name", bulkhead.getName())
+                    .register(meterRegistry);
+        });
+    }
+
+    private static Counter rejections(MeterRegistry meterRegistry, String name) {
+        return Counter.builder("devdojo.bulkhead.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public Bulkhead get(Workload workload) {
+        return bulkheads.get(workload);
+    }
+
+    public <T> Mono<T> read(Mono<T> mono) {
+        return run(Workload.READ, mono);
+    }
+
+    public <T> Flux<T> read(Flux<T> flux) {
+        return run(Workload.READ, flux);
+    }
+
+    public <T> Mono<T> write(Mono<T> mono) {
+        return run(Workload.WRITE, mono);
+    }
+
+    public <T> Flux<T> write(Flux<T> flux) {
+        return run(Workload.WRITE, flux);
+    }
+
+    public <T> Mono<T> batch(Mono<T> mono) {
+        return enabled ? run(Workload.BATCH, mono.publishOn(batchScheduler)).subscribeOn(batchScheduler) : mono;
+    }
+
+    public <T> Flux<T> batch(Flux<T> flux) {
+        return enabled ? run(Workload.BATCH, flux.publishOn(batchScheduler)).subscribeOn(batchScheduler) : flux;
+    }
+
+    private <T> Mono<T> run(Workload workload, Mono<T> mono) {
+        if (!enabled) {
+            return mono;
+        }
+        return bulkheads.get(workload).run(mono)
+                .doOnError(BulkheadFullException.class, error -> rejections.get(workload).increment())
+                .contextWrite(workload.context());
+    }
+
+    private <T> Flux<T> run(Workload workload, Flux<T> flux) {
+        if (!enabled) {
+            return flux;
+        }
+        return bulkheads.get(workload).run(flux)
+                .doOnError(BulkheadFullException.class, error -> rejections.get(workload).increment())
+                .contextWrite(workload.context());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (batchScheduler != null) {
+            batchScheduler.dispose();
+        }
+    }
+}
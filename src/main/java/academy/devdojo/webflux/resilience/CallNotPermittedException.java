@@ -0,0 +1,14 @@
+package academy.devdojo.webflux.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised instead of calling the database while a {@link CircuitBreaker} is open; answered with 503.
+ */
+public class CallNotPermittedException extends ResponseStatusException {
+
+    public CallNotPermittedException(String circuitBreaker) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Circuit breaker " + circuitBreaker + " is open");
+    }
+}
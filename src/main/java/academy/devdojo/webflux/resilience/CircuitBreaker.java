@@ -0,0 +1,217 @@
+package academy.devdojo.webflux.resilience;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Count-based circuit breaker. It opens once at least {@code failureRateThreshold} percent of the last
+ * {@code windowSize} calls failed, with at least {@code minimumCalls} recorded, and then rejects calls
+ * with {@link CallNotPermittedException} for {@code openDuration}. After that, {@code halfOpenCalls} trial
+ * calls are let through: it closes if they all succeed and opens again on the first failure.
+ * <p>
+ * Calls are admitted or rejected immediately, never queued. Only errors matching {@code isFailure} count
+ * as failures, other errors and cancellations count as successes and returned permits respectively.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final Predicate<Throwable> isFailure;
+    private final BiConsumer<State, State> onTransition;
+    private final LongSupplier nanoTime;
+
+    // guarded by this
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, int failureRateThreshold, int windowSize, int minimumCalls,
+                          Duration openDuration, int halfOpenCalls, Predicate<Throwable> isFailure,
+                          BiConsumer<State, State> onTransition) {
+        this(name, failureRateThreshold, windowSize, minimumCalls, openDuration, halfOpenCalls, isFailure,
+                onTransition, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                   int halfOpenCalls, Predicate<Throwable> isFailure, BiConsumer<State, State> onTransition,
+                   LongSupplier nanoTime) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.isFailure = isFailure;
+        this.onTransition = onTransition;
+        this.nanoTime = nanoTime;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Whether calls made now would be rejected: open and still within {@code openDuration}. Unlike
+     * {@link #getState()}, it turns false once the trial calls would be let through, even with no call
+     * made to move the breaker to half open.
+     */
+    public synchronized boolean isRejecting() {
+        return state == State.OPEN && nanoTime.getAsLong() - openedAt < openNanos;
+    }
+
+    public <T> Mono<T> run(Mono<T> mono) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new CallNotPermittedException(name));
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            return mono.doOnSuccess(value -> complete(done, null))
+                    .doOnError(error -> complete(done, error))
+                    .doOnCancel(() -> cancel(done));
+        });
+    }
+
+    public <T> Flux<T> run(Flux<T> flux) {
+        return Flux.defer(() -> {
+            if (!tryAcquire()) {
+                return Flux.error(new CallNotPermittedException(name));
+            }
+            AtomicBoolean done = new AtomicBoolean();
+            return flux.doOnComplete(() -> complete(done, null))
+                    .doOnError(error -> complete(done, error))
+                    .doOnCancel(() -> cancel(done));
+        });
+    }
+
+    private void complete(AtomicBoolean done, Throwable error) {
+        if (done.compareAndSet(false, true)) {
+            if (error != null && isFailure.test(error)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+        }
+    }
+
+    private void cancel(AtomicBoolean done) {
+        if (done.compareAndSet(false, true)) {
+            releasePermit();
+        }
+    }
+
+    boolean tryAcquire() {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.OPEN) {
+                if (nanoTime.getAsLong() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenPermits == 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+            }
+            to = state;
+        }
+        fireTransition(from, to);
+        return true;
+    }
+
+    void onSuccess() {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.CLOSED) {
+                record(false);
+            } else if (state == State.HALF_OPEN && ++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+            to = state;
+        }
+        fireTransition(from, to);
+    }
+
+    void onFailure() {
+        State from;
+        State to;
+        synchronized (this) {
+            from = state;
+            if (state == State.CLOSED) {
+                record(true);
+                if (recorded >= minimumCalls && failures * 100 >= failureRateThreshold * recorded) {
+                    open();
+                }
+            } else if (state == State.HALF_OPEN) {
+                open();
+            }
+            to = state;
+        }
+        fireTransition(from, to);
+    }
+
+    private synchronized void releasePermit() {
+        if (state == State.HALF_OPEN) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == window.length) {
+            failures -= window[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        window[next] = failure;
+        failures += failure ? 1 : 0;
+        next = (next + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoTime.getAsLong();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    // called outside the lock, so listeners may log or update meters
+    private void fireTransition(State from, State to) {
+        if (from != to) {
+            onTransition.accept(from, to);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package academy.devdojo.webflux.resilience;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * The {@code database} health, part of the readiness probe, read from the {@code postgres}
+ * {@link CircuitBreaker} instead of a validation query: the application is out of service while the
+ * breaker rejects repository calls, and back in service once it would let trial calls through, so an
+ * instance taken out of rotation does not need traffic to come back.
+ */
+@Component
+public class DatabaseHealthIndicator implements HealthIndicator {
+
+    private final CircuitBreaker circuitBreaker;
+
+    public DatabaseHealthIndicator(RepositoryResilience repositoryResilience) {
+        this.circuitBreaker = repositoryResilience.getCircuitBreaker();
+    }
+
+    @Override
+    public Health health() {
+        return (circuitBreaker.isRejecting() ? Health.outOfService() : Health.up())
+                .withDetail("circuitBreaker", circuitBreaker.getName())
+                .withDetail("state", circuitBreaker.getState())
+                .build();
+    }
+}
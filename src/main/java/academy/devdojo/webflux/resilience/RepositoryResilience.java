@@ -0,0 +1,284 @@
+package academy.devdojo.webflux.resilience;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import io.r2dbc.spi.R2dbcRollbackException;
+import io.r2dbc.spi.R2dbcTransientException;
+import lombok.extern.log4j.Log4j2;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Guards every repository call, {@code AnimeRepository.findById} for instance, with
+ * <ul>
+ *     <li>a timeout, {@code devdojo.resilience.timeout.<Repository>.<method>} or else
+ *     {@code devdojo.resilience.timeout.default}; for a {@code Flux} it bounds the wait for the first row,
+ *     long streams such as the export are not cut off once rows flow;</li>
+ *     <li>the {@code postgres} {@link CircuitBreaker}, shared by all repositories since they share the
+ *     database, which counts timeouts and connection or transient errors as failures;</li>
+ *     <li>for reads ({@code find*}, {@code count*}, {@code exists*}), retries of those same errors with
+ *     exponential backoff and jitter; a {@code Flux} is only retried before its first row;</li>
+ *     <li>for the operations in {@code devdojo.resilience.stale-fallback.operations}, the last result
+ *     read for the same arguments while the circuit breaker is open. Animes and counts are mutable, so the
+ *     fallback keeps its own copy of each and serves a fresh copy every time; other results are served
+ *     as stored.</li>
+ * </ul>
+ * A call that still times out fails with {@link RepositoryTimeoutException}.
+ * <p>
+ * Publishes {@code devdojo.circuit.state} and {@code devdojo.circuit.transitions}, and per operation
+ * {@code devdojo.repository.timeouts}, {@code devdojo.repository.retries} and
+ * {@code devdojo.repository.stale}.
+ */
+@Log4j2
+@Component
+public class RepositoryResilience {
+
+    public static final String CIRCUIT_BREAKER = "postgres";
+
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final Duration defaultTimeout;
+    private final int maxRetries;
+    private final Duration minBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final Set<String> staleOperations;
+    private final int staleMaxEntries;
+    private final int staleMaxElements;
+    private final CircuitBreaker circuitBreaker;
+    private final Map<Object, Object> staleResults = new ConcurrentHashMap<>();
+
+    public RepositoryResilience(MeterRegistry meterRegistry, Environment environment,
+                                @Value("${devdojo.resilience.timeout.default:2s}") Duration defaultTimeout,
+                                @Value("${devdojo.resilience.retry.max-retries:2}") int maxRetries,
+                                @Value("${devdojo.resilience.retry.min-backoff:50ms}") Duration minBackoff,
+                                @Value("${devdojo.resilience.retry.max-backoff:1s}") Duration maxBackoff,
+                                @Value("${devdojo.resilience.retry.jitter:0.5}") double jitter,
+                                @Value("${devdojo.resilience.circuit-breaker.failure-rate-threshold:50}") int failureRateThreshold,
+                                @Value("${devdojo.resilience.circuit-breaker.window-size:20}") int windowSize,
+                                @Value("${devdojo.resilience.circuit-breaker.minimum-calls:10}") int minimumCalls,
+                                @Value("${devdojo.resilience.circuit-breaker.open-duration:10s}") Duration openDuration,
+                                @Value("${devdojo.resilience.circuit-breaker.half-open-calls:3}") int halfOpenCalls,
+                                @Value("${devdojo.resilience.stale-fallback.operations:}") Set<String> staleOperations,
+                                @Value("${devdojo.resilience.stale-fallback.max-entries:10000}") int staleMaxEntries,
+                                @Value("${devdojo.resilience.stale-fallback.max-elements:10000}") int staleMaxElements) {
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.defaultTimeout = defaultTimeout;
+        this.maxRetries = maxRetries;
+        this.minBackoff = minBackoff;
+        this.maxBackoff = maxBackoff;
+        this.jitter = jitter;
+        this.staleOperations = staleOperations;
+        this.staleMaxEntries = staleMaxEntries;
+        this.staleMaxElements = staleMaxElements;
+        this.circuitBreaker = new CircuitBreaker(CIRCUIT_BREAKER, failureRateThreshold, windowSize, minimumCalls,
+                openDuration, halfOpenCalls, RepositoryResilience::isTransient, this::transitioned);
+        Gauge.builder("devdojo.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 closed, 1 open, 2 half open")
+                .tag("name", CIRCUIT_BREAKER)
+                .register(meterRegistry);
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * The advice added to the repository named {@code repository} by {@link ResilienceConfig}.
+     */
+    public MethodInterceptor interceptor(String repository) {
+        return new Interceptor(repository);
+    }
+
+    /**
+     * Timeouts, lost connections and errors the driver or Spring flag as transient, anywhere in the cause
+     * chain. Failed statements, such as constraint violations, and concurrency conflicts are not.
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null && cause.getCause() != cause; cause = cause.getCause()) {
+            if (cause instanceof R2dbcRollbackException || cause instanceof ConcurrencyFailureException) {
+                return false;
+            }
+            if (cause instanceof TimeoutException
+                    || cause instanceof R2dbcTransientException
+                    || cause instanceof R2dbcNonTransientResourceException
+                    || cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T copy(T value) {
+        if (value instanceof Anime) {
+            return (T) ((Anime) value).copy();
+        }
+        if (value instanceof AnimeCount) {
+            return (T) new AnimeCount(((AnimeCount) value).getKey(), ((AnimeCount) value).getTotal());
+        }
+        return value;
+    }
+
+    private void transitioned(CircuitBreaker.State from, CircuitBreaker.State to) {
+        log.warn("Circuit breaker {} passou de {} para {}", CIRCUIT_BREAKER, from, to);
+        meterRegistry.counter("devdojo.circuit.transitions",
+                "name", CIRCUIT_BREAKER, "from", from.name(), "to", to.name()).increment();
+    }
+
+    private class Interceptor implements MethodInterceptor {
+
+        private final String repository;
+        private final Map<Method, Operation> operations = new ConcurrentHashMap<>();
+
+        private Interceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (result instanceof Mono) {
+                return operation(invocation.getMethod()).guard((Mono<?>) result, invocation.getArguments());
+            }
+            if (result instanceof Flux) {
+                return operation(invocation.getMethod()).guard((Flux<?>) result, invocation.getArguments());
+            }
+            return result;
+        }
+
+        private Operation operation(Method method) {
+            return operations.computeIfAbsent(method, key -> new Operation(repository + "." + key.getName()));
+        }
+    }
+
+    private class Operation {
+
+        private final String name;
+        private final Duration timeout;
+        private final RetryBackoffSpec retry;
+        private final boolean stale;
+        private final Counter timeouts;
+        private final Counter staleServed;
+
+        private Operation(String name) {
+            this.name = name;
+            this.timeout = environment.getProperty("devdojo.resilience.timeout." + name, Duration.class, defaultTimeout);
+            this.stale = staleOperations.contains(name);
+            this.timeouts = meterRegistry.counter("devdojo.repository.timeouts", "operation", name);
+            this.staleServed = meterRegistry.counter("devdojo.repository.stale", "operation", name);
+            String method = name.substring(name.indexOf('.') + 1);
+            boolean read = method.startsWith("find") || method.startsWith("count") || method.startsWith("exists");
+            Counter retries = meterRegistry.counter("devdojo.repository.retries", "operation", name);
+            this.retry = read && maxRetries > 0
+                    ? Retry.backoff(maxRetries, minBackoff)
+                    .maxBackoff(maxBackoff)
+                    .jitter(jitter)
+                    .filter(RepositoryResilience::isTransient)
+                    .doBeforeRetry(signal -> retries.increment())
+                    .onRetryExhaustedThrow((spec, signal) -> signal.failure())
+                    : null;
+        }
+
+        private <T> Mono<T> guard(Mono<T> mono, Object[] arguments) {
+            Mono<T> guarded = circuitBreaker.run(mono.timeout(timeout)
+                    .doOnError(TimeoutException.class, error -> timeouts.increment()));
+            if (retry != null) {
+                guarded = guarded.retryWhen(retry);
+            }
+            guarded = guarded.onErrorMap(TimeoutException.class, error -> new RepositoryTimeoutException(name, error));
+            if (!stale) {
+                return guarded;
+            }
+            Object key = staleKey(arguments);
+            return guarded.doOnNext(value -> storeStale(key, copy(value)))
+                    .onErrorResume(CallNotPermittedException.class, error -> {
+                        @SuppressWarnings("unchecked")
+                        T value = (T) staleResults.get(key);
+                        if (value == null) {
+                            return Mono.error(error);
+                        }
+                        staleServed.increment();
+                        return Mono.fromSupplier(() -> copy(value));
+                    });
+        }
+
+        private <T> Flux<T> guard(Flux<T> flux, Object[] arguments) {
+            Flux<T> timed = flux.timeout(Mono.delay(timeout), value -> Mono.never())
+                    .doOnError(TimeoutException.class, error -> timeouts.increment());
+            Flux<T> attempts = retry == null ? circuitBreaker.run(timed) : Flux.defer(() -> {
+                AtomicBoolean emitted = new AtomicBoolean();
+                return circuitBreaker.run(timed)
+                        .doOnNext(value -> emitted.set(true))
+                        .retryWhen(retry.filter(error -> !emitted.get() && isTransient(error)));
+            });
+            Flux<T> guarded = attempts.onErrorMap(TimeoutException.class,
+                    error -> new RepositoryTimeoutException(name, error));
+            if (!stale) {
+                return guarded;
+            }
+            Object key = staleKey(arguments);
+            return Flux.defer(() -> {
+                List<T> values = new ArrayList<>();
+                return guarded.doOnNext(value -> {
+                            if (values.size() <= staleMaxElements) {
+                                values.add(copy(value));
+                            }
+                        })
+                        .doOnComplete(() -> {
+                            if (values.size() <= staleMaxElements) {
+                                storeStale(key, List.copyOf(values));
+                            }
+                        })
+                        .onErrorResume(CallNotPermittedException.class, error -> {
+                            @SuppressWarnings("unchecked")
+                            List<T> stored = (List<T>) staleResults.get(key);
+                            if (stored == null) {
+                                return Flux.error(error);
+                            }
+                            staleServed.increment();
+                            return Flux.fromIterable(stored).map(RepositoryResilience::copy);
+                        });
+            });
+        }
+
+        private Object staleKey(Object[] arguments) {
+            return List.of(name, Arrays.asList(arguments));
+        }
+
+        private void storeStale(Object key, Object value) {
+            if (staleResults.size() < staleMaxEntries || staleResults.containsKey(key)) {
+                staleResults.put(key, value);
+            }
+        }
+    }
+}
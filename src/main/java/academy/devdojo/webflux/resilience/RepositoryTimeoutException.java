@@ -0,0 +1,14 @@
+package academy.devdojo.webflux.resilience;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Raised when a repository call, retries included, did not answer within its timeout; answered with 504.
+ */
+public class RepositoryTimeoutException extends ResponseStatusException {
+
+    public RepositoryTimeoutException(String operation, Throwable cause) {
+        super(HttpStatus.GATEWAY_TIMEOUT, operation + " timed out", cause);
+    }
+}
@@ -0,0 +1,76 @@
+package academy.devdojo.webflux.resilience;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+import org.springframework.util.ClassUtils;
+
+import java.util.Arrays;
+
+/**
+ * Adds the {@link RepositoryResilience} advice to every repository bean, the R2DBC repository proxies as
+ * well as the JDBC repositories of {@code devdojo.repository.mode=jdbc}. It is the outermost advice, so a
+ * retry runs the whole call again.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ResilienceConfig {
+
+    @Bean
+    public static BeanPostProcessor repositoryResiliencePostProcessor(ObjectProvider<RepositoryResilience> resilience) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof Repository)) {
+                    return bean;
+                }
+                ResilienceInterceptor interceptor = new ResilienceInterceptor(resilience, repositoryName(bean));
+                if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+                    ((Advised) bean).addAdvice(0, interceptor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy(bean.getClass().getClassLoader());
+            }
+        };
+    }
+
+    // the application's own repository interface, AnimeRepository rather than ReactiveCrudRepository
+    private static String repositoryName(Object bean) {
+        return Arrays.stream(ClassUtils.getAllInterfaces(bean))
+                .filter(Repository.class::isAssignableFrom)
+                .filter(type -> !type.getName().startsWith("org.springframework."))
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(bean.getClass().getSimpleName());
+    }
+
+    /**
+     * Looks the {@link RepositoryResilience} up on the first call, the post processor runs before it exists.
+     */
+    private static class ResilienceInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<RepositoryResilience> resilience;
+        private final String repository;
+        private volatile MethodInterceptor delegate;
+
+        private ResilienceInterceptor(ObjectProvider<RepositoryResilience> resilience, String repository) {
+            this.resilience = resilience;
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (delegate == null) {
+                delegate = resilience.getObject().interceptor(repository);
+            }
+            return delegate.invoke(invocation);
+        }
+    }
+}
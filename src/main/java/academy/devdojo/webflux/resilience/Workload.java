@@ -0,0 +1,25 @@
+package academy.devdojo.webflux.resilience;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Optional;
+
+/**
+ * The kind of work a call belongs to, carried in the Reactor context by {@link Bulkheads} so that the
+ * connection pool partition of the workload serves its statements.
+ */
+public enum Workload {
+
+    READ, WRITE, BATCH;
+
+    private static final String CONTEXT_KEY = Workload.class.getName();
+
+    public Context context() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    public static Optional<Workload> of(ContextView context) {
+        return context.getOrEmpty(CONTEXT_KEY);
+    }
+}
@@ -0,0 +1,148 @@
+package academy.devdojo.webflux.security;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.RequestPath;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Authorization rules declared once and compiled into per-method rule arrays.
+ * <p>
+ * A rule matches an exact path ({@code /animes}, also with a trailing slash) or a path and everything
+ * below it ({@code /animes/**}); the first matching rule for the request method wins and requests no
+ * rule matches only need to be authenticated. WebFlux answers {@code HEAD} with the {@code GET} handler,
+ * so {@code GET} rules apply to {@code HEAD} requests as well. A decision is a few string comparisons and a bitwise
+ * test against {@link Role#mask}, with no allocation unless the path is percent-encoded or carries
+ * matrix variables.
+ */
+public final class AuthorizationPolicy {
+
+    /**
+     * Requirement of paths open to anonymous requests.
+     */
+    public static final int PERMIT_ALL = -1;
+    /**
+     * Requirement of paths open to any authenticated user.
+     */
+    public static final int AUTHENTICATED = 0;
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    // indexed by HttpMethod ordinal, the extra last slot holds the rules of non-standard methods
+    private final Rule[][] rulesByMethod;
+
+    private AuthorizationPolicy(List<Rule> rules) {
+        rulesByMethod = new Rule[METHODS.length + 1][];
+        for (int slot = 0; slot <= METHODS.length; slot++) {
+            HttpMethod method = slot < METHODS.length ? METHODS[slot] : null;
+            rulesByMethod[slot] = rules.stream()
+                    .filter(rule -> rule.method == null || rule.method == method
+                            || method == HttpMethod.HEAD && rule.method == HttpMethod.GET)
+                    .toArray(Rule[]::new);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The roles one of which the request needs, {@link #AUTHENTICATED} or {@link #PERMIT_ALL}.
+     */
+    public int requiredRoles(HttpMethod method, RequestPath path) {
+        return requiredRoles(method, canonicalPath(path.pathWithinApplication()));
+    }
+
+    public int requiredRoles(HttpMethod method, String path) {
+        Rule[] rules = rulesByMethod[method == null ? METHODS.length : method.ordinal()];
+        for (Rule rule : rules) {
+            if (rule.matches(path)) {
+                return rule.requiredRoles;
+            }
+        }
+        return AUTHENTICATED;
+    }
+
+    public static boolean isGranted(int requiredRoles, int roles) {
+        return requiredRoles == PERMIT_ALL || requiredRoles == AUTHENTICATED || (requiredRoles & roles) != 0;
+    }
+
+    /**
+     * The path as the handler mappings match it: decoded and without matrix variables.
+     */
+    static String canonicalPath(PathContainer path) {
+        String value = path.value();
+        if (value.indexOf('%') < 0 && value.indexOf(';') < 0) {
+            return value;
+        }
+        StringBuilder canonical = new StringBuilder(value.length());
+        for (PathContainer.Element element : path.elements()) {
+            canonical.append(element instanceof PathContainer.PathSegment
+                    ? ((PathContainer.PathSegment) element).valueToMatch()
+                    : element.value());
+        }
+        return canonical.toString();
+    }
+
+    public static class Builder {
+
+        private final List<Rule> rules = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Requires one of {@code roles}, or only authentication when none is given. A {@code null}
+         * method matches every method.
+         */
+        public Builder rule(HttpMethod method, String pattern, Role... roles) {
+            rules.add(new Rule(method, pattern, Role.mask(roles)));
+            return this;
+        }
+
+        public Builder permitAll(HttpMethod method, String pattern) {
+            rules.add(new Rule(method, pattern, PERMIT_ALL));
+            return this;
+        }
+
+        public AuthorizationPolicy build() {
+            return new AuthorizationPolicy(rules);
+        }
+    }
+
+    private static class Rule {
+
+        private static final String SUBTREE = "/**";
+
+        private final HttpMethod method;
+        private final String path;
+        private final boolean subtree;
+        private final int requiredRoles;
+
+        private Rule(HttpMethod method, String pattern, int requiredRoles) {
+            this.method = method;
+            this.subtree = pattern.endsWith(SUBTREE);
+            this.path = subtree ? pattern.substring(0, pattern.length() - SUBTREE.length()) : pattern;
+            if (!pattern.startsWith("/") || path.indexOf('*') >= 0) {
+                throw new IllegalArgumentException("Unsupported pattern " + pattern);
+            }
+            this.requiredRoles = requiredRoles;
+        }
+
+        private boolean matches(String requestPath) {
+            if (!requestPath.startsWith(path)) {
+                return false;
+            }
+            int length = path.length();
+            if (requestPath.length() == length) {
+                return true;
+            }
+            if (requestPath.charAt(length) != '/') {
+                return false;
+            }
+            return subtree || requestPath.length() == length + 1;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package academy.devdojo.webflux.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Roles as bits, so that a user's roles fit in an {@code int} and a policy check is a single mask test.
+ */
+public enum Role {
+
+    USER,
+    ADMIN;
+
+    private static final String PREFIX = "ROLE_";
+    private static final Role[] ROLES = values();
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public static int mask(Role... roles) {
+        int mask = 0;
+        for (Role role : roles) {
+            mask |= role.bit();
+        }
+        return mask;
+    }
+
+    /**
+     * Authorities that are not {@code ROLE_<role>} of a known role are ignored.
+     */
+    public static int mask(Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority authority : authorities) {
+            String name = authority.getAuthority();
+            if (name != null && name.startsWith(PREFIX)) {
+                for (Role role : ROLES) {
+                    if (name.length() == PREFIX.length() + role.name().length() && name.endsWith(role.name())) {
+                        mask |= role.bit();
+                    }
+                }
+            }
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,53 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Enforces an {@link AuthorizationPolicy} in the security filter chain, in place of Spring Security's
+ * authorization filter and method security.
+ * <p>
+ * Roles come from {@link DevDojoUser#getRoleMask()}, which is parsed once per loaded user, that is per
+ * authentication; other principals have theirs computed from the authorities. Denials raise
+ * {@link AccessDeniedException}, which the exception translation filter turns into 401 for anonymous
+ * requests and 403 otherwise.
+ */
+@RequiredArgsConstructor
+public class RoleAuthorizationWebFilter implements WebFilter {
+
+    private final AuthorizationPolicy authorizationPolicy;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        int requiredRoles = authorizationPolicy.requiredRoles(request.getMethod(), request.getPath());
+        if (requiredRoles == AuthorizationPolicy.PERMIT_ALL) {
+            return chain.filter(exchange);
+        }
+        return ReactiveSecurityContextHolder.getContext()
+                .filter(context -> isGranted(context.getAuthentication(), requiredRoles))
+                .switchIfEmpty(Mono.error(() -> new AccessDeniedException("Access Denied")))
+                .flatMap(context -> chain.filter(exchange));
+    }
+
+    static boolean isGranted(Authentication authentication, int requiredRoles) {
+        return authentication != null
+                && authentication.isAuthenticated()
+                && AuthorizationPolicy.isGranted(requiredRoles, roles(authentication));
+    }
+
+    private static int roles(Authentication authentication) {
+        Object principal = authentication.getPrincipal();
+        return principal instanceof DevDojoUser
+                ? ((DevDojoUser) principal).getRoleMask()
+                : Role.mask(authentication.getAuthorities());
+    }
+}
@@ -0,0 +1,218 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.domain.AuthToken;
+import academy.devdojo.webflux.domain.Uuids;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtClaimValidator;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtReactiveAuthenticationManager;
+import org.springframework.security.oauth2.server.resource.authentication.ReactiveJwtAuthenticationConverterAdapter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Date;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies HS256-signed JWTs, so that a client pays for the password hash once per login
+ * instead of on every request.
+ * <p>
+ * Access tokens carry the user's roles and are verified from the signature and claims alone, without a
+ * user lookup; they live for {@code devdojo.security.token.access-ttl}. Refresh tokens, valid for
+ * {@code devdojo.security.token.refresh-ttl}, are exchanged for a new pair after reloading the user, which
+ * picks up role changes and removed users. Both carry the {@code auth_time} of the password login, which
+ * refreshes keep, so no token outlives {@code devdojo.security.token.max-session-age} from that login and
+ * the user has to sign in again. Neither can stand in for the other. Without
+ * {@code devdojo.security.token.secret} a random key is generated, so tokens do not survive a restart
+ * and are only accepted by the replica that issued them.
+ */
+@Log4j2
+@Service
+public class TokenService {
+
+    public static final String TOKEN_TYPE = "Bearer";
+    static final String ROLES_CLAIM = "roles";
+    static final String TOKEN_USE_CLAIM = "token_use";
+    static final String AUTH_TIME_CLAIM = "auth_time";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final ReactiveUserDetailsService userDetailsService;
+    private final JWSSigner signer;
+    private final NimbusReactiveJwtDecoder accessTokenDecoder;
+    private final NimbusReactiveJwtDecoder refreshTokenDecoder;
+    private final String issuer;
+    private final Duration accessTtl;
+    private final Duration refreshTtl;
+    private final Duration maxSessionAge;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(ReactiveUserDetailsService userDetailsService,
+                        @Value("${devdojo.security.token.secret:}") String secret,
+                        @Value("${devdojo.security.token.issuer:spring-webflux-essentials}") String issuer,
+                        @Value("${devdojo.security.token.access-ttl:15m}") Duration accessTtl,
+                        @Value("${devdojo.security.token.refresh-ttl:8h}") Duration refreshTtl,
+                        @Value("${devdojo.security.token.max-session-age:24h}") Duration maxSessionAge) {
+        this(userDetailsService, secret, issuer, accessTtl, refreshTtl, maxSessionAge, Clock.systemUTC());
+    }
+
+    TokenService(ReactiveUserDetailsService userDetailsService, String secret, String issuer, Duration accessTtl,
+                 Duration refreshTtl, Duration maxSessionAge, Clock clock) {
+        this.userDetailsService = userDetailsService;
+        this.issuer = issuer;
+        this.accessTtl = accessTtl;
+        this.refreshTtl = refreshTtl;
+        this.maxSessionAge = maxSessionAge;
+        this.clock = clock;
+        byte[] key = key(secret);
+        try {
+            this.signer = new MACSigner(key);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Invalid token secret", e);
+        }
+        this.accessTokenDecoder = decoder(key, ACCESS);
+        this.refreshTokenDecoder = decoder(key, REFRESH);
+    }
+
+    /**
+     * Authenticates bearer access tokens; the authorities are the token's {@code roles} claim.
+     */
+    public ReactiveAuthenticationManager authenticationManager() {
+        JwtGrantedAuthoritiesConverter authoritiesConverter = new JwtGrantedAuthoritiesConverter();
+        authoritiesConverter.setAuthoritiesClaimName(ROLES_CLAIM);
+        authoritiesConverter.setAuthorityPrefix("");
+        JwtAuthenticationConverter authenticationConverter = new JwtAuthenticationConverter();
+        authenticationConverter.setJwtGrantedAuthoritiesConverter(authoritiesConverter);
+
+        JwtReactiveAuthenticationManager authenticationManager = new JwtReactiveAuthenticationManager(accessTokenDecoder);
+        authenticationManager.setJwtAuthenticationConverter(new ReactiveJwtAuthenticationConverterAdapter(authenticationConverter));
+        return authenticationManager;
+    }
+
+    /**
+     * Issues a pair for a user who just signed in with their password, starting a new session.
+     */
+    public AuthToken issue(UserDetails user) {
+        return issue(user, clock.instant().truncatedTo(ChronoUnit.SECONDS));
+    }
+
+    /**
+     * Exchanges a refresh token for a new pair within the same session, rejecting it once the session
+     * is older than {@code devdojo.security.token.max-session-age}.
+     */
+    public Mono<AuthToken> refresh(String refreshToken) {
+        return refreshTokenDecoder.decode(refreshToken)
+                .onErrorMap(JwtException.class, e -> invalidRefreshToken())
+                .flatMap(jwt -> {
+                    Instant authTime = jwt.getClaimAsInstant(AUTH_TIME_CLAIM);
+                    if (authTime == null || !clock.instant().isBefore(authTime.plus(maxSessionAge))) {
+                        return Mono.error(invalidRefreshToken());
+                    }
+                    return userDetailsService.findByUsername(jwt.getSubject())
+                            .map(user -> issue(user, authTime));
+                })
+                .switchIfEmpty(Mono.error(TokenService::invalidRefreshToken));
+    }
+
+    private AuthToken issue(UserDetails user, Instant authTime) {
+        Instant now = clock.instant();
+        Instant sessionEnd = authTime.plus(maxSessionAge);
+        Instant accessExpiration = min(now.plus(accessTtl), sessionEnd);
+        return AuthToken.builder()
+                .accessToken(sign(user.getUsername(), ACCESS, now, accessExpiration, authTime, user.getAuthorities()))
+                .tokenType(TOKEN_TYPE)
+                .expiresIn(Duration.between(now, accessExpiration).toSeconds())
+                .refreshToken(sign(user.getUsername(), REFRESH, now, min(now.plus(refreshTtl), sessionEnd), authTime,
+                        null))
+                .build();
+    }
+
+    private String sign(String subject, String tokenUse, Instant now, Instant expiration, Instant authTime,
+                        Collection<? extends GrantedAuthority> authorities) {
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .issuer(issuer)
+                .subject(subject)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(expiration))
+                .jwtID(Uuids.random().toString())
+                .claim(TOKEN_USE_CLAIM, tokenUse)
+                .claim(AUTH_TIME_CLAIM, authTime.getEpochSecond());
+        if (authorities != null) {
+            claims.claim(ROLES_CLAIM, authorities.stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .collect(Collectors.toList()));
+        }
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims.build());
+        try {
+            jwt.sign(signer);
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not sign token", e);
+        }
+        return jwt.serialize();
+    }
+
+    private NimbusReactiveJwtDecoder decoder(byte[] key, String tokenUse) {
+        NimbusReactiveJwtDecoder decoder = NimbusReactiveJwtDecoder
+                .withSecretKey(new SecretKeySpec(key, "HmacSHA256"))
+                .macAlgorithm(MacAlgorithm.HS256)
+                .build();
+        decoder.setJwtValidator(new DelegatingOAuth2TokenValidator<>(
+                JwtValidators.createDefaultWithIssuer(issuer),
+                new JwtClaimValidator<String>(TOKEN_USE_CLAIM, tokenUse::equals)));
+        return decoder;
+    }
+
+    private static byte[] key(String secret) {
+        if (secret.isEmpty()) {
+            log.warn("devdojo.security.token.secret não configurado, usando chave aleatória");
+            byte[] key = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(key);
+            return key;
+        }
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("devdojo.security.token.secret must have at least "
+                    + MIN_SECRET_BYTES + " bytes");
+        }
+        return key;
+    }
+
+    private static Instant min(Instant first, Instant second) {
+        return first.isBefore(second) ? first : second;
+    }
+
+    private static ResponseStatusException invalidRefreshToken() {
+        return new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+    }
+}
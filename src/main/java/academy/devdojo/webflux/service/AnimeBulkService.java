@@ -0,0 +1,144 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.cache.LocalCache;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeBatchOutcome;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import io.netty.util.internal.StringUtil;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk rename and delete with set-based statements.
+ * <p>
+ * Null items, items without an id and renames to an empty name are reported {@code INVALID}. The
+ * other ids are de-duplicated (the last rename of an id wins) and processed in chunks of
+ * {@code devdojo.batch.chunk-size}, each chunk being one statement plus its outbox events in its own
+ * transaction. Outcomes are emitted per id as soon as its chunk commits; if a chunk fails the stream
+ * ends with the error and the chunks before it stay committed. Both run in the batch {@link Bulkheads}
+ * workload.
+ */
+@Log4j2
+@Service
+public class AnimeBulkService {
+
+    private final AnimeRepository animeRepository;
+    private final AnimeOutbox animeOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LocalCache<Integer, Anime> animeCache;
+    private final Bulkheads bulkheads;
+    private final int chunkSize;
+
+    public AnimeBulkService(AnimeRepository animeRepository,
+                            AnimeOutbox animeOutbox,
+                            TransactionalOperator transactionalOperator,
+                            ApplicationEventPublisher applicationEventPublisher,
+                            LocalCache<Integer, Anime> animeCache,
+                            Bulkheads bulkheads,
+                            @Value("${devdojo.batch.chunk-size:500}") int chunkSize) {
+        this.animeRepository = animeRepository;
+        this.animeOutbox = animeOutbox;
+        this.transactionalOperator = transactionalOperator;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.animeCache = animeCache;
+        this.bulkheads = bulkheads;
+        this.chunkSize = chunkSize;
+    }
+
+    public Flux<AnimeBatchOutcome> updateAll(List<Anime> animes) {
+        log.info("Renomeando {} animes em lote", animes.size());
+        return bulkheads.batch(Flux.defer(() -> {
+            List<AnimeBatchOutcome> invalid = new ArrayList<>();
+            Map<Integer, Anime> byId = new LinkedHashMap<>();
+            for (Anime anime : animes) {
+                if (anime == null) {
+                    invalid.add(new AnimeBatchOutcome(null, AnimeBatchOutcome.Status.INVALID));
+                } else if (anime.getId() <= 0) {
+                    // a missing or null id deserializes to 0, and ids start at 1
+                    invalid.add(new AnimeBatchOutcome(anime.getId(), AnimeBatchOutcome.Status.INVALID));
+                } else {
+                    byId.put(anime.getId(), anime);
+                }
+            }
+            Map<Boolean, List<Anime>> validity = byId.values().stream()
+                    .collect(Collectors.partitioningBy(anime -> !StringUtil.isNullOrEmpty(anime.getName())));
+            validity.get(false).forEach(anime ->
+                    invalid.add(new AnimeBatchOutcome(anime.getId(), AnimeBatchOutcome.Status.INVALID)));
+
+            return Flux.fromIterable(invalid)
+                    .concatWith(Flux.fromIterable(chunks(validity.get(true)))
+                            .concatMap(this::updateChunk));
+        }));
+    }
+
+    public Flux<AnimeBatchOutcome> deleteAll(List<Integer> ids) {
+        log.info("Removendo {} animes em lote", ids.size());
+        return bulkheads.batch(Flux.defer(() -> {
+            Set<Integer> distinct = new LinkedHashSet<>(ids);
+            Flux<AnimeBatchOutcome> invalid = distinct.remove(null)
+                    ? Flux.just(new AnimeBatchOutcome(null, AnimeBatchOutcome.Status.INVALID))
+                    : Flux.empty();
+            return invalid.concatWith(Flux.fromIterable(chunks(new ArrayList<>(distinct)))
+                    .concatMap(this::deleteChunk));
+        }));
+    }
+
+    private Flux<AnimeBatchOutcome> updateChunk(List<Anime> chunk) {
+        Mono<List<Anime>> update = animeRepository.updateNames(chunk)
+                .collectList()
+                .flatMap(updated -> animeOutbox.recordAll(AnimeEventType.UPDATED, updated).thenReturn(updated));
+
+        return transactionalOperator.transactional(update)
+                .flatMapMany(updated -> outcomes(chunk.stream().map(Anime::getId).collect(Collectors.toList()),
+                        updated, AnimeEventType.UPDATED, AnimeBatchOutcome.Status.UPDATED));
+    }
+
+    private Flux<AnimeBatchOutcome> deleteChunk(List<Integer> chunk) {
+        Mono<List<Anime>> delete = animeRepository.deleteAllReturning(chunk)
+                .collectList()
+                .flatMap(deleted -> animeOutbox.recordAll(AnimeEventType.DELETED, deleted).thenReturn(deleted));
+
+        return transactionalOperator.transactional(delete)
+                .flatMapMany(deleted -> outcomes(chunk, deleted, AnimeEventType.DELETED, AnimeBatchOutcome.Status.DELETED));
+    }
+
+    private Flux<AnimeBatchOutcome> outcomes(List<Integer> requested, List<Anime> changed,
+                                             AnimeEventType eventType, AnimeBatchOutcome.Status status) {
+        changed.forEach(anime -> publishChange(eventType, anime));
+        Set<Integer> changedIds = changed.stream()
+                .map(Anime::getId)
+                .collect(Collectors.toSet());
+        return Flux.fromIterable(requested)
+                .map(id -> new AnimeBatchOutcome(id, changedIds.contains(id) ? status : AnimeBatchOutcome.Status.NOT_FOUND));
+    }
+
+    private <T> List<List<T>> chunks(List<T> items) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            chunks.add(items.subList(from, Math.min(items.size(), from + chunkSize)));
+        }
+        return chunks;
+    }
+
+    private void publishChange(AnimeEventType type, Anime anime) {
+        animeCache.invalidate(anime.getId());
+        applicationEventPublisher.publishEvent(new AnimeChangedEvent(type, anime));
+    }
+}
@@ -0,0 +1,15 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import lombok.Value;
+
+/**
+ * In-process notification published once an anime change has been committed.
+ */
+@Value
+public class AnimeChangedEvent {
+
+    AnimeEventType type;
+    Anime anime;
+}
@@ -1,33 +1,53 @@
 package academy.devdojo.webflux.service;
 
+import academy.devdojo.webflux.cache.LocalCache;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
 import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import academy.devdojo.webflux.tracing.Traced;
 import io.netty.util.internal.StringUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @Log4j2
+@Traced
 @RequiredArgsConstructor
 public class AnimeService {
 
     private final AnimeRepository animeRepository;
+    private final AnimeWriteBehindBuffer animeWriteBehindBuffer;
+    private final AnimeOutbox animeOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LocalCache<Integer, Anime> animeCache;
+    private final Bulkheads bulkheads;
 
     public Flux<Anime> findAll() {
-        log.info("Realizando busca de todos os animes do banco de dados");
-        return animeRepository.findAll();
+        log.debug("Realizando busca de todos os animes do banco de dados");
+        return bulkheads.read(animeRepository.findAll());
     }
 
     public Mono<Anime> findById(int id){
-        log.info("Realizando busca de anime, Id: {}", id);
+        log.debug("Realizando busca de anime, Id: {}", id);
+        return bulkheads.read(animeCache.get(id, cachedId -> animeRepository.findById(cachedId.intValue())))
+                .switchIfEmpty(monoResponseStatusNotFoundException());
+    }
+
+    // writes check existence against the database, never against a possibly stale cache entry
+    private Mono<Anime> findByIdForUpdate(int id) {
         return animeRepository.findById(id)
                 .switchIfEmpty(monoResponseStatusNotFoundException());
     }
@@ -37,15 +57,25 @@ public class AnimeService {
     }
 
     public Mono<Anime> save(Anime anime) {
-        log.info("Salvando anime no banco de dados, Id: {}", anime.getAnimeId());
-        return animeRepository.save(anime);
+        log.debug("Salvando anime no banco de dados, Id: {}", anime::getAnimeId);
+        if (animeWriteBehindBuffer.isEnabled()) {
+            return bulkheads.write(animeWriteBehindBuffer.save(anime));
+        }
+        return bulkheads.write(transactionalOperator.transactional(animeRepository.save(anime)
+                        .flatMap(saved -> animeOutbox.record(AnimeEventType.CREATED, saved).thenReturn(saved))))
+                .doOnNext(saved -> publishChange(AnimeEventType.CREATED, saved));
     }
 
-    @Transactional
     public Flux<Anime> saveAll(List<Anime> animes) {
-        log.info("Salvando lista de animes {}", animes);
-        return animeRepository.saveAll(animes)
-                .doOnNext(this::throwResponseStatusExceptionWhenEmptyName);
+        log.debug("Salvando lista de {} animes", animes::size);
+        return bulkheads.batch(Flux.defer(() -> {
+            List<Anime> saved = new ArrayList<>(animes.size());
+            return transactionalOperator.transactional(animeRepository.saveAll(animes)
+                            .doOnNext(this::throwResponseStatusExceptionWhenEmptyName)
+                            .concatMap(anime -> animeOutbox.record(AnimeEventType.CREATED, anime).thenReturn(anime)))
+                    .doOnNext(saved::add)
+                    .doOnComplete(() -> saved.forEach(anime -> publishChange(AnimeEventType.CREATED, anime)));
+        }));
     }
 
     private void throwResponseStatusExceptionWhenEmptyName(Anime animes) {
@@ -55,16 +85,28 @@ public class AnimeService {
     }
 
     public Mono<Void> update(Anime anime){
-        log.info("Realizando atualizacão de anime, Id: {}", anime.getAnimeId());
-        return findById(anime.getId())
-                .map(animeFound -> anime.withId(animeFound.getId()))
-                .flatMap(animeRepository::save)
+        log.debug("Realizando atualizacão de anime, Id: {}", anime::getAnimeId);
+        return bulkheads.write(transactionalOperator.transactional(findByIdForUpdate(anime.getId())
+                        .map(animeFound -> anime.withId(animeFound.getId()))
+                        .flatMap(animeRepository::save)
+                        .flatMap(updated -> animeOutbox.record(AnimeEventType.UPDATED, updated).thenReturn(updated))))
+                .doOnNext(updated -> publishChange(AnimeEventType.UPDATED, updated))
                 .then();
     }
 
     public Mono<Void> delete(int id) {
-        log.info("Realizando delecão de anime, Id: {}", id);
-        return findById(id)
-                .flatMap(animeRepository::delete);
+        log.debug("Realizando delecão de anime, Id: {}", id);
+        return bulkheads.write(transactionalOperator.transactional(findByIdForUpdate(id)
+                        .flatMap(animeFound -> animeRepository.markDeleted(animeFound.getId())
+                                .then(animeOutbox.record(AnimeEventType.DELETED, animeFound))
+                                .thenReturn(animeFound))))
+                .doOnNext(deleted -> publishChange(AnimeEventType.DELETED, deleted))
+                .then();
+    }
+
+    // creations are broadcast too, other replicas' catalog snapshots learn about new animes from them
+    private void publishChange(AnimeEventType type, Anime anime) {
+        animeCache.invalidate(anime.getId());
+        applicationEventPublisher.publishEvent(new AnimeChangedEvent(type, anime));
     }
 }
@@ -0,0 +1,132 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import academy.devdojo.webflux.domain.AnimeSummary;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Aggregates over the anime table, computed in SQL.
+ * <p>
+ * With {@code devdojo.stats.summary.enabled} the total, the per-initial counts and the most recent
+ * {@code devdojo.stats.summary.recent-size} animes are recomputed every
+ * {@code devdojo.stats.summary.refresh-interval} and served from memory, so they may lag writes by up
+ * to one interval. Requests the summary cannot answer, and all requests before the first refresh, go
+ * to the database.
+ */
+@Log4j2
+@Service
+@Lazy(false)
+public class AnimeStatsService {
+
+    private static final int MAX_LIMIT = 1000;
+    private static final int MAX_PREFIX_LENGTH = 10;
+
+    private final AnimeRepository animeRepository;
+    private final boolean summaryEnabled;
+    private final Duration refreshInterval;
+    private final int recentSize;
+    private final AtomicReference<AnimeSummary> summary = new AtomicReference<>();
+    private Disposable refresher;
+
+    public AnimeStatsService(AnimeRepository animeRepository,
+                             @Value("${devdojo.stats.summary.enabled:false}") boolean summaryEnabled,
+                             @Value("${devdojo.stats.summary.refresh-interval:30s}") Duration refreshInterval,
+                             @Value("${devdojo.stats.summary.recent-size:50}") int recentSize) {
+        this.animeRepository = animeRepository;
+        this.summaryEnabled = summaryEnabled;
+        this.refreshInterval = refreshInterval;
+        this.recentSize = recentSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!summaryEnabled) {
+            return;
+        }
+        refresher = Flux.interval(Duration.ZERO, refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> refresh()
+                        .onErrorResume(error -> {
+                            log.warn("Falha ao atualizar o resumo de animes", error);
+                            return Mono.empty();
+                        }), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refresher != null) {
+            refresher.dispose();
+        }
+    }
+
+    public Mono<AnimeSummary> summary() {
+        return Mono.justOrEmpty(summary.get())
+                .switchIfEmpty(Mono.defer(this::computeSummary));
+    }
+
+    public Mono<Long> count(String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return Mono.justOrEmpty(summary.get())
+                    .map(AnimeSummary::getTotal)
+                    .switchIfEmpty(Mono.defer(animeRepository::count));
+        }
+        return animeRepository.countByNamePrefix(prefix);
+    }
+
+    public Flux<AnimeCount> countByNamePrefix(int length) {
+        if (length < 1 || length > MAX_PREFIX_LENGTH) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "length must be between 1 and " + MAX_PREFIX_LENGTH));
+        }
+        AnimeSummary current = summary.get();
+        if (length == 1 && current != null) {
+            return Flux.fromIterable(current.getByInitial());
+        }
+        return animeRepository.countGroupedByNamePrefix(length);
+    }
+
+    public Flux<Anime> findRecent(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_LIMIT));
+        }
+        AnimeSummary current = summary.get();
+        if (current != null && limit <= current.getRecent().size()) {
+            return Flux.fromIterable(current.getRecent().subList(0, limit));
+        }
+        return animeRepository.findRecent(limit);
+    }
+
+    Mono<AnimeSummary> refresh() {
+        return computeSummary().doOnNext(summary::set);
+    }
+
+    private Mono<AnimeSummary> computeSummary() {
+        return Mono.zip(animeRepository.count(),
+                        animeRepository.countGroupedByNamePrefix(1).collectList(),
+                        animeRepository.findRecent(recentSize).collectList())
+                .map(results -> AnimeSummary.builder()
+                        .total(results.getT1())
+                        .byInitial(results.getT2())
+                        .recent(results.getT3())
+                        .computedAt(Instant.now())
+                        .build());
+    }
+}
@@ -0,0 +1,142 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.cache.LocalCache;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.domain.Uuids;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Optional write-behind mode for {@link AnimeService#save(Anime)}.
+ * <p>
+ * Saves are queued and grouped by count ({@code devdojo.write-behind.max-group-size}) or time
+ * ({@code devdojo.write-behind.max-group-delay}); each group is written in one transaction with a
+ * single multi-row INSERT, together with its outbox events. A caller's {@code Mono} completes with
+ * its own generated id only after the group commit succeeds, and a failed commit is signalled to
+ * every caller of that group.
+ * Cancelling a caller does not withdraw an anime that was already queued.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+public class AnimeWriteBehindBuffer {
+
+    private final AnimeRepository animeRepository;
+    private final AnimeOutbox animeOutbox;
+    private final TransactionalOperator transactionalOperator;
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final LocalCache<Integer, Anime> animeCache;
+    private final boolean enabled;
+    private final int maxGroupSize;
+    private final Duration maxGroupDelay;
+    private final Sinks.Many<PendingSave> pendingSaves = Sinks.many().unicast().onBackpressureBuffer();
+
+    public AnimeWriteBehindBuffer(AnimeRepository animeRepository,
+                                  AnimeOutbox animeOutbox,
+                                  TransactionalOperator transactionalOperator,
+                                  ApplicationEventPublisher applicationEventPublisher,
+                                  LocalCache<Integer, Anime> animeCache,
+                                  @Value("${devdojo.write-behind.enabled:false}") boolean enabled,
+                                  @Value("${devdojo.write-behind.max-group-size:64}") int maxGroupSize,
+                                  @Value("${devdojo.write-behind.max-group-delay:5ms}") Duration maxGroupDelay) {
+        this.animeRepository = animeRepository;
+        this.animeOutbox = animeOutbox;
+        this.transactionalOperator = transactionalOperator;
+        this.applicationEventPublisher = applicationEventPublisher;
+        this.animeCache = animeCache;
+        this.enabled = enabled;
+        this.maxGroupSize = maxGroupSize;
+        this.maxGroupDelay = maxGroupDelay;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        pendingSaves.asFlux()
+                .bufferTimeout(maxGroupSize, maxGroupDelay)
+                .concatMap(this::commitGroup)
+                .subscribe();
+    }
+
+    /**
+     * Stops accepting saves; groups already queued are still committed.
+     */
+    @PreDestroy
+    public void stop() {
+        synchronized (pendingSaves) {
+            pendingSaves.tryEmitComplete();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Mono<Anime> save(Anime anime) {
+        return Mono.create(sink -> {
+            PendingSave pendingSave = new PendingSave(withAnimeId(anime), sink);
+            Sinks.EmitResult result;
+            // the unicast sink takes one emitter at a time, callers queue on the lock instead of spinning
+            synchronized (pendingSaves) {
+                result = pendingSaves.tryEmitNext(pendingSave);
+            }
+            if (result.isFailure()) {
+                sink.error(new IllegalStateException("Write-behind buffer is not accepting saves: " + result));
+            }
+        });
+    }
+
+    private Mono<Void> commitGroup(List<PendingSave> group) {
+        log.info("Salvando grupo de {} animes no banco de dados", group.size());
+        List<Anime> animes = group.stream()
+                .map(PendingSave::getAnime)
+                .collect(Collectors.toList());
+
+        Mono<List<Anime>> groupCommit = animeRepository.insertAll(animes)
+                .collectList()
+                .flatMap(saved -> animeOutbox.recordAll(AnimeEventType.CREATED, saved).thenReturn(saved));
+
+        return transactionalOperator.transactional(groupCommit)
+                .doOnNext(saved -> {
+                    for (int i = 0; i < group.size(); i++) {
+                        animeCache.invalidate(saved.get(i).getId());
+                        applicationEventPublisher.publishEvent(new AnimeChangedEvent(AnimeEventType.CREATED, saved.get(i)));
+                        group.get(i).getSink().success(saved.get(i));
+                    }
+                })
+                .doOnError(error -> group.forEach(pendingSave -> pendingSave.getSink().error(error)))
+                .then()
+                .onErrorResume(error -> Mono.empty());
+    }
+
+    private static Anime withAnimeId(Anime anime) {
+        return anime.getAnimeId() == null ? anime.withAnimeId(Uuids.random().toString()) : anime;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class PendingSave {
+        private final Anime anime;
+        private final MonoSink<Anime> sink;
+    }
+}
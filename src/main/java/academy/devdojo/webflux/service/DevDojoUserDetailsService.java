@@ -1,6 +1,7 @@
 package academy.devdojo.webflux.service;
 
 import academy.devdojo.webflux.repository.DevDojoUserRepository;
+import academy.devdojo.webflux.tracing.Traced;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -9,6 +10,7 @@ import reactor.core.publisher.Mono;
 
 @RequiredArgsConstructor
 @Service
+@Traced
 public class DevDojoUserDetailsService implements ReactiveUserDetailsService {
 
     private final DevDojoUserRepository devDojoUserRepository;
@@ -0,0 +1,306 @@
+package academy.devdojo.webflux.snapshot;
+
+import academy.devdojo.webflux.cache.CacheConfig;
+import academy.devdojo.webflux.cache.InvalidationBus;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.service.AnimeChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable, pre-serialized copy of the whole anime catalog, used by {@link AnimeCatalogSnapshotHandler}
+ * to answer {@code GET /animes} without a query or per-request serialization.
+ * <p>
+ * Every anime is serialized once, when it is loaded or changed; the JSON array and its gzip form are
+ * reassembled from those entries at most once per {@code devdojo.snapshot.rebuild-interval}, off the
+ * event loop. With {@code devdojo.snapshot.storage=mmap} both forms are written to
+ * {@code devdojo.snapshot.directory} and served from read-only memory-mapped buffers.
+ * <p>
+ * Changes made on this replica are applied from their {@link AnimeChangedEvent}. Every write also
+ * invalidates the anime on the {@link InvalidationBus}, and each id received there is read again, one at
+ * a time and in order, so writes from other replicas show up as well; {@link InvalidationBus#ALL} reloads
+ * the whole catalog. Changes arriving while the catalog is (re)loaded win over the rows the load read.
+ */
+@Log4j2
+@Component
+@ConditionalOnProperty(name = "devdojo.snapshot.enabled", havingValue = "true")
+public class AnimeCatalogSnapshot {
+
+    private static final byte[] OPEN = {'['};
+    private static final byte[] SEPARATOR = {','};
+    private static final byte[] CLOSE = {']'};
+
+    private static final String KEY_PREFIX = CacheConfig.ANIME_CACHE + ":";
+
+    private final AnimeRepository animeRepository;
+    private final InvalidationBus invalidationBus;
+    private final ObjectMapper objectMapper;
+    private final boolean memoryMapped;
+    private final Path directory;
+    private final Duration rebuildInterval;
+    private final ConcurrentSkipListMap<Integer, byte[]> entries = new ConcurrentSkipListMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // guarded by entries: ids changed while a load is running
+    private final Set<Integer> changedDuringLoad = new HashSet<>();
+    private boolean loading;
+    private volatile Snapshot current;
+    private Disposable refreshes;
+    private Disposable rebuilds;
+
+    public AnimeCatalogSnapshot(AnimeRepository animeRepository,
+                                InvalidationBus invalidationBus,
+                                ObjectMapper objectMapper,
+                                @Value("${devdojo.snapshot.storage:heap}") String storage,
+                                @Value("${devdojo.snapshot.directory:${java.io.tmpdir}}") Path directory,
+                                @Value("${devdojo.snapshot.rebuild-interval:200ms}") Duration rebuildInterval) {
+        this.animeRepository = animeRepository;
+        this.invalidationBus = invalidationBus;
+        this.objectMapper = objectMapper;
+        this.memoryMapped = "mmap".equalsIgnoreCase(storage);
+        this.directory = directory;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        refreshes = Flux.just(InvalidationBus.ALL)
+                .concatWith(invalidationBus.invalidations()
+                        .filter(key -> InvalidationBus.ALL.equals(key) || key.startsWith(KEY_PREFIX))
+                        .onBackpressureBuffer())
+                .concatMap(key -> (InvalidationBus.ALL.equals(key) ? load() : reload(key))
+                        .onErrorResume(error -> {
+                            log.error("Falha ao atualizar snapshot do catalogo de animes, chave: {}", key, error);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+        rebuilds = Flux.interval(rebuildInterval, Schedulers.boundedElastic())
+                .onBackpressureDrop()
+                .subscribe(tick -> rebuildIfDirty());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (refreshes != null) {
+            refreshes.dispose();
+        }
+        if (rebuilds != null) {
+            rebuilds.dispose();
+        }
+        Snapshot last = current;
+        if (memoryMapped && last != null) {
+            deleteQuietly(file(last.getVersion(), ".json"));
+            deleteQuietly(file(last.getVersion(), ".json.gz"));
+        }
+    }
+
+    @EventListener
+    public void onAnimeChanged(AnimeChangedEvent event) {
+        Anime anime = event.getAnime();
+        apply(anime.getId(), event.getType() == AnimeEventType.DELETED ? null : serialize(anime));
+    }
+
+    /**
+     * Reads the whole catalog and replaces the entries with it, except those changed meanwhile.
+     */
+    Mono<Void> load() {
+        return Mono.defer(() -> {
+            synchronized (entries) {
+                loading = true;
+                changedDuringLoad.clear();
+            }
+            Map<Integer, byte[]> loaded = new HashMap<>();
+            return animeRepository.findAll()
+                    .doOnNext(anime -> loaded.put(anime.getId(), serialize(anime)))
+                    .doFinally(signal -> {
+                        synchronized (entries) {
+                            loading = false;
+                        }
+                    })
+                    .then(Mono.fromRunnable(() -> merge(loaded)));
+        });
+    }
+
+    private void merge(Map<Integer, byte[]> loaded) {
+        synchronized (entries) {
+            entries.keySet().removeIf(id -> !loaded.containsKey(id) && !changedDuringLoad.contains(id));
+            loaded.forEach((id, entry) -> {
+                if (!changedDuringLoad.contains(id)) {
+                    entries.put(id, entry);
+                }
+            });
+            changedDuringLoad.clear();
+        }
+        dirty.set(true);
+    }
+
+    private Mono<Void> reload(String key) {
+        int id;
+        try {
+            id = Integer.parseInt(key.substring(KEY_PREFIX.length()));
+        } catch (NumberFormatException exception) {
+            return Mono.empty();
+        }
+        return animeRepository.findById(id)
+                .map(anime -> Optional.of(serialize(anime)))
+                .defaultIfEmpty(Optional.empty())
+                .doOnNext(entry -> apply(id, entry.orElse(null)))
+                .then();
+    }
+
+    // a null entry removes the anime
+    private void apply(int id, byte[] entry) {
+        synchronized (entries) {
+            if (entry == null) {
+                entries.remove(id);
+            } else {
+                entries.put(id, entry);
+            }
+            if (loading) {
+                changedDuringLoad.add(id);
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * The latest snapshot, or {@code null} while the catalog is still being loaded.
+     */
+    public Snapshot current() {
+        return current;
+    }
+
+    public void rebuildIfDirty() {
+        if (dirty.getAndSet(false)) {
+            rebuild();
+        }
+    }
+
+    public void rebuild() {
+        Snapshot previous = current;
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        byte[] json = assemble();
+        byte[] gzip = gzip(json);
+        String etag = etag(json);
+        current = memoryMapped
+                ? new Snapshot(version, etag, map(version, ".json", json), map(version, ".json.gz", gzip))
+                : new Snapshot(version, etag, ByteBuffer.wrap(json).asReadOnlyBuffer(),
+                        ByteBuffer.wrap(gzip).asReadOnlyBuffer());
+        if (memoryMapped && previous != null) {
+            // buffers already handed out stay valid: a mapping outlives the deletion of its file
+            deleteQuietly(file(previous.getVersion(), ".json"));
+            deleteQuietly(file(previous.getVersion(), ".json.gz"));
+        }
+    }
+
+    private byte[] assemble() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        json.writeBytes(OPEN);
+        boolean first = true;
+        for (byte[] entry : entries.values()) {
+            if (!first) {
+                json.writeBytes(SEPARATOR);
+            }
+            json.writeBytes(entry);
+            first = false;
+        }
+        json.writeBytes(CLOSE);
+        return json.toByteArray();
+    }
+
+    private byte[] serialize(Anime anime) {
+        try {
+            return objectMapper.writeValueAsBytes(anime);
+        } catch (JsonProcessingException exception) {
+            throw new IllegalStateException("Could not serialize anime " + anime.getId(), exception);
+        }
+    }
+
+    // derived from the content, so every replica and restart tags the same catalog alike
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("Could not hash the catalog", exception);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return compressed.toByteArray();
+    }
+
+    private ByteBuffer map(long version, String suffix, byte[] content) {
+        Path file = file(version, suffix);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(content));
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, content.length);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private Path file(long version, String suffix) {
+        return directory.resolve("anime-catalog-" + version + suffix);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException exception) {
+            log.warn("Nao foi possivel remover snapshot antigo {}", file, exception);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class Snapshot {
+        private final long version;
+        // quoted SHA-256 of the json form
+        private final String etag;
+        private final ByteBuffer json;
+        private final ByteBuffer gzip;
+    }
+}
@@ -0,0 +1,88 @@
+package academy.devdojo.webflux.snapshot;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.service.AnimeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Serves {@code GET /animes} from {@link AnimeCatalogSnapshot} when {@code devdojo.snapshot.enabled} is set.
+ * <p>
+ * The route is registered as a {@link RouterFunction}, which WebFlux consults before annotated
+ * controllers, so it takes over {@code AnimeController#listAll} and falls back to it (through
+ * {@link AnimeService}) only while the first snapshot is being built. The snapshot buffers are wrapped,
+ * not copied, into the response, gzip-encoded when the client accepts it, and tagged with an ETag
+ * derived from the catalog's content, so replicas agree on it and {@code If-None-Match} works across
+ * them. The {@code GET /animes} rule of the {@link academy.devdojo.webflux.security.AuthorizationPolicy}
+ * applies to either handler.
+ */
+@Configuration
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "devdojo.snapshot.enabled", havingValue = "true")
+public class AnimeCatalogSnapshotHandler {
+
+    private final AnimeCatalogSnapshot animeCatalogSnapshot;
+    private final AnimeService animeService;
+
+    @Bean
+    public RouterFunction<ServerResponse> animeCatalogSnapshotRoute() {
+        return RouterFunctions.route(RequestPredicates.GET("/animes"), this::listAll);
+    }
+
+    public Mono<ServerResponse> listAll(ServerRequest request) {
+        AnimeCatalogSnapshot.Snapshot snapshot = animeCatalogSnapshot.current();
+        if (snapshot == null) {
+            return ServerResponse.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(animeService.findAll(), Anime.class);
+        }
+        if (matchesAny(request, snapshot.getEtag())) {
+            return ServerResponse.status(304).eTag(snapshot.getEtag()).build();
+        }
+        boolean gzip = acceptsGzip(request);
+        ServerResponse.BodyBuilder response = ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.getEtag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        ByteBuffer body = (gzip ? snapshot.getGzip() : snapshot.getJson()).duplicate();
+        return response
+                .contentLength(body.remaining())
+                .body(BodyInserters.fromDataBuffers(Mono.fromSupplier(() -> wrap(request, body))));
+    }
+
+    private static DataBuffer wrap(ServerRequest request, ByteBuffer body) {
+        return request.exchange().getResponse().bufferFactory().wrap(body);
+    }
+
+    // If-None-Match is a comma-separated list, compared weakly, or * for any current representation
+    private static boolean matchesAny(ServerRequest request, String etag) {
+        return request.headers().header(HttpHeaders.IF_NONE_MATCH).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
+
+    private static boolean acceptsGzip(ServerRequest request) {
+        return request.headers().header(HttpHeaders.ACCEPT_ENCODING).stream()
+                .anyMatch(value -> value.contains("gzip"));
+    }
+}
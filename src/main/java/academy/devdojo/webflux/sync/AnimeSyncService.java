@@ -0,0 +1,140 @@
+package academy.devdojo.webflux.sync;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChanges;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Incremental sync of the anime catalog: every insert, update and delete after a watermark, in
+ * (updated_at, id) order, so a client that stored the last watermark only fetches what changed since.
+ * <p>
+ * Deletes show up as tombstones until {@link TombstoneCompactor} purges them after
+ * {@code devdojo.sync.tombstone-retention}. A watermark also records since when the client's copy has been
+ * complete up to its position; when that is older than the retention, deletes the client still needed may
+ * have been purged, it is refused with 410 and the client has to reload the catalog from scratch. Changes
+ * of the last
+ * {@code devdojo.sync.settle-time} are held back, a transaction committing later than that may stamp a
+ * row below a watermark already handed out.
+ */
+@Log4j2
+@Service
+public class AnimeSyncService {
+
+    private static final int MAX_LIMIT = 1000;
+
+    private final AnimeRepository animeRepository;
+    private final Bulkheads bulkheads;
+    private final Duration tombstoneRetention;
+    private final Duration settleTime;
+
+    public AnimeSyncService(AnimeRepository animeRepository,
+                            Bulkheads bulkheads,
+                            @Value("${devdojo.sync.tombstone-retention:7d}") Duration tombstoneRetention,
+                            @Value("${devdojo.sync.settle-time:5s}") Duration settleTime) {
+        this.animeRepository = animeRepository;
+        this.bulkheads = bulkheads;
+        this.tombstoneRetention = tombstoneRetention;
+        this.settleTime = settleTime;
+    }
+
+    /**
+     * Up to {@code limit} changes after the watermark {@code since}, or from the start of the catalog
+     * without one.
+     */
+    public Mono<AnimeChanges> changesSince(String since, int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + MAX_LIMIT));
+        }
+        Watermark from;
+        try {
+            from = since == null || since.isEmpty() ? Watermark.START : Watermark.parse(since);
+        } catch (IllegalArgumentException exception) {
+            return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid watermark", exception));
+        }
+        Instant now = Instant.now();
+        if (from != Watermark.START && from.completeSince().isBefore(now.minus(tombstoneRetention))) {
+            return Mono.error(new ResponseStatusException(HttpStatus.GONE,
+                    "Watermark older than the tombstone retention, reload the whole catalog"));
+        }
+        Instant syncedAt = from == Watermark.START ? now : from.syncedAt;
+        log.debug("Buscando alteracoes de animes desde {}", from);
+        return bulkheads.read(animeRepository.findChangedAfter(from.updatedAt, from.id, settleTime.toMillis(), limit)
+                        .collectList())
+                .map(changes -> {
+                    boolean hasMore = changes.size() == limit;
+                    // caught up: nothing else changed up to the settle horizon of this request
+                    Instant nextSyncedAt = hasMore ? syncedAt : now.minus(settleTime);
+                    return new AnimeChanges(changes, next(from, changes, nextSyncedAt).toString(), hasMore);
+                });
+    }
+
+    private static Watermark next(Watermark from, List<Anime> changes, Instant syncedAt) {
+        if (changes.isEmpty()) {
+            return new Watermark(from.updatedAt, from.id, syncedAt);
+        }
+        Anime last = changes.get(changes.size() - 1);
+        return new Watermark(last.getUpdatedAt(), last.getId(), syncedAt);
+    }
+
+    /**
+     * Position of a change and since when the client has been in sync,
+     * {@code <updated_at in epoch microseconds>_<id>_<synced at in epoch microseconds>}; opaque to clients.
+     * {@code syncedAt} is when the sync session started, moved forward whenever the client catches up; a
+     * delete the client has not seen yet is stamped after its position or after {@code syncedAt}, so its
+     * tombstone is still there while the later of the two is within the retention.
+     */
+    static final class Watermark {
+
+        static final Watermark START = new Watermark(Instant.EPOCH, 0, Instant.EPOCH);
+
+        private final Instant updatedAt;
+        private final int id;
+        private final Instant syncedAt;
+
+        Watermark(Instant updatedAt, int id, Instant syncedAt) {
+            this.updatedAt = updatedAt;
+            this.id = id;
+            this.syncedAt = syncedAt;
+        }
+
+        Instant completeSince() {
+            return updatedAt.isAfter(syncedAt) ? updatedAt : syncedAt;
+        }
+
+        static Watermark parse(String value) {
+            String[] parts = value.split("_", -1);
+            if (parts.length != 2 && parts.length != 3) {
+                throw new IllegalArgumentException("Malformed watermark: " + value);
+            }
+            // NumberFormatException is an IllegalArgumentException
+            Instant updatedAt = micros(Long.parseLong(parts[0]));
+            int id = Integer.parseInt(parts[1]);
+            // watermarks handed out before sessions were tracked only know their position
+            Instant syncedAt = parts.length == 3 ? micros(Long.parseLong(parts[2])) : updatedAt;
+            return new Watermark(updatedAt, id, syncedAt);
+        }
+
+        private static Instant micros(long micros) {
+            return Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+        }
+
+        @Override
+        public String toString() {
+            return ChronoUnit.MICROS.between(Instant.EPOCH, updatedAt) + "_" + id + "_"
+                    + ChronoUnit.MICROS.between(Instant.EPOCH, syncedAt);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package academy.devdojo.webflux.sync;
+
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Every {@code devdojo.sync.compaction.interval}, removes the tombstones older than
+ * {@code devdojo.sync.tombstone-retention}, {@code devdojo.sync.compaction.batch-size} rows per statement
+ * on the batch bulkhead so that no single delete holds locks for long. Nothing depends on the compactor,
+ * so it opts out of lazy initialization.
+ */
+@Log4j2
+@Component
+@Lazy(false)
+@ConditionalOnProperty(name = "devdojo.sync.compaction.enabled", havingValue = "true", matchIfMissing = true)
+public class TombstoneCompactor {
+
+    private final AnimeRepository animeRepository;
+    private final Bulkheads bulkheads;
+    private final Duration tombstoneRetention;
+    private final Duration interval;
+    private final int batchSize;
+    private Disposable compaction;
+
+    public TombstoneCompactor(AnimeRepository animeRepository,
+                              Bulkheads bulkheads,
+                              @Value("${devdojo.sync.tombstone-retention:7d}") Duration tombstoneRetention,
+                              @Value("${devdojo.sync.compaction.interval:1h}") Duration interval,
+                              @Value("${devdojo.sync.compaction.batch-size:1000}") int batchSize) {
+        this.animeRepository = animeRepository;
+        this.bulkheads = bulkheads;
+        this.tombstoneRetention = tombstoneRetention;
+        this.interval = interval;
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        compaction = Flux.interval(interval)
+                .onBackpressureDrop()
+                .concatMap(tick -> compact(), 1)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        compaction.dispose();
+    }
+
+    /**
+     * Purges batches until one comes back short, emitting the total removed.
+     */
+    public Mono<Long> compact() {
+        return purgeBatch()
+                .expand(purged -> purged == batchSize ? purgeBatch() : Mono.empty())
+                .reduce(0L, (total, purged) -> total + purged)
+                .doOnNext(total -> {
+                    if (total > 0) {
+                        log.info("{} tombstones de animes removidos", total);
+                    }
+                })
+                .onErrorResume(error -> {
+                    log.warn("Falha ao compactar tombstones de animes, nova tentativa em {}", interval, error);
+                    return Mono.just(0L);
+                });
+    }
+
+    private Mono<Integer> purgeBatch() {
+        return bulkheads.batch(Mono.defer(() -> animeRepository.purgeTombstones(tombstoneRetention.toMillis(), batchSize)));
+    }
+}
@@ -0,0 +1,52 @@
+package academy.devdojo.webflux.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends every span as one JSON line (NDJSON) to {@code devdojo.tracing.file.path}.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.tracing.exporter", havingValue = "file")
+public class FileSpanExporter implements SpanExporter {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    public FileSpanExporter(@Value("${devdojo.tracing.file.path:traces.ndjson}") Path path,
+                            ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> export(List<SpanData> spans) {
+        return Mono.fromCallable(() -> append(toLines(spans)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then();
+    }
+
+    private byte[] toLines(List<SpanData> spans) throws JsonProcessingException {
+        StringBuilder lines = new StringBuilder();
+        for (SpanData span : spans) {
+            lines.append(objectMapper.writeValueAsString(span)).append('\n');
+        }
+        return lines.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private synchronized Path append(byte[] lines) throws IOException {
+        return Files.write(path, lines, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+    }
+}
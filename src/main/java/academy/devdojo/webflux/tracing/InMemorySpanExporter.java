@@ -0,0 +1,32 @@
+package academy.devdojo.webflux.tracing;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps exported spans in memory; meant for tests and local demos.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.tracing.exporter", havingValue = "memory")
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final ConcurrentLinkedQueue<SpanData> spans = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public Mono<Void> export(List<SpanData> trace) {
+        return Mono.fromRunnable(() -> spans.addAll(trace));
+    }
+
+    public List<SpanData> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public void clear() {
+        spans.clear();
+    }
+}
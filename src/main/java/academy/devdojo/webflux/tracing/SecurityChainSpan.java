@@ -0,0 +1,59 @@
+package academy.devdojo.webflux.tracing;
+
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Records the time a request spends in the {@code SecurityWebFilterChain}, from its first filter to its
+ * last one, or to the response when the chain rejects the request. Register {@link #start()} at
+ * {@code SecurityWebFiltersOrder.FIRST} and {@link #end()} at {@code SecurityWebFiltersOrder.LAST}.
+ */
+public class SecurityChainSpan {
+
+    public static final String NAME = "SecurityWebFilterChain";
+    private static final String STARTED_AT = SecurityChainSpan.class.getName() + ".STARTED_AT";
+
+    private final Tracer tracer;
+
+    public SecurityChainSpan(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    public WebFilter start() {
+        return (exchange, chain) -> {
+            if (!tracer.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            return Mono.deferContextual(context -> {
+                exchange.getAttributes().put(STARTED_AT, System.nanoTime());
+                return chain.filter(exchange)
+                        .doFinally(signal -> record(exchange, context, false));
+            });
+        };
+    }
+
+    public WebFilter end() {
+        return (exchange, chain) -> {
+            if (!tracer.isEnabled()) {
+                return chain.filter(exchange);
+            }
+            return Mono.deferContextual(context -> {
+                record(exchange, context, true);
+                return chain.filter(exchange);
+            });
+        };
+    }
+
+    private void record(ServerWebExchange exchange, ContextView context, boolean passed) {
+        Long startedAt = (Long) exchange.getAttributes().remove(STARTED_AT);
+        if (startedAt != null) {
+            tracer.record(context, NAME, Duration.ofNanos(System.nanoTime() - startedAt), false,
+                    Map.of("security.passed", String.valueOf(passed)));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package academy.devdojo.webflux.tracing;
+
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An operation of a trace that is still running. Spans are created by the {@link Tracer} and travel in the
+ * Reactor context; {@link #attribute} and {@link #fail} may be called from any thread until the span ends.
+ */
+public class Span {
+
+    private final Trace trace;
+    private final String spanId;
+    private final String parentSpanId;
+    private volatile String name;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Map<String, String> attributes = Collections.synchronizedMap(new LinkedHashMap<>());
+    private volatile boolean error;
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private Span(Trace trace, String parentSpanId, String name, long startEpochMicros, long startNanos) {
+        this.trace = trace;
+        this.spanId = randomHex(8);
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochMicros = startEpochMicros;
+        this.startNanos = startNanos;
+    }
+
+    static Span root(String traceId, String parentSpanId, boolean sampled, int maxSpans, String name) {
+        Trace trace = new Trace(traceId == null ? randomHex(16) : traceId, sampled, maxSpans);
+        trace.root = new Span(trace, parentSpanId, name, epochMicros(), System.nanoTime());
+        return trace.root;
+    }
+
+    Span child(String name) {
+        return new Span(trace, spanId, name, epochMicros(), System.nanoTime());
+    }
+
+    public Span attribute(String key, Object value) {
+        attributes.put(key, String.valueOf(value));
+        return this;
+    }
+
+    void rename(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records {@code error} on the span. A 4xx {@link ResponseStatusException} is an answer to the client,
+     * not a failure, and does not mark the span or the trace as failed.
+     */
+    public void fail(Throwable error) {
+        attributes.put("error", error.getClass().getName());
+        if (error instanceof ResponseStatusException
+                && ((ResponseStatusException) error).getStatus().is4xxClientError()) {
+            return;
+        }
+        this.error = true;
+        trace.error = true;
+    }
+
+    /**
+     * The W3C {@code traceparent} header value that continues this trace with this span as parent.
+     */
+    public String getTraceparent() {
+        return "00-" + trace.traceId + "-" + spanId + (trace.sampled ? "-01" : "-00");
+    }
+
+    public String getTraceId() {
+        return trace.traceId;
+    }
+
+    boolean isSampled() {
+        return trace.sampled;
+    }
+
+    boolean hasError() {
+        return trace.error;
+    }
+
+    Duration end() {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (!ended.compareAndSet(false, true)) {
+            return Duration.ofNanos(durationNanos);
+        }
+        SpanData data = data(startEpochMicros, durationNanos, error);
+        if (trace.root == this) {
+            trace.spans.add(data);
+        } else {
+            trace.add(data);
+        }
+        return Duration.ofNanos(durationNanos);
+    }
+
+    /**
+     * Adds an already finished child span, ended now and lasting {@code duration}.
+     */
+    void recordChild(String name, Duration duration, boolean failed, Map<String, String> childAttributes) {
+        long durationNanos = duration.toNanos();
+        if (failed) {
+            trace.error = true;
+        }
+        trace.add(new SpanData(trace.traceId, randomHex(8), spanId, name,
+                epochMicros() - TimeUnit.NANOSECONDS.toMicros(durationNanos),
+                TimeUnit.NANOSECONDS.toMicros(durationNanos), failed, childAttributes));
+    }
+
+    List<SpanData> spans() {
+        return trace.spans();
+    }
+
+    private SpanData data(long startMicros, long durationNanos, boolean failed) {
+        Map<String, String> copy;
+        synchronized (attributes) {
+            copy = attributes.isEmpty() ? Map.of() : Map.copyOf(attributes);
+        }
+        return new SpanData(trace.traceId, spanId, parentSpanId, name, startMicros,
+                TimeUnit.NANOSECONDS.toMicros(durationNanos), failed, copy);
+    }
+
+    private static long epochMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            int value = random.nextInt(256);
+            hex.append(Character.forDigit(value >> 4, 16)).append(Character.forDigit(value & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    private static class Trace {
+        private final String traceId;
+        private final boolean sampled;
+        private final int maxSpans;
+        private final ConcurrentLinkedQueue<SpanData> spans = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private Span root;
+        private volatile boolean error;
+
+        private Trace(String traceId, boolean sampled, int maxSpans) {
+            this.traceId = traceId;
+            this.sampled = sampled;
+            this.maxSpans = maxSpans;
+        }
+
+        // the root span is always kept
+        private void add(SpanData span) {
+            if (size.incrementAndGet() <= maxSpans) {
+                spans.add(span);
+            }
+        }
+
+        private List<SpanData> spans() {
+            return List.copyOf(spans);
+        }
+    }
+}
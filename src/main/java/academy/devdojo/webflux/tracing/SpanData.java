@@ -0,0 +1,21 @@
+package academy.devdojo.webflux.tracing;
+
+import lombok.Value;
+
+import java.util.Map;
+
+/**
+ * A finished span as handed to the {@link SpanExporter}. Ids are lowercase hex as in W3C Trace Context,
+ * {@code parentSpanId} is null for the root span of a trace that did not come with a {@code traceparent}.
+ */
+@Value
+public class SpanData {
+    String traceId;
+    String spanId;
+    String parentSpanId;
+    String name;
+    long startEpochMicros;
+    long durationMicros;
+    boolean error;
+    Map<String, String> attributes;
+}
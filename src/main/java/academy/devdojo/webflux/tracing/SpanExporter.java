@@ -0,0 +1,14 @@
+package academy.devdojo.webflux.tracing;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Destination of the traces kept by the {@link Tracer}, chosen with {@code devdojo.tracing.exporter}.
+ * Each call carries the spans of one trace.
+ */
+public interface SpanExporter {
+
+    Mono<Void> export(List<SpanData> spans);
+}
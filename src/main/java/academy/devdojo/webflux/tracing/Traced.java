@@ -0,0 +1,17 @@
+package academy.devdojo.webflux.tracing;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs every public method of the bean that returns a {@code Mono} or {@code Flux} in a span named
+ * {@code SimpleClassName.method}, when tracing is enabled.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Traced {
+}
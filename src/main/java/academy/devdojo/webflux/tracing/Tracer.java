@@ -0,0 +1,174 @@
+package academy.devdojo.webflux.tracing;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Records traces of requests as spans carried in the Reactor context, and decides which traces are
+ * exported.
+ * <p>
+ * Head sampling keeps a trace when the caller's {@code traceparent} says so or, without one, with
+ * probability {@code devdojo.tracing.sample-rate}; only those traces are recorded unless tail sampling is
+ * on. Tail sampling records every trace and also keeps, once the request has finished, those slower
+ * than {@code devdojo.tracing.tail.latency-threshold} or, with {@code devdojo.tracing.tail.errors}, those
+ * with a failed span. Tracing is off, and every method a pass-through, without a {@link SpanExporter}.
+ */
+@Log4j2
+@Component
+public class Tracer {
+
+    private static final String CONTEXT_KEY = Span.class.getName();
+
+    private final SpanExporter exporter;
+    private final double sampleRate;
+    private final Duration tailLatencyThreshold;
+    private final boolean tailErrors;
+    private final int maxSpansPerTrace;
+    private final Duration exportDelay;
+
+    public Tracer(ObjectProvider<SpanExporter> exporter,
+                  @Value("${devdojo.tracing.sample-rate:0.01}") double sampleRate,
+                  @Value("${devdojo.tracing.tail.latency-threshold:0ms}") Duration tailLatencyThreshold,
+                  @Value("${devdojo.tracing.tail.errors:false}") boolean tailErrors,
+                  @Value("${devdojo.tracing.max-spans-per-trace:256}") int maxSpansPerTrace,
+                  @Value("${devdojo.tracing.export-delay:100ms}") Duration exportDelay) {
+        this.exporter = exporter.getIfAvailable();
+        this.sampleRate = sampleRate;
+        this.tailLatencyThreshold = tailLatencyThreshold;
+        this.tailErrors = tailErrors;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+        this.exportDelay = exportDelay;
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    private boolean isTailSampling() {
+        return tailErrors || !tailLatencyThreshold.isZero();
+    }
+
+    /**
+     * Starts the root span of a request, continuing the trace of {@code traceparent} when it is a valid
+     * W3C header, or returns null when the request is not recorded.
+     */
+    public Span startTrace(String name, String traceparent) {
+        if (exporter == null) {
+            return null;
+        }
+        String traceId = null;
+        String parentSpanId = null;
+        boolean sampled;
+        if (isValidTraceparent(traceparent)) {
+            traceId = traceparent.substring(3, 35);
+            parentSpanId = traceparent.substring(36, 52);
+            sampled = (Character.digit(traceparent.charAt(54), 16) & 1) == 1;
+        } else {
+            sampled = sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        }
+        if (!sampled && !isTailSampling()) {
+            return null;
+        }
+        return Span.root(traceId, parentSpanId, sampled, maxSpansPerTrace, name);
+    }
+
+    /**
+     * Ends the root span and, {@code devdojo.tracing.export-delay} later, exports the trace if it is kept.
+     * The delay lets spans that end after the response, such as a statement whose completion the database
+     * reports last, join their trace.
+     */
+    public void endTrace(Span root) {
+        Duration duration = root.end();
+        Mono<Void> export = Mono.defer(() -> keep(root, duration) ? exporter.export(root.spans()) : Mono.empty());
+        (exportDelay.isZero() ? export : Mono.delay(exportDelay).then(export))
+                .subscribe(null, error -> log.warn("Falha ao exportar trace {}", root.getTraceId(), error));
+    }
+
+    private boolean keep(Span root, Duration duration) {
+        return root.isSampled()
+                || tailErrors && root.hasError()
+                || !tailLatencyThreshold.isZero() && duration.compareTo(tailLatencyThreshold) >= 0;
+    }
+
+    public static Span current(ContextView context) {
+        return context.getOrDefault(CONTEXT_KEY, null);
+    }
+
+    public static Context context(Span span) {
+        return Context.of(CONTEXT_KEY, span);
+    }
+
+    /**
+     * Runs {@code mono} in a child span of the current span; without a current span it is returned as is.
+     * The span ends before the signal reaches the subscriber, a {@code doFinally} would only run after the
+     * enclosing spans, and the trace, have ended.
+     */
+    public <T> Mono<T> trace(String name, Mono<T> mono) {
+        if (exporter == null) {
+            return mono;
+        }
+        return Mono.deferContextual(context -> {
+            Span parent = current(context);
+            if (parent == null) {
+                return mono;
+            }
+            Span span = parent.child(name);
+            return mono.doOnError(span::fail)
+                    .doOnTerminate(span::end)
+                    .doOnCancel(span::end)
+                    .contextWrite(context(span));
+        });
+    }
+
+    public <T> Flux<T> trace(String name, Flux<T> flux) {
+        if (exporter == null) {
+            return flux;
+        }
+        return Flux.deferContextual(context -> {
+            Span parent = current(context);
+            if (parent == null) {
+                return flux;
+            }
+            Span span = parent.child(name);
+            return flux.doOnError(span::fail)
+                    .doOnTerminate(span::end)
+                    .doOnCancel(span::end)
+                    .contextWrite(context(span));
+        });
+    }
+
+    /**
+     * Adds a span that has just finished after {@code duration} under the current span, if any.
+     */
+    public void record(ContextView context, String name, Duration duration, boolean failed,
+                       Map<String, String> attributes) {
+        Span parent = current(context);
+        if (parent != null) {
+            parent.recordChild(name, duration, failed, attributes);
+        }
+    }
+
+    private static boolean isValidTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() != 55 || !traceparent.startsWith("00-")
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return false;
+        }
+        for (int i = 3; i < 55; i++) {
+            if (i != 35 && i != 52 && Character.digit(traceparent.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return !traceparent.startsWith("00000000000000000000000000000000", 3)
+                && !traceparent.startsWith("0000000000000000", 36);
+    }
+}
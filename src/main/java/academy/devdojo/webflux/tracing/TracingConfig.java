@@ -0,0 +1,78 @@
+package academy.devdojo.webflux.tracing;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Proxies the {@link Traced} beans when an exporter is configured. The {@link Tracer} is looked up on the
+ * first call so that the post processor does not initialize it, and the exporter, ahead of other beans.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "devdojo.tracing.exporter")
+public class TracingConfig {
+
+    @Bean
+    public static BeanPostProcessor tracedBeanPostProcessor(ObjectProvider<Tracer> tracer) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                Class<?> type = AopUtils.getTargetClass(bean);
+                if (!AnnotatedElementUtils.hasAnnotation(type, Traced.class)) {
+                    return bean;
+                }
+                TracingInterceptor interceptor = new TracingInterceptor(tracer, type.getSimpleName());
+                if (bean instanceof Advised && !((Advised) bean).isFrozen()) {
+                    ((Advised) bean).addAdvice(0, interceptor);
+                    return bean;
+                }
+                ProxyFactory proxyFactory = new ProxyFactory(bean);
+                proxyFactory.setProxyTargetClass(true);
+                proxyFactory.addAdvice(interceptor);
+                return proxyFactory.getProxy(type.getClassLoader());
+            }
+        };
+    }
+
+    private static class TracingInterceptor implements MethodInterceptor {
+
+        private final ObjectProvider<Tracer> tracer;
+        private final String typeName;
+        private final Map<Method, String> spanNames = new ConcurrentHashMap<>();
+
+        private TracingInterceptor(ObjectProvider<Tracer> tracer, String typeName) {
+            this.tracer = tracer;
+            this.typeName = typeName;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Object result = invocation.proceed();
+            if (result instanceof Mono) {
+                return tracer.getObject().trace(spanName(invocation.getMethod()), (Mono<?>) result);
+            }
+            if (result instanceof Flux) {
+                return tracer.getObject().trace(spanName(invocation.getMethod()), (Flux<?>) result);
+            }
+            return result;
+        }
+
+        private String spanName(Method method) {
+            return spanNames.computeIfAbsent(method, m -> typeName + "." + m.getName());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package academy.devdojo.webflux.tracing;
+
+import academy.devdojo.webflux.r2dbc.StatementExecution;
+import academy.devdojo.webflux.r2dbc.StatementListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Adds an {@code r2dbc.acquire} span for every pool acquisition and an {@code r2dbc.query} span for every
+ * statement to the span that issued them.
+ */
+@Component
+@ConditionalOnProperty(name = "devdojo.tracing.exporter")
+public class TracingStatementListener implements StatementListener {
+
+    private final Tracer tracer;
+
+    public TracingStatementListener(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public void statementExecuted(StatementExecution execution, ContextView context) {
+        tracer.record(context, "r2dbc.query", execution.getDuration(), !execution.isSuccess(), Map.of(
+                "db.system", "postgresql",
+                "db.statement", execution.getSql(),
+                "db.origin", execution.getOrigin(),
+                "db.rows", String.valueOf(execution.getRows())));
+    }
+
+    @Override
+    public void connectionAcquired(String origin, Duration acquireTime, ContextView context) {
+        tracer.record(context, "r2dbc.acquire", acquireTime, false, Map.of("db.origin", origin));
+    }
+}
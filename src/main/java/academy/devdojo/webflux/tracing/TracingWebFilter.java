@@ -0,0 +1,66 @@
+package academy.devdojo.webflux.tracing;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+/**
+ * Starts the root span of every recorded request ahead of the security filter chain, named after the
+ * matched route ({@code GET /animes/{id}}), and returns its {@code traceparent} to the caller.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TracingWebFilter implements WebFilter {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    private final Tracer tracer;
+
+    public TracingWebFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String method = exchange.getRequest().getMethodValue();
+        Span root = tracer.startTrace(method, exchange.getRequest().getHeaders().getFirst(TRACEPARENT));
+        if (root == null) {
+            return chain.filter(exchange);
+        }
+        root.attribute("http.method", method)
+                .attribute("http.target", exchange.getRequest().getPath().value());
+        exchange.getResponse().getHeaders().set(TRACEPARENT, root.getTraceparent());
+        return chain.filter(exchange)
+                .doOnError(error -> failed(root, error))
+                .doFinally(signal -> {
+                    PathPattern route = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                    if (route != null) {
+                        root.rename(method + " " + route.getPatternString());
+                        root.attribute("http.route", route.getPatternString());
+                    }
+                    HttpStatus status = exchange.getResponse().getStatusCode();
+                    if (status != null) {
+                        root.attribute("http.status_code", status.value());
+                    }
+                    tracer.endTrace(root);
+                })
+                .contextWrite(Tracer.context(root));
+    }
+
+    // errors reach this filter before the exception handlers turn them into a response
+    private static void failed(Span root, Throwable error) {
+        HttpStatus status = error instanceof ResponseStatusException
+                ? ((ResponseStatusException) error).getStatus()
+                : HttpStatus.INTERNAL_SERVER_ERROR;
+        root.attribute("http.status_code", status.value());
+        root.fail(error);
+    }
+}
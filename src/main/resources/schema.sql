@@ -0,0 +1,48 @@
+CREATE TABLE IF NOT EXISTS anime (
+    id       SERIAL PRIMARY KEY,
+    name     VARCHAR(255) NOT NULL,
+    anime_id VARCHAR(36)
+);
+
+-- soft delete: deleted rows stay behind as tombstones for GET /animes/changes until compacted
+ALTER TABLE anime ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT clock_timestamp();
+ALTER TABLE anime ADD COLUMN IF NOT EXISTS deleted BOOLEAN NOT NULL DEFAULT false;
+CREATE INDEX IF NOT EXISTS anime_updated_at_id ON anime (updated_at, id);
+CREATE INDEX IF NOT EXISTS anime_tombstones ON anime (updated_at) WHERE deleted;
+
+-- stamps every insert and update, whatever statement writes the row
+CREATE OR REPLACE FUNCTION anime_touch() RETURNS trigger LANGUAGE plpgsql AS
+'BEGIN NEW.updated_at := clock_timestamp(); RETURN NEW; END';
+
+DO 'BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_trigger WHERE tgname = ''anime_touch'' AND tgrelid = ''anime''::regclass) THEN
+        CREATE TRIGGER anime_touch BEFORE INSERT OR UPDATE ON anime FOR EACH ROW EXECUTE PROCEDURE anime_touch();
+    END IF;
+END';
+
+CREATE TABLE IF NOT EXISTS devdojo_user (
+    id          SERIAL PRIMARY KEY,
+    name        VARCHAR(255),
+    username    VARCHAR(255) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    authorities VARCHAR(255) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS anime_outbox (
+    id           BIGSERIAL PRIMARY KEY,
+    aggregate_id INTEGER     NOT NULL,
+    event_type   VARCHAR(16) NOT NULL,
+    payload      TEXT        NOT NULL,
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- set while a relay delivers the row; rows whose lease expired are picked up again
+ALTER TABLE anime_outbox ADD COLUMN IF NOT EXISTS leased_until TIMESTAMPTZ;
+CREATE INDEX IF NOT EXISTS anime_outbox_created_at ON anime_outbox (created_at);
+
+CREATE TABLE IF NOT EXISTS anime_idempotency (
+    idempotency_key VARCHAR(320) PRIMARY KEY,
+    fingerprint     BYTEA       NOT NULL,
+    response        BYTEA,
+    expires_at      TIMESTAMPTZ NOT NULL
+);
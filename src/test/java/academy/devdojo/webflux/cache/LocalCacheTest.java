@@ -0,0 +1,136 @@
+package academy.devdojo.webflux.cache;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class LocalCacheTest {
+
+    private final LoopbackInvalidationTransport transport = new LoopbackInvalidationTransport();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Anime anime = AnimeCreator.createValidAnime();
+    private InvalidationBus invalidationBus;
+    private LocalCache<Integer, Anime> animeCache;
+
+    @BeforeEach
+    public void setUp(){
+        invalidationBus = new InvalidationBus(transport, Duration.ofMillis(10), 100);
+        invalidationBus.start();
+        animeCache = new LocalCache<>("anime", Duration.ofSeconds(30), 100, Anime::copy, invalidationBus,
+                nanoTime::get);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeCache.dispose();
+        invalidationBus.stop();
+    }
+
+    @Test
+    @DisplayName("get serves a loaded anime from the cache until its ttl expires")
+    public void getServesCachedAnimeUntilTtlExpires(){
+        load(1);
+        load(1);
+        Assertions.assertEquals(1, loads.get());
+
+        nanoTime.addAndGet(Duration.ofSeconds(31).toNanos());
+        load(1);
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("invalidate evicts the key and broadcasts it once per batch")
+    public void invalidateEvictsAndBroadcastsDeduplicatedBatch(){
+        List<String> received = new CopyOnWriteArrayList<>();
+        transport.receive().subscribe(received::add);
+        load(1);
+
+        animeCache.invalidate(1);
+        animeCache.invalidate(1);
+        load(1);
+
+        Assertions.assertEquals(2, loads.get());
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100)).then(Mono.fromSupplier(() -> received)))
+                .expectNext(List.of("anime:1"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a local invalidation is emitted once, its echo from the loopback transport is dropped")
+    public void loopbackEchoesAreDropped(){
+        List<String> emitted = new CopyOnWriteArrayList<>();
+        invalidationBus.invalidations().subscribe(emitted::add);
+
+        animeCache.invalidate(1);
+
+        StepVerifier.create(Mono.delay(Duration.ofMillis(100)).then(Mono.fromSupplier(() -> emitted)))
+                .expectNext(List.of("anime:1"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("keys invalidated by other replicas evict local entries, ALL clears the cache")
+    public void remoteInvalidationsEvictEntries(){
+        load(1);
+        load(2);
+
+        transport.send(List.of("anime:1")).block();
+        Assertions.assertEquals(1, animeCache.size());
+
+        transport.send(List.of(InvalidationBus.ALL)).block();
+        Assertions.assertEquals(0, animeCache.size());
+    }
+
+    @Test
+    @DisplayName("callers get their own copy, changing it does not change the cached anime")
+    public void callersGetTheirOwnCopy(){
+        load(1);
+        Anime first = animeCache.get(1, key -> Mono.error(new IllegalStateException())).block();
+        first.setName("Changed");
+
+        StepVerifier.create(animeCache.get(1, key -> Mono.error(new IllegalStateException())))
+                .expectNext(anime.withId(1))
+                .verifyComplete();
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("a load that races with an invalidation is returned but not cached")
+    public void loadRacingWithInvalidationIsNotCached(){
+        Sinks.One<Anime> slowLoad = Sinks.one();
+        Mono<Anime> result = animeCache.get(1, id -> slowLoad.asMono());
+
+        StepVerifier.create(result)
+                .then(() -> {
+                    animeCache.invalidate(1);
+                    slowLoad.tryEmitValue(anime);
+                })
+                .expectNext(anime)
+                .verifyComplete();
+
+        Assertions.assertEquals(0, animeCache.size());
+    }
+
+    private void load(int id){
+        StepVerifier.create(animeCache.get(id, key -> Mono.fromSupplier(() -> {
+                    loads.incrementAndGet();
+                    return anime.withId(key);
+                })))
+                .expectNext(anime.withId(id))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,77 @@
+package academy.devdojo.webflux.config;
+
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.Http2;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.http.server.reactive.HttpHandler;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+public class Http2ConfigTest {
+
+    private WebServer webServer;
+
+    @BeforeEach
+    public void setUp(){
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory(0);
+        Http2 http2 = new Http2();
+        http2.setEnabled(true);
+        factory.setHttp2(http2);
+        factory.addServerCustomizers(new Http2Config().http2SettingsCustomizer(64, 65535, 16384, 8192));
+
+        HttpHandler handler = (request, response) -> response.writeWith(
+                Mono.just(response.bufferFactory().wrap(request.getURI().getPath().getBytes())));
+        webServer = factory.getWebServer(handler);
+        webServer.start();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        webServer.stop();
+    }
+
+    @Test
+    @DisplayName("server negotiates cleartext h2c when http2 is enabled without ssl")
+    public void serverNegotiatesH2cWhenHttp2IsEnabled(){
+        HttpClient client = HttpClient.create()
+                .protocol(HttpProtocol.H2C)
+                .port(webServer.getPort());
+
+        StepVerifier.create(client.get()
+                        .uri("/animes/1")
+                        .responseSingle((response, body) -> body.asString()
+                                .map(content -> isHttp2Stream(response) + " " + content)))
+                .expectNext("true /animes/1")
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("server keeps answering http/1.1 clients when http2 is enabled")
+    public void serverAnswersHttp11WhenHttp2IsEnabled(){
+        HttpClient client = HttpClient.create()
+                .protocol(HttpProtocol.HTTP11)
+                .port(webServer.getPort());
+
+        StepVerifier.create(client.get()
+                        .uri("/animes/1")
+                        .responseSingle((response, body) -> Mono.just(isHttp2Stream(response))))
+                .expectNext(false)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private static boolean isHttp2Stream(HttpClientResponse response){
+        return response.responseHeaders().contains(HttpConversionUtil.ExtensionHeaderNames.STREAM_ID.text());
+    }
+}
@@ -1,10 +1,13 @@
 package academy.devdojo.webflux.controller;
 
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.idempotency.IdempotencyService;
+import academy.devdojo.webflux.service.AnimeBulkService;
 import academy.devdojo.webflux.service.AnimeService;
+import academy.devdojo.webflux.service.AnimeStatsService;
+import academy.devdojo.webflux.sync.AnimeSyncService;
 import academy.devdojo.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -14,7 +17,6 @@ import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
-import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -24,6 +26,7 @@ import reactor.test.StepVerifier;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @ExtendWith(SpringExtension.class)
 public class AnimeControllerTest {
@@ -32,13 +35,16 @@ public class AnimeControllerTest {
     private AnimeController animeController;
     @Mock
     private AnimeService animeService;
+    @Mock
+    private AnimeStatsService animeStatsService;
+    @Mock
+    private AnimeBulkService animeBulkService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private AnimeSyncService animeSyncService;
     private final Anime anime = AnimeCreator.createValidAnime();
 
-    @BeforeAll
-    public static void blockHoundSetup(){
-        BlockHound.install();
-    }
-
     @BeforeEach
     public void setUp(){
         BDDMockito.given(animeService.findAll())
@@ -54,6 +60,14 @@ public class AnimeControllerTest {
                         .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .willReturn(Flux.just(anime, anime));
 
+        BDDMockito.given(idempotencyService.execute(ArgumentMatchers.isNull(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.any(), ArgumentMatchers.<Class<Anime>>any(), ArgumentMatchers.<Supplier<Mono<Anime>>>any()))
+                .willAnswer(invocation -> invocation.<Supplier<Mono<Anime>>>getArgument(4).get());
+
+        BDDMockito.given(idempotencyService.executeMany(ArgumentMatchers.isNull(), ArgumentMatchers.anyString(),
+                        ArgumentMatchers.any(), ArgumentMatchers.<Class<Anime>>any(), ArgumentMatchers.<Supplier<Flux<Anime>>>any()))
+                .willAnswer(invocation -> invocation.<Supplier<Flux<Anime>>>getArgument(4).get());
+
         BDDMockito.given(animeService.delete(ArgumentMatchers.anyInt()))
                 .willReturn(Mono.empty());
 
@@ -94,11 +108,23 @@ public class AnimeControllerTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("findRecent returns the most recently created animes")
+    public void findRecentReturnFluxOfAnimeWhenSucessful(){
+        BDDMockito.given(animeStatsService.findRecent(10))
+                .willReturn(Flux.just(anime));
+
+        StepVerifier.create(animeController.findRecent(10))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+    }
+
     @Test
     @DisplayName("save creates an anime when successful")
     public void saveCreateAnimeWhenSucessful(){
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
-        StepVerifier.create(animeController.save(animeToBeSaved))
+        StepVerifier.create(animeController.save(animeToBeSaved, null))
                 .expectSubscription()
                 .expectNext(anime)
                 .verifyComplete();
@@ -108,7 +134,7 @@ public class AnimeControllerTest {
     @DisplayName("saveBatch creates an anime when successful")
     public void saveBatchCreateAnimeWhenSucessful(){
         Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
-        StepVerifier.create(animeController.saveBatch(List.of(animeToBeSaved, animeToBeSaved)))
+        StepVerifier.create(animeController.saveBatch(List.of(animeToBeSaved, animeToBeSaved), null))
                 .expectSubscription()
                 .expectNext(anime, anime)
                 .verifyComplete();
@@ -0,0 +1,96 @@
+package academy.devdojo.webflux.export;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeExportTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private Bulkheads bulkheads;
+    private AnimeExport animeExport;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(bulkheads.batch(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(animeRepository.findPageAfter(0, 2))
+                .willReturn(Flux.just(new Anime("Naruto", 1, "a"), new Anime("Bleach, \"Thousand\"", 2, "b")));
+        BDDMockito.given(animeRepository.findPageAfter(2, 2))
+                .willReturn(Flux.just(new Anime("One Piece", 5, "c")));
+
+        animeExport = new AnimeExport(animeRepository, bulkheads, new ObjectMapper(), 2);
+    }
+
+    @Test
+    @DisplayName("export reads keyset pages until a short one and encodes CSV with a header and quoting")
+    public void exportEncodesCsvPageByPage(){
+        StepVerifier.create(animeExport.export(AnimeExport.Format.CSV, 0).map(AnimeExportTest::text))
+                .expectNext(AnimeExport.CSV_HEADER)
+                .expectNext("1,Naruto,a\r\n2,\"Bleach, \"\"Thousand\"\"\",b\r\n")
+                .expectNext("5,One Piece,c\r\n")
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should(Mockito.times(1)).findPageAfter(2, 2);
+    }
+
+    @Test
+    @DisplayName("export resumes after the given id, as NDJSON without a header")
+    public void exportResumesAfterId(){
+        StepVerifier.create(animeExport.export(AnimeExport.Format.NDJSON, 2).map(AnimeExportTest::text))
+                .expectNext("{\"name\":\"One Piece\",\"id\":5,\"anime_id\":\"c\"}\n")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("every gzip chunk is decodable as soon as it is sent")
+    public void streamingGzipFlushesEveryChunk() throws IOException {
+        try (StreamingGzip gzip = new StreamingGzip()) {
+            ByteArrayOutputStream sent = new ByteArrayOutputStream();
+            sent.writeBytes(gzip.encode("first\n".getBytes(StandardCharsets.UTF_8)));
+            Assertions.assertEquals("first\n", gunzipAvailable(sent.toByteArray()));
+
+            sent.writeBytes(gzip.encode("second\n".getBytes(StandardCharsets.UTF_8)));
+            sent.writeBytes(gzip.finish());
+            try (GZIPInputStream whole = new GZIPInputStream(new ByteArrayInputStream(sent.toByteArray()))) {
+                Assertions.assertEquals("first\nsecond\n", new String(whole.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    // reads what a client has received so far of a stream that has not ended yet
+    private static String gunzipAvailable(byte[] partial) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(partial));
+        byte[] buffer = new byte[64];
+        int read = in.read(buffer);
+        return new String(buffer, 0, read, StandardCharsets.UTF_8);
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,120 @@
+package academy.devdojo.webflux.idempotency;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IdempotencyServiceTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Anime anime = AnimeCreator.createValidAnime();
+    private InMemoryIdempotencyStore idempotencyStore;
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    public void setUp(){
+        idempotencyStore = new InMemoryIdempotencyStore(100, Clock.systemUTC());
+        idempotencyService = new IdempotencyService(idempotencyStore, new ObjectMapper(),
+                Duration.ofHours(1), Duration.ofMinutes(1), Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("execute replays the recorded response instead of running the action again")
+    public void executeReplaysRecordedResponse(){
+        StepVerifier.create(save("key", "Pokemon", Mono.just(anime)))
+                .expectNext(anime)
+                .verifyComplete();
+
+        StepVerifier.create(save("key", "Pokemon", Mono.just(anime.withId(2))))
+                .expectNext(anime)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute returns 422 when the key is reused with a different request")
+    public void executeRejectsKeyReusedWithDifferentRequest(){
+        save("key", "Pokemon", Mono.just(anime)).block();
+
+        StepVerifier.create(save("key", "Naruto", Mono.just(anime)))
+                .expectErrorMatches(error -> status(error) == HttpStatus.UNPROCESSABLE_ENTITY)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("execute runs concurrent duplicates once and shares the result")
+    public void executeSharesResultWithConcurrentDuplicates(){
+        Sinks.One<Anime> saved = Sinks.one();
+
+        StepVerifier.create(Mono.zip(save("key", "Pokemon", saved.asMono()), save("key", "Pokemon", saved.asMono())))
+                .then(() -> saved.tryEmitValue(anime))
+                .assertNext(results -> {
+                    Assertions.assertEquals(anime, results.getT1());
+                    Assertions.assertEquals(anime, results.getT2());
+                })
+                .verifyComplete();
+
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    @Test
+    @DisplayName("execute returns 409 while another node holds the claim and retries after a failure")
+    public void executeReturnsConflictForPendingClaimAndRetriesAfterFailure(){
+        StepVerifier.create(save("key", "Pokemon", Mono.error(new IllegalStateException("database down"))))
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        StepVerifier.create(save("key", "Pokemon", Mono.just(anime)))
+                .expectNext(anime)
+                .verifyComplete();
+
+        byte[] fingerprint = idempotencyService.fingerprint("POST /animes", "Pokemon");
+        idempotencyStore.claim("anonymous:other", fingerprint, Duration.ofMinutes(1)).block();
+        StepVerifier.create(save("other", "Pokemon", Mono.just(anime)))
+                .expectErrorMatches(error -> status(error) == HttpStatus.CONFLICT)
+                .verify();
+
+        Assertions.assertEquals(2, executions.get());
+    }
+
+    @Test
+    @DisplayName("executeMany replays every element of the recorded response")
+    public void executeManyReplaysRecordedList(){
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(idempotencyService.executeMany("key", "POST /animes/batch", "Pokemon", Anime.class,
+                            () -> {
+                                executions.incrementAndGet();
+                                return Flux.just(anime, anime.withId(2));
+                            }))
+                    .expectNext(anime, anime.withId(2))
+                    .verifyComplete();
+        }
+        Assertions.assertEquals(1, executions.get());
+    }
+
+    private Mono<Anime> save(String key, String name, Mono<Anime> result) {
+        return idempotencyService.execute(key, "POST /animes", name, Anime.class, () -> {
+            executions.incrementAndGet();
+            return result;
+        });
+    }
+
+    private static HttpStatus status(Throwable error) {
+        return error instanceof ResponseStatusException ? ((ResponseStatusException) error).getStatus() : null;
+    }
+}
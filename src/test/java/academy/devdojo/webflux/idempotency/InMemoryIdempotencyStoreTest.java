@@ -0,0 +1,52 @@
+package academy.devdojo.webflux.idempotency;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class InMemoryIdempotencyStoreTest {
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2026-01-01T00:00:00Z"));
+    private final byte[] fingerprint = {1, 2, 3};
+    private final InMemoryIdempotencyStore idempotencyStore = new InMemoryIdempotencyStore(2, new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    });
+
+    @Test
+    @DisplayName("a full store skips recording new keys without purging, the periodic purge frees room")
+    public void fullStoreSkipsNewKeysUntilPurged(){
+        StepVerifier.create(idempotencyStore.claim("a", fingerprint, Duration.ofMinutes(1))).verifyComplete();
+        StepVerifier.create(idempotencyStore.claim("b", fingerprint, Duration.ofMinutes(1))).verifyComplete();
+        now.set(now.get().plus(Duration.ofMinutes(2)));
+
+        StepVerifier.create(idempotencyStore.claim("c", fingerprint, Duration.ofMinutes(1))).verifyComplete();
+        Assertions.assertEquals(2, idempotencyStore.size());
+
+        StepVerifier.create(idempotencyStore.purgeExpired()).expectNext(2L).verifyComplete();
+        StepVerifier.create(idempotencyStore.claim("c", fingerprint, Duration.ofMinutes(1))).verifyComplete();
+        StepVerifier.create(idempotencyStore.claim("c", fingerprint, Duration.ofMinutes(1)))
+                .expectNextMatches(IdempotencyRecord::isPending)
+                .verifyComplete();
+    }
+}
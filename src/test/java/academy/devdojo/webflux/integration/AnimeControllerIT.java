@@ -1,10 +1,13 @@
 package academy.devdojo.webflux.integration;
 
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AuthToken;
 import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.tracing.InMemorySpanExporter;
+import academy.devdojo.webflux.tracing.SpanData;
+import academy.devdojo.webflux.tracing.TracingWebFilter;
 import academy.devdojo.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -18,20 +21,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
-import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 @SpringBootTest
 @ExtendWith(SpringExtension.class)
@@ -45,16 +53,14 @@ public class AnimeControllerIT {
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private InMemorySpanExporter inMemorySpanExporter;
+
     @MockBean
     private AnimeRepository animeRepository;
 
     private final Anime anime = AnimeCreator.createValidAnime();
 
-    @BeforeAll
-    public static void blockHoundSetup(){
-        BlockHound.install();
-    }
-
     @BeforeEach
     public void setUp() {
 
@@ -71,8 +77,8 @@ public class AnimeControllerIT {
                         .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .willReturn(Flux.just(anime, anime));
 
-        BDDMockito.given(animeRepository.delete(ArgumentMatchers.any(Anime.class)))
-                .willReturn(Mono.empty());
+        BDDMockito.given(animeRepository.markDeleted(ArgumentMatchers.anyInt()))
+                .willReturn(Mono.just(1));
 
         BDDMockito.given(animeRepository.save(AnimeCreator.createValidAnime()))
                 .willReturn(Mono.empty());
@@ -137,8 +143,9 @@ public class AnimeControllerIT {
     public void findByIdReturnMonoAnimeWhenEmptyMonoIsReturned(){
         BDDMockito.given(animeRepository.findById(ArgumentMatchers.anyInt())).willReturn(Mono.empty());
 
+        // an id no other test reads, the cache only learns about writes made through the API
         client.get()
-                .uri("/animes/{id}", 1)
+                .uri("/animes/{id}", 2)
                 .exchange()
                 .expectStatus().isNotFound()
                 .expectBody()
@@ -298,5 +305,202 @@ public class AnimeControllerIT {
                 .exchange()
                 .expectStatus().isUnauthorized();
     }
-}
 
+    @Order(15)
+    @Test
+    @DisplayName("save with an Idempotency-Key creates the anime once and replays the response to retries")
+    @WithUserDetails(ADMIN_USER)
+    public void saveWithIdempotencyKeyCreatesAnimeOnce(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+
+        for (int i = 0; i < 2; i++) {
+            client.post()
+                    .uri("/animes")
+                    .header("Idempotency-Key", "save-once")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(BodyInserters.fromValue(animeToBeSaved))
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Anime.class)
+                    .isEqualTo(anime);
+        }
+
+        BDDMockito.then(animeRepository).should().save(AnimeCreator.createAnimeToBeSaved());
+    }
+
+    @Order(16)
+    @Test
+    @DisplayName("a token issued for Basic credentials authenticates bearer requests")
+    public void tokenIssuedForBasicCredentialsAuthenticatesBearerRequests(){
+        AuthToken token = client.post()
+                .uri("/auth/token")
+                .headers(headers -> headers.setBasicAuth(REGULAR_USER, "devdojo"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(AuthToken.class)
+                .returnResult()
+                .getResponseBody();
+
+        client.get()
+                .uri("/animes/{id}", 1)
+                .headers(headers -> headers.setBearerAuth(token.getAccessToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Anime.class)
+                .isEqualTo(anime);
+
+        client.get()
+                .uri("/animes")
+                .headers(headers -> headers.setBearerAuth(token.getAccessToken()))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Order(17)
+    @Test
+    @DisplayName("findById continues the caller's trace with spans for security, controller and service")
+    public void findByIdRecordsSpansInCallersTrace() throws InterruptedException {
+        String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+        client.get()
+                .uri("/animes/{id}", 1)
+                .header(TracingWebFilter.TRACEPARENT, "00-" + traceId + "-00f067aa0ba902b7-01")
+                .headers(headers -> headers.setBasicAuth(REGULAR_USER, "devdojo"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().value(TracingWebFilter.TRACEPARENT, traceparent ->
+                        Assertions.assertTrue(traceparent.startsWith("00-" + traceId + "-")));
+
+        List<SpanData> spans = awaitTrace(traceId, "GET /animes/{id}");
+        Assertions.assertTrue(spans.stream().map(SpanData::getName).collect(Collectors.toSet()).containsAll(List.of(
+                "SecurityWebFilterChain", "authenticate.basic", "AnimeController.findById", "AnimeService.findById")));
+    }
+
+    @Order(18)
+    @Test
+    @DisplayName("export streams the catalog as gzip-encoded CSV to admins only")
+    public void exportStreamsGzipEncodedCsv() throws IOException {
+        BDDMockito.given(animeRepository.findPageAfter(0, 1000))
+                .willReturn(Flux.just(anime.withName("Tensei, \"Slime\"")));
+
+        byte[] body = client.get()
+                .uri("/animes/export?format=csv")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .headers(headers -> headers.setBasicAuth(ADMIN_USER, "devdojo"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+                .expectHeader().contentType("text/csv;charset=UTF-8")
+                .expectBody()
+                .returnResult()
+                .getResponseBody();
+
+        try (GZIPInputStream csv = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            Assertions.assertEquals("id,name,anime_id\r\n" + anime.getId() + ",\"Tensei, \"\"Slime\"\"\","
+                    + anime.getAnimeId() + "\r\n", new String(csv.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        client.get()
+                .uri("/animes/export")
+                .headers(headers -> headers.setBasicAuth(REGULAR_USER, "devdojo"))
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Order(19)
+    @Test
+    @DisplayName("liveness and readiness probes answer anonymous requests without querying the database")
+    public void probesAnswerAnonymousRequests(){
+        client.get()
+                .uri("/actuator/health/liveness")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("UP");
+
+        client.get()
+                .uri("/actuator/health/readiness")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.status").isEqualTo("UP");
+
+        client.get()
+                .uri("/actuator/metrics")
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Order(20)
+    @Test
+    @DisplayName("findById serves the cached anime until it is updated or deleted through the API")
+    @WithUserDetails(ADMIN_USER)
+    public void findByIdReflectsUpdatesAndDeletesDespiteTheCache(){
+        Anime updated = AnimeCreator.createValidUpdateAnime();
+        expectFindById(anime);
+
+        BDDMockito.given(animeRepository.findById(ArgumentMatchers.anyInt())).willReturn(Mono.just(updated));
+        // not written through the API yet, so the cached anime is still served
+        expectFindById(anime);
+
+        BDDMockito.given(animeRepository.save(updated)).willReturn(Mono.just(updated));
+        client.put()
+                .uri("/animes/{id}", 1)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(updated))
+                .exchange()
+                .expectStatus().isNoContent();
+        expectFindById(updated);
+
+        client.delete()
+                .uri("/animes/{id}", 1)
+                .exchange()
+                .expectStatus().isNoContent();
+        BDDMockito.given(animeRepository.findById(ArgumentMatchers.anyInt())).willReturn(Mono.empty());
+        client.get()
+                .uri("/animes/{id}", 1)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Order(21)
+    @Test
+    @DisplayName("HEAD requires the same role as GET, a regular user cannot HEAD the admin-only reads")
+    @WithUserDetails(REGULAR_USER)
+    public void headRequiresTheRolesOfGet(){
+        for (String uri : new String[]{"/animes", "/animes/export", "/animes/changes"}) {
+            client.head()
+                    .uri(uri)
+                    .exchange()
+                    .expectStatus().isForbidden();
+        }
+        BDDMockito.given(animeRepository.findById(ArgumentMatchers.anyInt())).willReturn(Mono.just(anime));
+        client.head()
+                .uri("/animes/{id}", 3)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    private void expectFindById(Anime expected) {
+        client.get()
+                .uri("/animes/{id}", 1)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Anime.class)
+                .isEqualTo(expected);
+    }
+
+    // the trace is exported shortly after the response has been written
+    private List<SpanData> awaitTrace(String traceId, String rootName) throws InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            List<SpanData> spans = inMemorySpanExporter.getSpans().stream()
+                    .filter(span -> span.getTraceId().equals(traceId))
+                    .collect(Collectors.toList());
+            if (spans.stream().anyMatch(span -> span.getName().equals(rootName))) {
+                return spans;
+            }
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+        return Assertions.fail("trace " + traceId + " was not exported");
+    }
+}
@@ -0,0 +1,97 @@
+package academy.devdojo.webflux.integration;
+
+import academy.devdojo.webflux.domain.Anime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.util.List;
+
+// the unreachable database proves that nothing in the memory profile connects to it
+@SpringBootTest(properties = {"spring.r2dbc.url=r2dbc:postgresql://localhost:1/unreachable", "devdojo.sync.settle-time=0s",
+        "devdojo.repository.memory.users=classpath:memory/users.ndjson"})
+@ActiveProfiles("memory")
+@ExtendWith(SpringExtension.class)
+@AutoConfigureWebTestClient
+public class InMemoryRepositoryIT {
+
+    private final static String ADMIN_USER = "joao";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    @DisplayName("creates, renames, deletes and syncs animes without a database")
+    @WithUserDetails(ADMIN_USER)
+    public void crudAndSyncWithoutDatabase(){
+        Anime created = client.post()
+                .uri("/animes")
+                .body(BodyInserters.fromValue(new Anime("Naruto", 0, null)))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Anime.class)
+                .returnResult()
+                .getResponseBody();
+        Assertions.assertNotNull(created);
+
+        client.put()
+                .uri("/animes/{id}", created.getId())
+                .body(BodyInserters.fromValue(new Anime("Naruto Shippuden", 0, created.getAnimeId())))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get()
+                .uri("/animes/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Naruto Shippuden");
+
+        client.delete()
+                .uri("/animes/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        client.get()
+                .uri("/animes/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+
+        client.get()
+                .uri("/animes/changes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.changes.length()").isEqualTo(1)
+                .jsonPath("$.changes[0].id").isEqualTo(created.getId())
+                .jsonPath("$.changes[0].deleted").isEqualTo(true)
+                .jsonPath("$.has_more").isEqualTo(false);
+    }
+
+    @Test
+    @DisplayName("a failing batch leaves no anime behind")
+    @WithUserDetails(ADMIN_USER)
+    public void failingBatchIsRolledBack(){
+        client.post()
+                .uri("/animes/batch")
+                .body(BodyInserters.fromValue(List.of(new Anime("Bleach", 0, null), new Anime("", 0, null))))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        client.get()
+                .uri("/animes/stats/count?prefix=Bleach")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Long.class)
+                .isEqualTo(0L);
+    }
+}
@@ -0,0 +1,69 @@
+package academy.devdojo.webflux.integration;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.Uuids;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.util.List;
+
+@SpringBootTest(properties = "devdojo.repository.mode=jdbc")
+@ExtendWith(SpringExtension.class)
+@AutoConfigureWebTestClient
+public class JdbcRepositoryIT {
+
+    private final static String ADMIN_USER = "joao";
+
+    @Autowired
+    private WebTestClient client;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("a failing batch leaves neither animes nor outbox events behind")
+    @WithUserDetails(ADMIN_USER)
+    public void failingBatchIsRolledBack(){
+        String name = "Bleach " + Uuids.random();
+
+        client.post()
+                .uri("/animes/batch")
+                .body(BodyInserters.fromValue(List.of(new Anime(name, 0, null), new Anime("", 0, null))))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Assertions.assertEquals(0, count("SELECT count(*) FROM anime WHERE name = ?", name));
+        Assertions.assertEquals(0,
+                count("SELECT count(*) FROM anime_outbox WHERE payload::jsonb ->> 'name' = ?", name));
+    }
+
+    @Test
+    @DisplayName("a created anime is committed together with its outbox event")
+    @WithUserDetails(ADMIN_USER)
+    public void createCommitsAnimeAndOutboxEvent(){
+        String name = "Naruto " + Uuids.random();
+
+        client.post()
+                .uri("/animes")
+                .body(BodyInserters.fromValue(new Anime(name, 0, null)))
+                .exchange()
+                .expectStatus().isCreated();
+
+        Assertions.assertEquals(1, count("SELECT count(*) FROM anime WHERE name = ?", name));
+        Assertions.assertEquals(1,
+                count("SELECT count(*) FROM anime_outbox WHERE payload::jsonb ->> 'name' = ?", name));
+    }
+
+    private long count(String sql, String name) {
+        return jdbcTemplate.queryForObject(sql, Long.class, name);
+    }
+}
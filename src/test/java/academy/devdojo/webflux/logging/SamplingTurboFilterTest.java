@@ -0,0 +1,77 @@
+package academy.devdojo.webflux.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SamplingTurboFilterTest {
+
+    private final LoggerContext loggerContext = new LoggerContext();
+    private final AtomicLong now = new AtomicLong();
+    private SamplingTurboFilter filter;
+
+    @BeforeEach
+    public void setUp(){
+        loggerContext.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+        filter = new SamplingTurboFilter();
+        filter.setContext(loggerContext);
+        filter.setClock(now::get);
+        filter.addRule(rule("academy.devdojo.webflux", 2, 0));
+        filter.addRule(rule("academy.devdojo.webflux.service", 1, 3));
+        filter.start();
+    }
+
+    @Test
+    @DisplayName("decide keeps one of every sampleEvery events")
+    public void decideSamplesEvents(){
+        Logger logger = loggerContext.getLogger("academy.devdojo.webflux.cache.InvalidationBus");
+
+        Assertions.assertEquals(2, accepted(logger, Level.INFO, 4));
+    }
+
+    @Test
+    @DisplayName("decide applies the most specific rule and caps events per second")
+    public void decideCapsEventsPerSecond(){
+        Logger logger = loggerContext.getLogger("academy.devdojo.webflux.service.AnimeService");
+
+        Assertions.assertEquals(3, accepted(logger, Level.INFO, 10));
+        now.addAndGet(1000);
+        Assertions.assertEquals(3, accepted(logger, Level.INFO, 10));
+    }
+
+    @Test
+    @DisplayName("decide never drops warnings, disabled levels or loggers without a rule")
+    public void decideLeavesOtherEventsAlone(){
+        Logger logger = loggerContext.getLogger("academy.devdojo.webflux.service.AnimeService");
+
+        Assertions.assertEquals(10, accepted(logger, Level.WARN, 10));
+        Assertions.assertEquals(10, accepted(logger, Level.DEBUG, 10));
+        Assertions.assertEquals(10, accepted(loggerContext.getLogger("academy.devdojo.webfluxother"), Level.INFO, 10));
+        Assertions.assertEquals(FilterReply.NEUTRAL, filter.decide(null, logger, Level.INFO, null, null, null));
+    }
+
+    private int accepted(Logger logger, Level level, int events) {
+        int accepted = 0;
+        for (int i = 0; i < events; i++) {
+            if (filter.decide(null, logger, level, "event {}", new Object[]{i}, null) == FilterReply.NEUTRAL) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    private static SamplingTurboFilter.Rule rule(String logger, int sampleEvery, int maxPerSecond) {
+        SamplingTurboFilter.Rule rule = new SamplingTurboFilter.Rule();
+        rule.setLogger(logger);
+        rule.setSampleEvery(sampleEvery);
+        rule.setMaxPerSecond(maxPerSecond);
+        return rule;
+    }
+}
@@ -0,0 +1,28 @@
+package academy.devdojo.webflux.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.blockhound.BlockingMethod;
+
+public class BlockingCallReporterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BlockingCallReporter reporter = new BlockingCallReporter(meterRegistry, 10);
+
+    @Test
+    @DisplayName("report counts every blocking call per method instead of throwing")
+    public void reportCountsBlockingCallsPerMethod(){
+        BlockingMethod sleep = new BlockingMethod("java.lang.Thread", "sleep", 0);
+        BlockingMethod read = new BlockingMethod("java.io.FileInputStream", "readBytes", 0);
+
+        for (int i = 0; i < 25; i++) {
+            reporter.report(sleep);
+        }
+        reporter.report(read);
+
+        Assertions.assertEquals(25, meterRegistry.counter("devdojo.blocking.calls", "method", "java.lang.Thread#sleep").count());
+        Assertions.assertEquals(1, meterRegistry.counter("devdojo.blocking.calls", "method", "java.io.FileInputStream#readBytes").count());
+    }
+}
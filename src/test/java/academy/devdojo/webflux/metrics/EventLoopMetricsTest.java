@@ -0,0 +1,37 @@
+package academy.devdojo.webflux.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.DefaultEventLoopGroup;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class EventLoopMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DefaultEventLoopGroup eventLoopGroup = new DefaultEventLoopGroup(2);
+    private final EventLoopMetrics eventLoopMetrics = new EventLoopMetrics(meterRegistry, Duration.ofMillis(10));
+
+    @AfterEach
+    public void tearDown(){
+        eventLoopMetrics.stop();
+        eventLoopGroup.shutdownGracefully();
+    }
+
+    @Test
+    @DisplayName("bind registers pending tasks and lag meters for every event loop")
+    public void bindRegistersMetersForEveryLoop() throws InterruptedException {
+        eventLoopMetrics.bind(eventLoopGroup);
+
+        Assertions.assertEquals(2, meterRegistry.find("devdojo.eventloop.pending.tasks").gauges().size());
+        Timer lag = meterRegistry.get("devdojo.eventloop.lag").tag("loop", "0").timer();
+        for (int i = 0; i < 100 && lag.count() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assertions.assertTrue(lag.count() > 0);
+    }
+}
@@ -0,0 +1,62 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeOutboxPurgerTest {
+
+    private static final long RETENTION_MILLIS = Duration.ofDays(7).toMillis();
+
+    @Mock
+    private AnimeOutboxRepository animeOutboxRepository;
+    @Mock
+    private Bulkheads bulkheads;
+    private AnimeOutboxPurger animeOutboxPurger;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(bulkheads.batch(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        animeOutboxPurger = new AnimeOutboxPurger(animeOutboxRepository, bulkheads, Duration.ofDays(7),
+                Duration.ofHours(1), 2);
+    }
+
+    @Test
+    @DisplayName("purgeExpired purges batches until one comes back short and emits the total")
+    public void purgeExpiredPurgesUntilShortBatch(){
+        BDDMockito.given(animeOutboxRepository.purgeOlderThan(RETENTION_MILLIS, 2))
+                .willReturn(Mono.just(2), Mono.just(2), Mono.just(1));
+
+        StepVerifier.create(animeOutboxPurger.purgeExpired())
+                .expectNext(5L)
+                .verifyComplete();
+
+        BDDMockito.then(animeOutboxRepository).should(Mockito.times(3)).purgeOlderThan(RETENTION_MILLIS, 2);
+    }
+
+    @Test
+    @DisplayName("purgeExpired swallows failures so the next interval tries again")
+    public void purgeExpiredSurvivesFailures(){
+        BDDMockito.given(animeOutboxRepository.purgeOlderThan(RETENTION_MILLIS, 2))
+                .willReturn(Mono.error(new IllegalStateException("database down")));
+
+        StepVerifier.create(animeOutboxPurger.purgeExpired())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+}
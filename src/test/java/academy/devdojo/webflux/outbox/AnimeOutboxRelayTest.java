@@ -0,0 +1,84 @@
+package academy.devdojo.webflux.outbox;
+
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.domain.AnimeOutboxEvent;
+import academy.devdojo.webflux.repository.AnimeOutboxRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeOutboxRelayTest {
+
+    @Mock
+    private AnimeOutboxRepository animeOutboxRepository;
+    private final InMemoryAnimeEventSink animeEventSink = new InMemoryAnimeEventSink();
+    private AnimeOutboxRelay animeOutboxRelay;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(animeOutboxRepository.leaseOldest(2, 60_000))
+                .willReturn(Flux.just(event(2L), event(1L)), Flux.just(event(3L)));
+
+        BDDMockito.given(animeOutboxRepository.deleteByIdIn(ArgumentMatchers.anyCollection()))
+                .willAnswer(invocation -> Mono.just(invocation.<List<Long>>getArgument(0).size()));
+
+        BDDMockito.given(animeOutboxRepository.releaseByIdIn(ArgumentMatchers.anyCollection()))
+                .willAnswer(invocation -> Mono.just(invocation.<List<Long>>getArgument(0).size()));
+
+        animeOutboxRelay = new AnimeOutboxRelay(animeOutboxRepository, animeEventSink, 2, Duration.ofHours(1),
+                Duration.ofMinutes(1));
+    }
+
+    @Test
+    @DisplayName("relayPending publishes every pending batch and deletes the delivered rows")
+    public void relayPendingPublishesAndDeletesDeliveredRows(){
+        StepVerifier.create(animeOutboxRelay.relayPending())
+                .expectNext(3L)
+                .verifyComplete();
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L), animeEventSink.getEvents().stream()
+                .map(AnimeOutboxEvent::getId)
+                .collect(Collectors.toList()));
+        BDDMockito.then(animeOutboxRepository).should().deleteByIdIn(List.of(1L, 2L));
+        BDDMockito.then(animeOutboxRepository).should().deleteByIdIn(List.of(3L));
+    }
+
+    @Test
+    @DisplayName("relayPending keeps the rows and releases their lease when the sink fails so they are delivered again")
+    public void relayPendingKeepsRowsWhenSinkFails(){
+        AnimeEventSink failingSink = events -> Mono.error(new IllegalStateException("webhook down"));
+        animeOutboxRelay = new AnimeOutboxRelay(animeOutboxRepository, failingSink, 2, Duration.ofHours(1),
+                Duration.ofMinutes(1));
+
+        StepVerifier.create(animeOutboxRelay.relayPending())
+                .expectNext(0L)
+                .verifyComplete();
+
+        BDDMockito.then(animeOutboxRepository).should(Mockito.never()).deleteByIdIn(ArgumentMatchers.anyCollection());
+        BDDMockito.then(animeOutboxRepository).should().releaseByIdIn(List.of(1L, 2L));
+    }
+
+    private static AnimeOutboxEvent event(long id){
+        return AnimeOutboxEvent.builder()
+                .id(id)
+                .aggregateId((int) id)
+                .eventType(AnimeEventType.CREATED)
+                .payload("{}")
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+@ExtendWith(SpringExtension.class)
+public class ConnectionPoolDrainTest {
+
+    @Mock
+    private ConnectionPool pool;
+    @Mock
+    private PoolMetrics metrics;
+
+    private final ConnectionPoolDrain connectionPoolDrain = new ConnectionPoolDrain(Duration.ofMillis(300));
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.when(pool.getMetrics()).thenReturn(Optional.of(metrics));
+    }
+
+    @Test
+    @DisplayName("waits until connections acquired or waited for are released")
+    public void waitsForReleasedConnections(){
+        BDDMockito.when(metrics.acquiredSize()).thenReturn(2, 1, 0);
+        BDDMockito.when(metrics.pendingAcquireSize()).thenReturn(1, 0);
+
+        Assertions.assertTrue(connectionPoolDrain.drain(Map.of("connectionFactory", pool)));
+        BDDMockito.verify(metrics, BDDMockito.times(3)).acquiredSize();
+    }
+
+    @Test
+    @DisplayName("gives up at the timeout and leaves the pool to be closed with connections still acquired")
+    public void givesUpAtTimeout(){
+        BDDMockito.when(metrics.acquiredSize()).thenReturn(1);
+
+        long start = System.nanoTime();
+        Assertions.assertFalse(connectionPoolDrain.drain(Map.of("connectionFactory", pool)));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofMillis(300)) >= 0);
+    }
+}
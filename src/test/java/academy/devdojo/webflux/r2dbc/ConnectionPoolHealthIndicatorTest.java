@@ -0,0 +1,92 @@
+package academy.devdojo.webflux.r2dbc;
+
+import academy.devdojo.webflux.resilience.Workload;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+@ExtendWith(SpringExtension.class)
+public class ConnectionPoolHealthIndicatorTest {
+
+    @Mock
+    private ConnectionFactory driver;
+    @Mock
+    private Connection connection;
+    @Mock
+    private ObjectProvider<Map<String, ConnectionFactory>> connectionFactories;
+
+    private WorkloadRoutingConnectionFactory routing;
+    private ConnectionPoolHealthIndicator healthIndicator;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.willReturn(Mono.just(connection)).given(driver).create();
+        BDDMockito.willReturn(Mono.just(true)).given(connection).validate(ArgumentMatchers.any());
+        BDDMockito.willReturn(Mono.empty()).given(connection).close();
+
+        routing = new WorkloadRoutingConnectionFactory(driver, Map.of(
+                Workload.READ, pool("read"), Workload.WRITE, pool("write"), Workload.BATCH, pool("batch")));
+        ConnectionFactory bean = new ObservedConnectionFactory(routing, List.of());
+        BDDMockito.when(connectionFactories.getIfAvailable(ArgumentMatchers.any()))
+                .thenReturn(Map.of("connectionFactory", bean));
+        healthIndicator = new ConnectionPoolHealthIndicator(connectionFactories);
+    }
+
+    @AfterEach
+    public void tearDown(){
+        routing.dispose();
+    }
+
+    @Test
+    @DisplayName("reports the counters of every pool behind the connection factory without acquiring a connection")
+    public void reportsPoolCounters(){
+        Connection acquired = routing.getPools().get(Workload.READ).create().block();
+
+        Health health = healthIndicator.health();
+
+        Assertions.assertEquals(Status.UP, health.getStatus());
+        Assertions.assertEquals(List.of("batch", "read", "write"), List.copyOf(health.getDetails().keySet()));
+        Assertions.assertEquals(1, ((Map<?, ?>) health.getDetails().get("read")).get("acquired"));
+        Assertions.assertEquals(0, ((Map<?, ?>) health.getDetails().get("write")).get("acquired"));
+        Assertions.assertEquals(4, ((Map<?, ?>) health.getDetails().get("write")).get("max"));
+
+        Mono.from(acquired.close()).block();
+    }
+
+    @Test
+    @DisplayName("is down once a pool has been disposed")
+    public void downOnceDisposed(){
+        routing.getPools().get(Workload.BATCH).dispose();
+
+        Health health = healthIndicator.health();
+
+        Assertions.assertEquals(Status.DOWN, health.getStatus());
+        Assertions.assertEquals(Map.of("disposed", true), health.getDetails().get("batch"));
+    }
+
+    private ConnectionPool pool(String name) {
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(driver)
+                .name(name)
+                .initialSize(0)
+                .maxSize(4)
+                .build());
+    }
+}
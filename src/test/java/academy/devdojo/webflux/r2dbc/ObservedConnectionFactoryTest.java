@@ -0,0 +1,99 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ObservedConnectionFactoryTest {
+
+    private static final String SQL = "SELECT anime.* FROM anime";
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+    @Mock
+    private Connection connection;
+    @Mock
+    private Statement statement;
+    @Mock
+    private Result result;
+
+    private final List<StatementExecution> executions = new ArrayList<>();
+    private final List<String> acquisitions = new ArrayList<>();
+    private ObservedConnectionFactory observedConnectionFactory;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.willReturn(Mono.just(connection)).given(connectionFactory).create();
+        BDDMockito.when(connection.createStatement(SQL)).thenReturn(statement);
+
+        observedConnectionFactory = new ObservedConnectionFactory(connectionFactory, List.of(new StatementListener() {
+            @Override
+            public void statementExecuted(StatementExecution execution, ContextView context) {
+                executions.add(execution);
+            }
+
+            @Override
+            public void connectionAcquired(String origin, Duration acquireTime, ContextView context) {
+                acquisitions.add(origin);
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("execute reports the statement once its rows were read, tagged with the origin in the context")
+    public void executeReportsStatementAfterRowsWereRead(){
+        BDDMockito.willReturn(Flux.just(result)).given(statement).execute();
+        BDDMockito.when(result.map(ArgumentMatchers.any())).thenReturn(Flux.just("Pokemon", "Naruto"));
+
+        StepVerifier.create(query().contextWrite(StatementOrigin.context("AnimeRepository.findAll")))
+                .expectNext("Pokemon", "Naruto")
+                .verifyComplete();
+
+        Assertions.assertEquals(List.of("AnimeRepository.findAll"), acquisitions);
+        Assertions.assertEquals(1, executions.size());
+        StatementExecution execution = executions.get(0);
+        Assertions.assertEquals(SQL, execution.getSql());
+        Assertions.assertEquals("AnimeRepository.findAll", execution.getOrigin());
+        Assertions.assertEquals(2, execution.getRows());
+        Assertions.assertTrue(execution.isSuccess());
+    }
+
+    @Test
+    @DisplayName("execute reports failed statements from callers without origin as other")
+    public void executeReportsFailedStatement(){
+        BDDMockito.willReturn(Flux.error(new IllegalStateException("database down"))).given(statement).execute();
+
+        StepVerifier.create(query())
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        Assertions.assertEquals(1, executions.size());
+        Assertions.assertEquals(StatementOrigin.OTHER, executions.get(0).getOrigin());
+        Assertions.assertFalse(executions.get(0).isSuccess());
+    }
+
+    private Flux<String> query() {
+        return Mono.from(observedConnectionFactory.create())
+                .flatMapMany(observed -> Flux.from(observed.createStatement(SQL).execute()))
+                .flatMap(observedResult -> observedResult.map((row, metadata) -> ""));
+    }
+}
@@ -0,0 +1,42 @@
+package academy.devdojo.webflux.r2dbc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class StatementMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StatementMetrics statementMetrics = new StatementMetrics(meterRegistry, 2);
+
+    @Test
+    @DisplayName("slowest lists the tracked statements by maximum duration and meters are tagged by origin")
+    public void slowestListsStatementsByMaximumDuration(){
+        statementMetrics.statementExecuted(execution("SELECT 1", "AnimeRepository.findById", 5), Context.empty());
+        statementMetrics.statementExecuted(execution("SELECT 2", "AnimeRepository.findAll", 40), Context.empty());
+        statementMetrics.statementExecuted(execution("SELECT 1", "AnimeRepository.findById", 90), Context.empty());
+        statementMetrics.statementExecuted(execution("SELECT 3", "other", 500), Context.empty());
+
+        List<StatementSummary> slowest = statementMetrics.slowest(10);
+
+        Assertions.assertEquals(List.of("SELECT 1", "SELECT 2"),
+                slowest.stream().map(StatementSummary::getSql).collect(Collectors.toList()));
+        Assertions.assertEquals(2, slowest.get(0).getExecutions());
+        Assertions.assertEquals(90, slowest.get(0).getMaxMillis(), 0.001);
+        Assertions.assertEquals(47.5, slowest.get(0).getMeanMillis(), 0.001);
+        Assertions.assertEquals(2, meterRegistry.get("devdojo.r2dbc.statement")
+                .tag("origin", "AnimeRepository.findById")
+                .tag("outcome", "success")
+                .timer().count());
+    }
+
+    private static StatementExecution execution(String sql, String origin, long millis) {
+        return new StatementExecution(sql, origin, Duration.ofMillis(millis), 1, true);
+    }
+}
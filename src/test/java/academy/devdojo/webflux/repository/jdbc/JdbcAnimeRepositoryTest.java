@@ -0,0 +1,55 @@
+package academy.devdojo.webflux.repository.jdbc;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+public class JdbcAnimeRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    private JdbcAnimeRepository jdbcAnimeRepository;
+
+    @BeforeEach
+    public void setUp(){
+        jdbcAnimeRepository = new JdbcAnimeRepository(jdbcTemplate, Schedulers.boundedElastic());
+    }
+
+    @Test
+    @DisplayName("save inserts a new anime and returns it with the generated id")
+    public void saveInsertsNewAnime(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+        BDDMockito.given(jdbcTemplate.queryForObject(ArgumentMatchers.startsWith("INSERT INTO anime"),
+                        ArgumentMatchers.eq(Integer.class), ArgumentMatchers.<Object>any()))
+                .willReturn(1);
+
+        StepVerifier.create(jdbcAnimeRepository.save(animeToBeSaved))
+                .expectSubscription()
+                .expectNext(animeToBeSaved.withId(1))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("save updates an existing anime and fails like R2DBC when the row does not exist")
+    public void saveFailsWhenUpdatedRowDoesNotExist(){
+        BDDMockito.given(jdbcTemplate.update(ArgumentMatchers.startsWith("UPDATE anime"), ArgumentMatchers.<Object>any()))
+                .willReturn(0);
+
+        StepVerifier.create(jdbcAnimeRepository.save(AnimeCreator.createValidAnime()))
+                .expectSubscription()
+                .expectError(TransientDataAccessResourceException.class)
+                .verify();
+    }
+}
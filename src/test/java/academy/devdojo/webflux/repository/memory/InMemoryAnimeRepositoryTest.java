@@ -0,0 +1,125 @@
+package academy.devdojo.webflux.repository.memory;
+
+import academy.devdojo.webflux.domain.Anime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class InMemoryAnimeRepositoryTest {
+
+    private InMemoryAnimeRepository animeRepository;
+
+    @BeforeEach
+    public void setUp(){
+        animeRepository = new InMemoryAnimeRepository(new ObjectMapper(), false, "");
+    }
+
+    @Test
+    @DisplayName("pages walk the ids in order across gaps and chunks, skipping tombstones")
+    public void pagesSkipGapsAndTombstones(@TempDir Path directory) throws IOException {
+        Path snapshot = directory.resolve("animes.ndjson");
+        Files.writeString(snapshot, "{\"name\":\"Naruto\",\"id\":3,\"anime_id\":\"a\"}\n\n"
+                + "{\"name\":\"Bleach\",\"id\":5000,\"anime_id\":\"b\"}\n"
+                + "{\"name\":\"One Piece\",\"id\":70000,\"anime_id\":\"c\"}\n");
+        Assertions.assertEquals(3, animeRepository.load(snapshot));
+
+        StepVerifier.create(animeRepository.markDeleted(5000))
+                .expectNext(1)
+                .verifyComplete();
+
+        StepVerifier.create(animeRepository.findPageAfter(0, 10).map(Anime::getId))
+                .expectNext(3, 70000)
+                .verifyComplete();
+        StepVerifier.create(animeRepository.findRecent(1).map(Anime::getId))
+                .expectNext(70000)
+                .verifyComplete();
+        StepVerifier.create(animeRepository.count())
+                .expectNext(2L)
+                .verifyComplete();
+        StepVerifier.create(animeRepository.findByAnimeId("b"))
+                .verifyComplete();
+        StepVerifier.create(animeRepository.save(new Anime("Dragon Ball", 0, "d")).map(Anime::getId))
+                .expectNext(70001)
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("findChangedAfter returns writes in stamp order with tombstones, and purge drops old tombstones")
+    public void changesIncludeTombstonesUntilPurged(){
+        List<Anime> saved = animeRepository.insertAll(List.of(new Anime("Naruto", 0, "a"), new Anime("Bleach", 0, "b")))
+                .collectList()
+                .block();
+        Assertions.assertNotNull(saved);
+        animeRepository.updateNames(List.of(new Anime("Naruto Shippuden", saved.get(0).getId(), "a"))).blockLast();
+        animeRepository.deleteAllReturning(List.of(saved.get(1).getId())).blockLast();
+
+        List<Anime> changes = animeRepository.findChangedAfter(Instant.EPOCH, 0, 0, 10).collectList().block();
+        Assertions.assertNotNull(changes);
+        Assertions.assertEquals(List.of("Naruto Shippuden", "Bleach"),
+                changes.stream().map(Anime::getName).collect(Collectors.toList()));
+        Assertions.assertTrue(changes.get(1).isDeleted());
+
+        StepVerifier.create(animeRepository.findChangedAfter(changes.get(0).getUpdatedAt(), changes.get(0).getId(), 0, 10)
+                        .map(Anime::getName))
+                .expectNext("Bleach")
+                .verifyComplete();
+        StepVerifier.create(animeRepository.findChangedAfter(Instant.EPOCH, 0, 60_000, 10))
+                .verifyComplete();
+
+        StepVerifier.create(animeRepository.purgeTombstones(0, 10))
+                .expectNext(1)
+                .verifyComplete();
+        StepVerifier.create(animeRepository.findById(Integer.valueOf(saved.get(1).getId())))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a rolled back transaction undoes every write it made")
+    public void rollbackUndoesWrites(){
+        Anime naruto = animeRepository.save(new Anime("Naruto", 0, "a")).block();
+        Assertions.assertNotNull(naruto);
+        TransactionalOperator transactionalOperator = TransactionalOperator.create(new InMemoryTransactionManager());
+
+        Flux<Anime> failing = animeRepository.save(new Anime("Naruto Shippuden", naruto.getId(), "a"))
+                .thenMany(animeRepository.insertAll(List.of(new Anime("Bleach", 0, "b"))))
+                .concatWith(animeRepository.markDeleted(naruto.getId())
+                        .then(Mono.<Anime>error(new IllegalStateException("rollback"))));
+        StepVerifier.create(transactionalOperator.transactional(failing))
+                .expectNextCount(1)
+                .expectError(IllegalStateException.class)
+                .verify();
+
+        StepVerifier.create(animeRepository.findAll().map(Anime::getName))
+                .expectNext("Naruto")
+                .verifyComplete();
+        StepVerifier.create(animeRepository.findByAnimeId("b"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a read-only repository refuses writes but serves reads")
+    public void readOnlyRefusesWrites(){
+        animeRepository = new InMemoryAnimeRepository(new ObjectMapper(), true, "");
+
+        StepVerifier.create(animeRepository.save(new Anime("Naruto", 0, "a")))
+                .expectError(ResponseStatusException.class)
+                .verify();
+        StepVerifier.create(animeRepository.findAll())
+                .verifyComplete();
+    }
+}
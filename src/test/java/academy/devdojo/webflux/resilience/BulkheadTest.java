@@ -0,0 +1,56 @@
+package academy.devdojo.webflux.resilience;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class BulkheadTest {
+
+    private final Bulkhead bulkhead = new Bulkhead("batch", 1, 1);
+
+    @Test
+    @DisplayName("queues calls beyond the limit, rejects them beyond the queue and hands the slot over when a call ends")
+    public void queuesThenRejects(){
+        Sinks.One<String> first = Sinks.one();
+        List<String> results = new ArrayList<>();
+        bulkhead.run(first.asMono()).subscribe(results::add);
+        bulkhead.run(Mono.just("second")).subscribe(results::add);
+
+        Assertions.assertEquals(1, bulkhead.getActive());
+        Assertions.assertEquals(1, bulkhead.getQueued());
+        StepVerifier.create(bulkhead.run(Mono.just("third")))
+                .verifyError(BulkheadFullException.class);
+
+        Assertions.assertTrue(results.isEmpty());
+
+        first.tryEmitValue("first");
+
+        Assertions.assertEquals(Set.of("first", "second"), Set.copyOf(results));
+        Assertions.assertEquals(0, bulkhead.getActive());
+        Assertions.assertEquals(0, bulkhead.getQueued());
+    }
+
+    @Test
+    @DisplayName("a cancelled call frees its slot and a cancelled waiter leaves the queue")
+    public void cancellationFreesSlotAndQueue(){
+        Disposable running = bulkhead.run(Mono.never()).subscribe();
+        Disposable waiting = bulkhead.run(Mono.never()).subscribe();
+
+        waiting.dispose();
+        Assertions.assertEquals(0, bulkhead.getQueued());
+        running.dispose();
+        Assertions.assertEquals(0, bulkhead.getActive());
+
+        StepVerifier.create(bulkhead.run(Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+}
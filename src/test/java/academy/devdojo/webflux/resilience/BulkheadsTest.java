@@ -0,0 +1,47 @@
+package academy.devdojo.webflux.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+public class BulkheadsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Bulkheads bulkheads = new Bulkheads(meterRegistry, true, 2, 2, 1, 1, 1, 0, 1);
+
+    @AfterEach
+    public void tearDown(){
+        bulkheads.stop();
+    }
+
+    @Test
+    @DisplayName("reads run while batch work holds every batch slot, and extra batch work is rejected")
+    public void readsAreIsolatedFromBatch(){
+        bulkheads.batch(Flux.never()).subscribe();
+
+        StepVerifier.create(bulkheads.batch(Flux.just(1)))
+                .verifyError(BulkheadFullException.class);
+        StepVerifier.create(bulkheads.read(Mono.deferContextual(context -> Mono.justOrEmpty(Workload.of(context)))))
+                .expectNext(Workload.READ)
+                .expectComplete()
+                .verify(Duration.ofSeconds(1));
+
+        Assertions.assertEquals(1, meterRegistry.get("devdojo.bulkhead.active").tag("name", "batch").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("devdojo.bulkhead.rejected").tag("name", "batch").counter().count());
+    }
+
+    @Test
+    @DisplayName("batch work runs on the anime-batch scheduler")
+    public void batchRunsOnItsScheduler(){
+        StepVerifier.create(bulkheads.batch(Flux.defer(() -> Flux.just(Thread.currentThread().getName()))))
+                .assertNext(thread -> Assertions.assertTrue(thread.startsWith("anime-batch"), thread))
+                .verifyComplete();
+    }
+}
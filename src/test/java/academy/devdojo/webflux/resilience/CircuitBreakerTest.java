@@ -0,0 +1,78 @@
+package academy.devdojo.webflux.resilience;
+
+import academy.devdojo.webflux.resilience.CircuitBreaker.State;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final List<String> transitions = new ArrayList<>();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("postgres", 50, 4, 4, Duration.ofSeconds(10), 2,
+            RepositoryResilience::isTransient, (from, to) -> transitions.add(from + "->" + to), nanoTime::get);
+
+    @Test
+    @DisplayName("opens at the failure rate threshold, rejects calls, then closes after successful trial calls")
+    public void opensAtThresholdAndClosesAfterTrialCalls(){
+        succeed();
+        fail();
+        succeed();
+        Assertions.assertEquals(State.CLOSED, circuitBreaker.getState());
+        fail();
+        Assertions.assertEquals(State.OPEN, circuitBreaker.getState());
+
+        StepVerifier.create(circuitBreaker.run(Mono.just(1)))
+                .verifyError(CallNotPermittedException.class);
+        Assertions.assertTrue(circuitBreaker.isRejecting());
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Assertions.assertFalse(circuitBreaker.isRejecting());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertTrue(circuitBreaker.tryAcquire());
+        Assertions.assertFalse(circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        circuitBreaker.onSuccess();
+
+        Assertions.assertEquals(State.CLOSED, circuitBreaker.getState());
+        Assertions.assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    @DisplayName("a failed trial call opens the circuit again and errors that are not transient are not failures")
+    public void failedTrialCallReopens(){
+        for (int i = 0; i < 4; i++) {
+            StepVerifier.create(circuitBreaker.run(Mono.error(new IllegalArgumentException())))
+                    .verifyError(IllegalArgumentException.class);
+        }
+        Assertions.assertEquals(State.CLOSED, circuitBreaker.getState());
+
+        fail();
+        fail();
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        fail();
+
+        Assertions.assertEquals(State.OPEN, circuitBreaker.getState());
+        Assertions.assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), transitions);
+    }
+
+    private void succeed() {
+        StepVerifier.create(circuitBreaker.run(Mono.just(1)))
+                .expectNext(1)
+                .verifyComplete();
+    }
+
+    private void fail() {
+        StepVerifier.create(circuitBreaker.run(Mono.error(new R2dbcNonTransientResourceException("connection closed"))))
+                .verifyError(R2dbcNonTransientResourceException.class);
+    }
+}
@@ -0,0 +1,221 @@
+package academy.devdojo.webflux.resilience;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.util.AnimeCreator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.r2dbc.spi.R2dbcBadGrammarException;
+import io.r2dbc.spi.R2dbcNonTransientResourceException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.support.ConfigurableConversionService;
+import org.springframework.data.repository.Repository;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class RepositoryResilienceTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FaultInjectingRepository stub = new FaultInjectingRepository();
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @Test
+    @DisplayName("reads retry transient failures and succeed once the database answers again")
+    public void readsRetryTransientFailures(){
+        CatalogRepository repository = guarded(resilience(2, Set.of()));
+        stub.fail(2, () -> new R2dbcNonTransientResourceException("connection closed"));
+
+        StepVerifier.create(repository.findById(1))
+                .expectNext(anime)
+                .verifyComplete();
+
+        Assertions.assertEquals(3, stub.calls.get());
+        Assertions.assertEquals(2, counter("devdojo.repository.retries", "CatalogRepository.findById"));
+    }
+
+    @Test
+    @DisplayName("a read that does not answer within its timeout fails with RepositoryTimeoutException once retries run out")
+    public void readsTimeOut(){
+        CatalogRepository repository = guarded(resilience(1, Set.of()));
+        stub.hang(2);
+
+        StepVerifier.create(repository.findById(1))
+                .verifyError(RepositoryTimeoutException.class);
+
+        Assertions.assertEquals(2, stub.calls.get());
+        Assertions.assertEquals(2, counter("devdojo.repository.timeouts", "CatalogRepository.findById"));
+    }
+
+    @Test
+    @DisplayName("a stream only has to start within its timeout, later rows may take longer")
+    public void streamsOnlyTimeOutBeforeTheirFirstRow(){
+        CatalogRepository repository = guarded(resilience(0, Set.of()));
+
+        StepVerifier.create(repository.findRecent())
+                .expectNext(anime, anime)
+                .verifyComplete();
+
+        stub.hang(1);
+        StepVerifier.create(repository.findRecent())
+                .verifyError(RepositoryTimeoutException.class);
+    }
+
+    @Test
+    @DisplayName("writes and statements that failed for other reasons than the database are not retried")
+    public void writesAndFailedStatementsAreNotRetried(){
+        CatalogRepository repository = guarded(resilience(2, Set.of()));
+        stub.fail(1, () -> new R2dbcNonTransientResourceException("connection closed"));
+        stub.fail(1, () -> new R2dbcBadGrammarException("syntax error"));
+
+        StepVerifier.create(repository.save(anime))
+                .verifyError(R2dbcNonTransientResourceException.class);
+        StepVerifier.create(repository.findAll())
+                .verifyError(R2dbcBadGrammarException.class);
+
+        Assertions.assertEquals(2, stub.calls.get());
+    }
+
+    @Test
+    @DisplayName("an open circuit fails fast and serves the last result of stale fallback operations")
+    public void openCircuitServesStaleResults(){
+        RepositoryResilience resilience = resilience(0, Set.of("CatalogRepository.findById", "CatalogRepository.findAll"));
+        CatalogRepository repository = guarded(resilience);
+        StepVerifier.create(repository.findById(1)).expectNext(anime).verifyComplete();
+        StepVerifier.create(repository.findAll()).expectNext(anime, anime).verifyComplete();
+
+        stub.fail(2, () -> new R2dbcNonTransientResourceException("connection closed"));
+        StepVerifier.create(repository.save(anime)).verifyError(R2dbcNonTransientResourceException.class);
+        StepVerifier.create(repository.save(anime)).verifyError(R2dbcNonTransientResourceException.class);
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, resilience.getCircuitBreaker().getState());
+
+        int calls = stub.calls.get();
+        StepVerifier.create(repository.findById(1)).expectNext(anime).verifyComplete();
+        StepVerifier.create(repository.findAll()).expectNext(anime, anime).verifyComplete();
+        StepVerifier.create(repository.findById(2)).verifyError(CallNotPermittedException.class);
+        StepVerifier.create(repository.save(anime)).verifyError(CallNotPermittedException.class);
+
+        Assertions.assertEquals(calls, stub.calls.get());
+        Assertions.assertEquals(1, counter("devdojo.repository.stale", "CatalogRepository.findAll"));
+        Assertions.assertEquals(1, meterRegistry.get("devdojo.circuit.transitions")
+                .tags("from", "CLOSED", "to", "OPEN").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("devdojo.circuit.state").gauge().value());
+    }
+
+    @Test
+    @DisplayName("the stale fallback serves copies that callers can change without affecting each other")
+    public void staleResultsAreCopies(){
+        RepositoryResilience resilience = resilience(0, Set.of("CatalogRepository.findById", "CatalogRepository.findAll"));
+        CatalogRepository repository = guarded(resilience);
+        Anime original = anime.copy();
+        Anime found = repository.findById(1).block();
+        List<Anime> all = repository.findAll().collectList().block();
+        found.setName("changed after the read");
+        all.get(0).setName("changed after the read");
+        stub.fail(2, () -> new R2dbcNonTransientResourceException("connection closed"));
+        StepVerifier.create(repository.save(anime)).verifyError(R2dbcNonTransientResourceException.class);
+        StepVerifier.create(repository.save(anime)).verifyError(R2dbcNonTransientResourceException.class);
+
+        repository.findById(1).block().setName("changed by a caller");
+        repository.findAll().collectList().block().get(0).setName("changed by a caller");
+
+        StepVerifier.create(repository.findById(1)).expectNext(original).verifyComplete();
+        StepVerifier.create(repository.findAll()).expectNext(original, original).verifyComplete();
+    }
+
+    private RepositoryResilience resilience(int maxRetries, Set<String> staleOperations) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("devdojo.resilience.timeout.CatalogRepository.findById", "50ms")
+                .withProperty("devdojo.resilience.timeout.CatalogRepository.findRecent", "50ms");
+        environment.setConversionService((ConfigurableConversionService) ApplicationConversionService.getSharedInstance());
+        return new RepositoryResilience(meterRegistry, environment, Duration.ofSeconds(1), maxRetries,
+                Duration.ofMillis(5), Duration.ofMillis(20), 0.5, 50, 4, 4, Duration.ofMinutes(1), 1,
+                staleOperations, 100, 100);
+    }
+
+    private CatalogRepository guarded(RepositoryResilience resilience) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("resilience", resilience);
+        return (CatalogRepository) ResilienceConfig
+                .repositoryResiliencePostProcessor(beanFactory.getBeanProvider(RepositoryResilience.class))
+                .postProcessAfterInitialization(stub, "catalogRepository");
+    }
+
+    private double counter(String name, String operation) {
+        return meterRegistry.get(name).tag("operation", operation).counter().count();
+    }
+
+    public interface CatalogRepository extends Repository<Anime, Integer> {
+
+        Mono<Anime> findById(int id);
+
+        Flux<Anime> findAll();
+
+        Flux<Anime> findRecent();
+
+        Mono<Anime> save(Anime anime);
+    }
+
+    /**
+     * Answers from memory, or with the faults queued by {@link #fail} and {@link #hang}, one per call.
+     */
+    private class FaultInjectingRepository implements CatalogRepository {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Deque<Supplier<Throwable>> faults = new ArrayDeque<>();
+
+        private void fail(int times, Supplier<Throwable> error) {
+            for (int i = 0; i < times; i++) {
+                faults.add(error);
+            }
+        }
+
+        private void hang(int times) {
+            fail(times, () -> null);
+        }
+
+        @Override
+        public Mono<Anime> findById(int id) {
+            return call(Mono.fromSupplier(() -> id == 1 ? anime : null));
+        }
+
+        @Override
+        public Flux<Anime> findAll() {
+            return call(Mono.just(anime)).repeat(1);
+        }
+
+        // the second row comes later than the timeout
+        @Override
+        public Flux<Anime> findRecent() {
+            return call(Mono.just(anime)).concatWith(Mono.delay(Duration.ofMillis(150)).thenReturn(anime));
+        }
+
+        @Override
+        public Mono<Anime> save(Anime anime) {
+            return call(Mono.just(anime));
+        }
+
+        private Mono<Anime> call(Mono<Anime> answer) {
+            return Mono.defer(() -> {
+                calls.incrementAndGet();
+                Supplier<Throwable> fault = faults.poll();
+                if (fault == null) {
+                    return answer;
+                }
+                Throwable error = fault.get();
+                return error == null ? Mono.never() : Mono.error(error);
+            });
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.expression.ExpressionUtils;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthenticatedReactiveAuthorizationManager;
+import org.springframework.security.authorization.AuthorityReactiveAuthorizationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.ReactiveAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.util.SimpleMethodInvocation;
+import org.springframework.security.web.server.authorization.AuthorizationContext;
+import org.springframework.security.web.server.authorization.DelegatingReactiveAuthorizationManager;
+import org.springframework.security.web.server.util.matcher.PathPatternParserServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatcherEntry;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of authorizing {@code GET /animes} for an admin: the former path matchers plus the
+ * {@code @PreAuthorize("hasRole('ADMIN')")} SpEL evaluation against the compiled {@link AuthorizationPolicy}.
+ * <p>
+ * Run with {@code loadtest/authorization-benchmark.sh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthorizationBenchmark {
+
+    private Authentication authentication;
+    private MockServerWebExchange exchange;
+    private DelegatingReactiveAuthorizationManager pathMatchers;
+    private DefaultMethodSecurityExpressionHandler expressionHandler;
+    private Expression preAuthorize;
+    private SimpleMethodInvocation invocation;
+    private AuthorizationPolicy authorizationPolicy;
+    private RoleAuthorizationWebFilter roleAuthorizationWebFilter;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        DevDojoUser admin = new DevDojoUser(1, "Joao", "joao", "{noop}devdojo", "ROLE_ADMIN,ROLE_USER");
+        authentication = new UsernamePasswordAuthenticationToken(admin, admin.getPassword(), admin.getAuthorities());
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes"));
+
+        pathMatchers = DelegatingReactiveAuthorizationManager.builder()
+                .add(entry(HttpMethod.POST, "/animes/**", "ADMIN"))
+                .add(entry(HttpMethod.DELETE, "/animes/**", "ADMIN"))
+                .add(entry(HttpMethod.PUT, "/animes/**", "ADMIN"))
+                .add(entry(HttpMethod.PATCH, "/animes/**", "ADMIN"))
+                .add(entry(HttpMethod.GET, "/animes/**", "USER"))
+                .add(new ServerWebExchangeMatcherEntry<>(ServerWebExchangeMatchers.anyExchange(),
+                        AuthenticatedReactiveAuthorizationManager.<AuthorizationContext>authenticated()))
+                .build();
+        expressionHandler = new DefaultMethodSecurityExpressionHandler();
+        preAuthorize = expressionHandler.getExpressionParser().parseExpression("hasRole('ADMIN')");
+        invocation = new SimpleMethodInvocation(new Object(), Object.class.getMethod("toString"));
+
+        authorizationPolicy = AuthorizationPolicy.builder()
+                .rule(HttpMethod.GET, "/animes", Role.ADMIN)
+                .rule(HttpMethod.POST, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.DELETE, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.PUT, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.PATCH, "/animes/**", Role.ADMIN)
+                .rule(HttpMethod.GET, "/animes/**", Role.USER)
+                .build();
+        roleAuthorizationWebFilter = new RoleAuthorizationWebFilter(authorizationPolicy);
+    }
+
+    @Benchmark
+    public boolean pathMatchersAndPreAuthorize() {
+        AuthorizationDecision decision = pathMatchers.check(Mono.just(authentication), exchange)
+                .block();
+        EvaluationContext context = expressionHandler.createEvaluationContext(authentication, invocation);
+        return decision.isGranted() && ExpressionUtils.evaluateAsBoolean(preAuthorize, context);
+    }
+
+    @Benchmark
+    public boolean compiledPolicy() {
+        int requiredRoles = authorizationPolicy.requiredRoles(exchange.getRequest().getMethod(), exchange.getRequest().getPath());
+        return RoleAuthorizationWebFilter.isGranted(authentication, requiredRoles);
+    }
+
+    @Benchmark
+    public Void compiledPolicyFilter() {
+        return roleAuthorizationWebFilter.filter(exchange, filteredExchange -> Mono.empty())
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication))
+                .block();
+    }
+
+    private static ServerWebExchangeMatcherEntry<ReactiveAuthorizationManager<AuthorizationContext>> entry(HttpMethod method, String pattern, String role) {
+        return new ServerWebExchangeMatcherEntry<>(new PathPatternParserServerWebExchangeMatcher(pattern, method),
+                AuthorityReactiveAuthorizationManager.<AuthorizationContext>hasRole(role));
+    }
+}
@@ -0,0 +1,113 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.domain.DevDojoUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class RoleAuthorizationWebFilterTest {
+
+    private final AuthorizationPolicy authorizationPolicy = AuthorizationPolicy.builder()
+            .permitAll(HttpMethod.GET, "/actuator/health/**")
+            .rule(HttpMethod.GET, "/animes", Role.ADMIN)
+            .rule(HttpMethod.POST, "/animes/**", Role.ADMIN)
+            .rule(HttpMethod.GET, "/animes/**", Role.USER)
+            .build();
+    private final RoleAuthorizationWebFilter roleAuthorizationWebFilter = new RoleAuthorizationWebFilter(authorizationPolicy);
+    private final DevDojoUser admin = new DevDojoUser(1, "Joao", "joao", "devdojo", "ROLE_ADMIN,ROLE_USER");
+    private final DevDojoUser user = new DevDojoUser(2, "Igor", "igor", "devdojo", "ROLE_USER");
+
+    @Test
+    @DisplayName("requiredRoles applies the first matching rule, exact paths also with a trailing slash")
+    public void requiredRolesAppliesFirstMatchingRule(){
+        Assertions.assertEquals(Role.ADMIN.bit(), authorizationPolicy.requiredRoles(HttpMethod.GET, "/animes"));
+        Assertions.assertEquals(Role.ADMIN.bit(), authorizationPolicy.requiredRoles(HttpMethod.GET, "/animes/"));
+        Assertions.assertEquals(Role.USER.bit(), authorizationPolicy.requiredRoles(HttpMethod.GET, "/animes/1"));
+        Assertions.assertEquals(Role.ADMIN.bit(), authorizationPolicy.requiredRoles(HttpMethod.POST, "/animes"));
+        Assertions.assertEquals(Role.ADMIN.bit(), authorizationPolicy.requiredRoles(HttpMethod.HEAD, "/animes"));
+        Assertions.assertEquals(Role.USER.bit(), authorizationPolicy.requiredRoles(HttpMethod.HEAD, "/animes/1"));
+        Assertions.assertEquals(AuthorizationPolicy.AUTHENTICATED, authorizationPolicy.requiredRoles(HttpMethod.GET, "/animesx"));
+        Assertions.assertEquals(AuthorizationPolicy.AUTHENTICATED, authorizationPolicy.requiredRoles(null, "/animes"));
+        Assertions.assertEquals(AuthorizationPolicy.PERMIT_ALL,
+                authorizationPolicy.requiredRoles(HttpMethod.GET, "/actuator/health/readiness"));
+    }
+
+    @Test
+    @DisplayName("requiredRoles matches encoded paths and paths with matrix variables as the handlers do")
+    public void requiredRolesMatchesCanonicalPath(){
+        Assertions.assertEquals(Role.ADMIN.bit(), requiredRoles(HttpMethod.GET, "/anim%65s"));
+        Assertions.assertEquals(Role.ADMIN.bit(), requiredRoles(HttpMethod.GET, "/animes;v=1"));
+    }
+
+    @Test
+    @DisplayName("filter continues the chain when a loaded user has one of the required roles")
+    public void filterContinuesWhenGranted(){
+        AtomicBoolean filtered = new AtomicBoolean();
+
+        StepVerifier.create(filter(HttpMethod.GET, "/animes", authentication(admin), filtered))
+                .verifyComplete();
+
+        Assertions.assertTrue(filtered.get());
+        Assertions.assertEquals(Role.mask(Role.ADMIN, Role.USER), admin.getRoleMask());
+    }
+
+    @Test
+    @DisplayName("filter denies users without the role and anonymous requests unless the path is permitted")
+    public void filterDeniesWithoutRequiredRole(){
+        StepVerifier.create(filter(HttpMethod.GET, "/animes", authentication(user), new AtomicBoolean()))
+                .expectError(AccessDeniedException.class)
+                .verify();
+
+        StepVerifier.create(filter(HttpMethod.GET, "/animes/1", null, new AtomicBoolean()))
+                .expectError(AccessDeniedException.class)
+                .verify();
+
+        AtomicBoolean filtered = new AtomicBoolean();
+        StepVerifier.create(filter(HttpMethod.GET, "/actuator/health/liveness", null, filtered))
+                .verifyComplete();
+        Assertions.assertTrue(filtered.get());
+    }
+
+    @Test
+    @DisplayName("filter takes the roles of other principals from their authorities")
+    public void filterUsesAuthoritiesOfOtherPrincipals(){
+        Authentication token = new UsernamePasswordAuthenticationToken("igor", null,
+                AuthorityUtils.createAuthorityList("ROLE_USER", "SCOPE_read"));
+
+        StepVerifier.create(filter(HttpMethod.GET, "/animes/1", token, new AtomicBoolean()))
+                .verifyComplete();
+        StepVerifier.create(filter(HttpMethod.POST, "/animes", token, new AtomicBoolean()))
+                .expectError(AccessDeniedException.class)
+                .verify();
+    }
+
+    private int requiredRoles(HttpMethod method, String path) {
+        MockServerHttpRequest request = MockServerHttpRequest.method(method, URI.create(path)).build();
+        return authorizationPolicy.requiredRoles(request.getMethod(), request.getPath());
+    }
+
+    private Mono<Void> filter(HttpMethod method, String path, Authentication authentication, AtomicBoolean filtered) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.method(method, path));
+        Mono<Void> result = roleAuthorizationWebFilter.filter(exchange, filteredExchange -> Mono.fromRunnable(() -> filtered.set(true)));
+        return authentication == null
+                ? result
+                : result.contextWrite(ReactiveSecurityContextHolder.withAuthentication(authentication));
+    }
+
+    private static Authentication authentication(DevDojoUser user) {
+        return new UsernamePasswordAuthenticationToken(user, user.getPassword(), user.getAuthorities());
+    }
+}
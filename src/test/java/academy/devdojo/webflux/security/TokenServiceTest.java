@@ -0,0 +1,129 @@
+package academy.devdojo.webflux.security;
+
+import academy.devdojo.webflux.domain.AuthToken;
+import academy.devdojo.webflux.domain.DevDojoUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+@ExtendWith(SpringExtension.class)
+public class TokenServiceTest {
+
+    private static final String SECRET = "a-test-secret-of-at-least-32-bytes!";
+
+    @Mock
+    private ReactiveUserDetailsService userDetailsService;
+    private final DevDojoUser user = new DevDojoUser(2, "Igor", "igor", "devdojo", "ROLE_USER");
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+    private TokenService tokenService;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(userDetailsService.findByUsername("igor"))
+                .willReturn(Mono.just(user));
+
+        tokenService = new TokenService(userDetailsService, SECRET, "test", Duration.ofMinutes(15), Duration.ofHours(8),
+                Duration.ofHours(24), new Clock() {
+                    @Override
+                    public ZoneId getZone() {
+                        return ZoneOffset.UTC;
+                    }
+
+                    @Override
+                    public Clock withZone(ZoneId zone) {
+                        return this;
+                    }
+
+                    @Override
+                    public Instant instant() {
+                        return now.get();
+                    }
+                });
+    }
+
+    @Test
+    @DisplayName("authenticationManager accepts an issued access token and takes the roles from it")
+    public void authenticationManagerAcceptsAccessToken(){
+        AuthToken token = tokenService.issue(user);
+
+        StepVerifier.create(authenticate(token.getAccessToken()))
+                .expectNextMatches(roles -> roles == Role.USER.bit())
+                .verifyComplete();
+        BDDMockito.then(userDetailsService).shouldHaveNoInteractions();
+    }
+
+    @Test
+    @DisplayName("authenticationManager rejects refresh tokens, tampered tokens and tokens signed with another key")
+    public void authenticationManagerRejectsInvalidTokens(){
+        AuthToken token = tokenService.issue(user);
+        TokenService otherKey = new TokenService(userDetailsService, SECRET.replace('a', 'b'), "test",
+                Duration.ofMinutes(15), Duration.ofHours(8), Duration.ofHours(24));
+
+        StepVerifier.create(authenticate(token.getRefreshToken()))
+                .expectError(AuthenticationException.class)
+                .verify();
+        StepVerifier.create(authenticate(token.getAccessToken() + "x"))
+                .expectError(AuthenticationException.class)
+                .verify();
+        StepVerifier.create(authenticate(otherKey.issue(user).getAccessToken()))
+                .expectError(AuthenticationException.class)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("refresh issues a new pair for a refresh token and rejects access tokens")
+    public void refreshIssuesNewPairForRefreshTokenOnly(){
+        AuthToken token = tokenService.issue(user);
+
+        StepVerifier.create(tokenService.refresh(token.getRefreshToken()).flatMap(refreshed -> authenticate(refreshed.getAccessToken())))
+                .expectNext(Role.USER.bit())
+                .verifyComplete();
+
+        StepVerifier.create(tokenService.refresh(token.getAccessToken()))
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.UNAUTHORIZED)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("refresh keeps the login time and rejects refresh tokens once the session is older than its maximum age")
+    public void refreshRejectsSessionsPastMaximumAge(){
+        AuthToken token = tokenService.issue(user);
+        now.set(now.get().plus(Duration.ofHours(20)));
+
+        AuthToken refreshed = tokenService.refresh(token.getRefreshToken()).block();
+        Assertions.assertNotNull(refreshed);
+        Assertions.assertEquals(15 * 60, refreshed.getExpiresIn());
+
+        now.set(now.get().plus(Duration.ofHours(4)));
+        StepVerifier.create(tokenService.refresh(refreshed.getRefreshToken()))
+                .expectErrorMatches(error -> error instanceof ResponseStatusException
+                        && ((ResponseStatusException) error).getStatus() == HttpStatus.UNAUTHORIZED)
+                .verify();
+    }
+
+    private Mono<Integer> authenticate(String token) {
+        return tokenService.authenticationManager()
+                .authenticate(new BearerTokenAuthenticationToken(token))
+                .map(authentication -> Role.mask(authentication.getAuthorities()));
+    }
+}
@@ -0,0 +1,99 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.cache.LocalCache;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeBatchOutcome;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import academy.devdojo.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Arrays;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeBulkServiceTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private AnimeOutbox animeOutbox;
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private LocalCache<Integer, Anime> animeCache;
+    @Mock
+    private Bulkheads bulkheads;
+    private AnimeBulkService animeBulkService;
+    private final Anime anime = AnimeCreator.createValidUpdateAnime();
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(bulkheads.batch(ArgumentMatchers.<Flux<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(animeOutbox.recordAll(ArgumentMatchers.any(AnimeEventType.class), ArgumentMatchers.anyList()))
+                .willReturn(Mono.empty());
+
+        animeBulkService = new AnimeBulkService(animeRepository, animeOutbox, transactionalOperator,
+                applicationEventPublisher, animeCache, bulkheads, 2);
+    }
+
+    @Test
+    @DisplayName("updateAll renames in chunks and reports updated, missing and invalid items")
+    public void updateAllReportsOutcomePerId(){
+        BDDMockito.given(animeRepository.updateNames(List.of(anime.withId(1), anime.withId(2))))
+                .willReturn(Flux.just(anime.withId(1)));
+        BDDMockito.given(animeRepository.updateNames(List.of(anime.withId(3))))
+                .willReturn(Flux.just(anime.withId(3)));
+
+        StepVerifier.create(animeBulkService.updateAll(Arrays.asList(anime.withId(1), anime.withId(2),
+                        anime.withId(4).withName(""), null, anime.withId(0), anime.withId(3))))
+                .expectNext(new AnimeBatchOutcome(null, AnimeBatchOutcome.Status.INVALID))
+                .expectNext(new AnimeBatchOutcome(0, AnimeBatchOutcome.Status.INVALID))
+                .expectNext(new AnimeBatchOutcome(4, AnimeBatchOutcome.Status.INVALID))
+                .expectNext(new AnimeBatchOutcome(1, AnimeBatchOutcome.Status.UPDATED))
+                .expectNext(new AnimeBatchOutcome(2, AnimeBatchOutcome.Status.NOT_FOUND))
+                .expectNext(new AnimeBatchOutcome(3, AnimeBatchOutcome.Status.UPDATED))
+                .verifyComplete();
+
+        BDDMockito.then(animeOutbox).should().recordAll(AnimeEventType.UPDATED, List.of(anime.withId(1)));
+        BDDMockito.then(animeCache).should().invalidate(3);
+    }
+
+    @Test
+    @DisplayName("deleteAll removes distinct ids, records DELETED events for existing animes and rejects null ids")
+    public void deleteAllReportsOutcomePerId(){
+        BDDMockito.given(animeRepository.deleteAllReturning(List.of(1, 2)))
+                .willReturn(Flux.just(anime.withId(2)));
+
+        StepVerifier.create(animeBulkService.deleteAll(Arrays.asList(1, 2, null, 1)))
+                .expectNext(new AnimeBatchOutcome(null, AnimeBatchOutcome.Status.INVALID))
+                .expectNext(new AnimeBatchOutcome(1, AnimeBatchOutcome.Status.NOT_FOUND))
+                .expectNext(new AnimeBatchOutcome(2, AnimeBatchOutcome.Status.DELETED))
+                .verifyComplete();
+
+        BDDMockito.then(animeOutbox).should().recordAll(AnimeEventType.DELETED, List.of(anime.withId(2)));
+        BDDMockito.then(applicationEventPublisher).should()
+                .publishEvent(new AnimeChangedEvent(AnimeEventType.DELETED, anime.withId(2)));
+    }
+}
@@ -1,10 +1,13 @@
 package academy.devdojo.webflux.service;
 
+import academy.devdojo.webflux.cache.LocalCache;
 import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
 import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
 import academy.devdojo.webflux.util.AnimeCreator;
 import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,9 +16,11 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import org.springframework.web.server.ResponseStatusException;
-import reactor.blockhound.BlockHound;
 import reactor.blockhound.BlockingOperationError;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -25,6 +30,7 @@ import reactor.test.StepVerifier;
 import java.util.List;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @ExtendWith(SpringExtension.class)
 public class AnimeServiceTest {
@@ -33,15 +39,47 @@ public class AnimeServiceTest {
     private AnimeService animeService;
     @Mock
     private AnimeRepository animeRepository;
+    @Mock
+    private AnimeWriteBehindBuffer animeWriteBehindBuffer;
+    @Mock
+    private AnimeOutbox animeOutbox;
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private LocalCache<Integer, Anime> animeCache;
+    @Mock
+    private Bulkheads bulkheads;
     private final Anime anime = AnimeCreator.createValidAnime();
 
-    @BeforeAll
-    public static void blockHoundSetup(){
-        BlockHound.install();
-    }
-
     @BeforeEach
     public void setUp(){
+        BDDMockito.given(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(transactionalOperator.transactional(ArgumentMatchers.<Flux<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(bulkheads.read(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(bulkheads.read(ArgumentMatchers.<Flux<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(bulkheads.write(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(bulkheads.batch(ArgumentMatchers.<Flux<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(animeCache.get(ArgumentMatchers.anyInt(), ArgumentMatchers.any()))
+                .willAnswer(invocation -> invocation.<Function<Integer, Mono<Anime>>>getArgument(1)
+                        .apply(invocation.getArgument(0)));
+
+        BDDMockito.given(animeOutbox.record(ArgumentMatchers.any(AnimeEventType.class), ArgumentMatchers.any(Anime.class)))
+                .willReturn(Mono.empty());
+
         BDDMockito.given(animeRepository.findAll())
                 .willReturn(Flux.just(anime));
 
@@ -55,8 +93,8 @@ public class AnimeServiceTest {
                 .saveAll(List.of(AnimeCreator.createAnimeToBeSaved(), AnimeCreator.createAnimeToBeSaved())))
                 .willReturn(Flux.just(anime, anime));
 
-        BDDMockito.given(animeRepository.delete(ArgumentMatchers.any(Anime.class)))
-                .willReturn(Mono.empty());
+        BDDMockito.given(animeRepository.markDeleted(ArgumentMatchers.anyInt()))
+                .willReturn(Mono.just(1));
 
         BDDMockito.given(animeRepository.save(AnimeCreator.createValidUpdateAnime()))
                 .willReturn(Mono.empty());
@@ -115,6 +153,32 @@ public class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("save delegates to the write-behind buffer when it is enabled")
+    public void saveDelegatesToWriteBehindBufferWhenEnabled(){
+        Anime animeToBeSaved = AnimeCreator.createAnimeToBeSaved();
+        BDDMockito.given(animeWriteBehindBuffer.isEnabled()).willReturn(true);
+        BDDMockito.given(animeWriteBehindBuffer.save(animeToBeSaved)).willReturn(Mono.just(anime));
+
+        StepVerifier.create(animeService.save(animeToBeSaved))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should(Mockito.never()).save(ArgumentMatchers.any(Anime.class));
+    }
+
+    @Test
+    @DisplayName("save records a CREATED event in the outbox")
+    public void saveRecordsCreatedEventInOutbox(){
+        StepVerifier.create(animeService.save(AnimeCreator.createAnimeToBeSaved()))
+                .expectSubscription()
+                .expectNext(anime)
+                .verifyComplete();
+
+        BDDMockito.then(animeOutbox).should().record(AnimeEventType.CREATED, anime);
+    }
+
     @Test
     @DisplayName("saveAll creates an anime when successful")
     public void saveAllCreateAnimeWhenSucessful(){
@@ -145,6 +209,38 @@ public class AnimeServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    @DisplayName("delete leaves a tombstone instead of removing the row")
+    public void deleteLeavesTombstone(){
+        StepVerifier.create(animeService.delete(1))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should().markDeleted(anime.getId());
+        BDDMockito.then(animeRepository).should(Mockito.never()).delete(ArgumentMatchers.any(Anime.class));
+    }
+
+    @Test
+    @DisplayName("delete records a DELETED event in the outbox")
+    public void deleteRecordsDeletedEventInOutbox(){
+        StepVerifier.create(animeService.delete(1))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.then(animeOutbox).should().record(AnimeEventType.DELETED, anime);
+        BDDMockito.then(applicationEventPublisher).should().publishEvent(new AnimeChangedEvent(AnimeEventType.DELETED, anime));
+    }
+
+    @Test
+    @DisplayName("delete invalidates the cached anime on every replica")
+    public void deleteInvalidatesCachedAnime(){
+        StepVerifier.create(animeService.delete(1))
+                .expectSubscription()
+                .verifyComplete();
+
+        BDDMockito.then(animeCache).should().invalidate(anime.getId());
+    }
+
     @Test
     @DisplayName("delete returns Mono error when anime does not exist")
     public void deleteReturnMonoErrorWhenEmptyMonoIsReturned(){
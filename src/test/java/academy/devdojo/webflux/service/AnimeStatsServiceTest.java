@@ -0,0 +1,99 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeCount;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.util.AnimeCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeStatsServiceTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    private AnimeStatsService animeStatsService;
+    private final Anime anime = AnimeCreator.createValidAnime();
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(animeRepository.count())
+                .willReturn(Mono.just(3L));
+
+        BDDMockito.given(animeRepository.countGroupedByNamePrefix(ArgumentMatchers.anyInt()))
+                .willReturn(Flux.just(new AnimeCount("N", 1), new AnimeCount("P", 2)));
+
+        BDDMockito.given(animeRepository.findRecent(ArgumentMatchers.anyInt()))
+                .willReturn(Flux.just(anime.withId(3), anime.withId(2)));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeStatsService.stop();
+    }
+
+    @Test
+    @DisplayName("count, prefixes and recent are computed in SQL when the summary is disabled")
+    public void queriesGoToDatabaseWhenSummaryIsDisabled(){
+        animeStatsService = new AnimeStatsService(animeRepository, false, Duration.ofHours(1), 2);
+        animeStatsService.start();
+
+        StepVerifier.create(animeStatsService.count(null))
+                .expectNext(3L)
+                .verifyComplete();
+
+        StepVerifier.create(animeStatsService.countByNamePrefix(1))
+                .expectNext(new AnimeCount("N", 1), new AnimeCount("P", 2))
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should().count();
+        BDDMockito.then(animeRepository).should().countGroupedByNamePrefix(1);
+    }
+
+    @Test
+    @DisplayName("the refreshed summary answers count, initials and recent without querying again")
+    public void summaryAnswersFromMemoryWhenEnabled(){
+        animeStatsService = new AnimeStatsService(animeRepository, true, Duration.ofHours(1), 2);
+        animeStatsService.refresh().block();
+
+        StepVerifier.create(animeStatsService.count(null))
+                .expectNext(3L)
+                .verifyComplete();
+
+        StepVerifier.create(animeStatsService.countByNamePrefix(1))
+                .expectNext(new AnimeCount("N", 1), new AnimeCount("P", 2))
+                .verifyComplete();
+
+        StepVerifier.create(animeStatsService.findRecent(1))
+                .expectNext(anime.withId(3))
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should(Mockito.times(1)).count();
+        BDDMockito.then(animeRepository).should(Mockito.times(1)).countGroupedByNamePrefix(1);
+        BDDMockito.then(animeRepository).should(Mockito.times(1)).findRecent(2);
+    }
+
+    @Test
+    @DisplayName("findRecent returns error when limit is out of range")
+    public void findRecentReturnsErrorWhenLimitIsOutOfRange(){
+        animeStatsService = new AnimeStatsService(animeRepository, false, Duration.ofHours(1), 2);
+
+        StepVerifier.create(animeStatsService.findRecent(0))
+                .expectError(ResponseStatusException.class)
+                .verify();
+    }
+}
@@ -0,0 +1,131 @@
+package academy.devdojo.webflux.service;
+
+import academy.devdojo.webflux.cache.LocalCache;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.outbox.AnimeOutbox;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeWriteBehindBufferTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private AnimeOutbox animeOutbox;
+    @Mock
+    private TransactionalOperator transactionalOperator;
+    @Mock
+    private ApplicationEventPublisher applicationEventPublisher;
+    @Mock
+    private LocalCache<Integer, Anime> animeCache;
+    private AnimeWriteBehindBuffer animeWriteBehindBuffer;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(transactionalOperator.transactional(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BDDMockito.given(animeOutbox.recordAll(ArgumentMatchers.any(AnimeEventType.class), ArgumentMatchers.anyList()))
+                .willReturn(Mono.empty());
+
+        BDDMockito.given(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .willAnswer(invocation -> {
+                    List<Anime> animes = invocation.getArgument(0);
+                    return Flux.range(0, animes.size()).map(i -> animes.get(i).withId(100 + i));
+                });
+
+        animeWriteBehindBuffer = new AnimeWriteBehindBuffer(animeRepository, animeOutbox, transactionalOperator, applicationEventPublisher,
+                animeCache, true, 3, Duration.ofSeconds(5));
+        animeWriteBehindBuffer.start();
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeWriteBehindBuffer.stop();
+    }
+
+    @Test
+    @DisplayName("save completes every caller with its own id after a single group commit")
+    public void saveCompletesEachCallerAfterGroupCommit(){
+        StepVerifier.create(Flux.merge(
+                                animeWriteBehindBuffer.save(anime("Naruto")),
+                                animeWriteBehindBuffer.save(anime("Bleach")),
+                                animeWriteBehindBuffer.save(anime("One Piece")))
+                        .collectMap(Anime::getName, Anime::getId))
+                .expectNextMatches(ids -> ids.size() == 3
+                        && ids.values().stream().collect(Collectors.toSet()).size() == 3
+                        && ids.values().stream().allMatch(id -> id >= 100))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        BDDMockito.then(animeRepository).should(Mockito.times(1)).insertAll(ArgumentMatchers.anyList());
+        BDDMockito.then(animeOutbox).should(Mockito.times(1))
+                .recordAll(ArgumentMatchers.eq(AnimeEventType.CREATED), ArgumentMatchers.anyList());
+        BDDMockito.then(animeCache).should(Mockito.times(3)).invalidate(ArgumentMatchers.anyInt());
+    }
+
+    @Test
+    @DisplayName("save propagates a failed group commit to every caller of the group")
+    public void savePropagatesGroupFailureToEveryCaller(){
+        BDDMockito.given(animeRepository.insertAll(ArgumentMatchers.anyList()))
+                .willReturn(Flux.error(new IllegalStateException("commit failed")));
+
+        StepVerifier.create(Flux.merge(
+                                animeWriteBehindBuffer.save(anime("Naruto")).onErrorReturn(anime("failed")),
+                                animeWriteBehindBuffer.save(anime("Bleach")).onErrorReturn(anime("failed")),
+                                animeWriteBehindBuffer.save(anime("One Piece")).onErrorReturn(anime("failed")))
+                        .map(Anime::getName))
+                .expectNext("failed", "failed", "failed")
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("save generates an anime_id when the anime has none")
+    public void saveGeneratesAnimeIdWhenMissing(){
+        StepVerifier.create(Flux.merge(
+                                animeWriteBehindBuffer.save(anime("Naruto")),
+                                animeWriteBehindBuffer.save(anime("Bleach")),
+                                animeWriteBehindBuffer.save(anime("One Piece"))))
+                .thenConsumeWhile(saved -> UUID.fromString(saved.getAnimeId()).version() == 4)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("saves made concurrently from several threads are all queued and committed")
+    public void concurrentSavesAreAllCommitted(){
+        StepVerifier.create(Flux.range(0, 300)
+                        .flatMap(i -> animeWriteBehindBuffer.save(anime("Anime " + i)).subscribeOn(Schedulers.parallel()))
+                        .count())
+                .expectNext(300L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    private static Anime anime(String name){
+        return Anime.builder().name(name).build();
+    }
+}
@@ -0,0 +1,61 @@
+package academy.devdojo.webflux.snapshot;
+
+import academy.devdojo.webflux.service.AnimeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.test.StepVerifier;
+
+import java.nio.ByteBuffer;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeCatalogSnapshotHandlerTest {
+
+    private static final String ETAG = "\"abc\"";
+
+    @Mock
+    private AnimeCatalogSnapshot animeCatalogSnapshot;
+    @Mock
+    private AnimeService animeService;
+    private AnimeCatalogSnapshotHandler animeCatalogSnapshotHandler;
+
+    @BeforeEach
+    public void setUp(){
+        ByteBuffer json = ByteBuffer.wrap("[]".getBytes());
+        BDDMockito.given(animeCatalogSnapshot.current())
+                .willReturn(new AnimeCatalogSnapshot.Snapshot(1, ETAG, json, json));
+        animeCatalogSnapshotHandler = new AnimeCatalogSnapshotHandler(animeCatalogSnapshot, animeService);
+    }
+
+    @Test
+    @DisplayName("listAll answers 304 when If-None-Match lists the ETag, weakly or not, or is *")
+    public void listAllAnswersNotModifiedForMatchingTags(){
+        assertStatus("\"other\", " + ETAG, HttpStatus.NOT_MODIFIED);
+        assertStatus("W/" + ETAG, HttpStatus.NOT_MODIFIED);
+        assertStatus("*", HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    @DisplayName("listAll serves the catalog when no tag in If-None-Match matches")
+    public void listAllServesCatalogForOtherTags(){
+        assertStatus("\"other\", \"abcd\"", HttpStatus.OK);
+    }
+
+    private void assertStatus(String ifNoneMatch, HttpStatus status) {
+        MockServerRequest request = MockServerRequest.builder()
+                .header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch)
+                .build();
+
+        StepVerifier.create(animeCatalogSnapshotHandler.listAll(request).map(ServerResponse::statusCode))
+                .expectNext(status)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,189 @@
+package academy.devdojo.webflux.snapshot;
+
+import academy.devdojo.webflux.cache.InvalidationBus;
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeEventType;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.service.AnimeChangedEvent;
+import academy.devdojo.webflux.util.AnimeCreator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeCatalogSnapshotTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private InvalidationBus invalidationBus;
+    private final Sinks.Many<String> invalidations = Sinks.many().multicast().directBestEffort();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Anime anime = AnimeCreator.createValidAnime();
+    private AnimeCatalogSnapshot animeCatalogSnapshot;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(invalidationBus.invalidations()).willReturn(invalidations.asFlux());
+        animeCatalogSnapshot = new AnimeCatalogSnapshot(animeRepository, invalidationBus, objectMapper, "heap", directory,
+                Duration.ofHours(1));
+    }
+
+    @AfterEach
+    public void tearDown(){
+        animeCatalogSnapshot.stop();
+    }
+
+    @Test
+    @DisplayName("rebuild renders the catalog as a json array ordered by id")
+    public void rebuildRendersCatalogOrderedById() throws IOException {
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime.withId(2).withName("Naruto")));
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        Anime[] catalog = objectMapper.readValue(text(animeCatalogSnapshot.current().getJson()), Anime[].class);
+
+        Assertions.assertEquals(2, catalog.length);
+        Assertions.assertEquals(anime, catalog[0]);
+        Assertions.assertEquals("Naruto", catalog[1].getName());
+    }
+
+    @Test
+    @DisplayName("rebuild applies updates and deletes and bumps the version")
+    public void rebuildAppliesUpdatesAndDeletes() throws IOException {
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime.withId(2)));
+        animeCatalogSnapshot.rebuildIfDirty();
+        long firstVersion = animeCatalogSnapshot.current().getVersion();
+
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.UPDATED, anime.withName("Naruto")));
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.DELETED, anime.withId(2)));
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        Anime[] catalog = objectMapper.readValue(text(animeCatalogSnapshot.current().getJson()), Anime[].class);
+        Assertions.assertArrayEquals(new Anime[]{anime.withName("Naruto")}, catalog);
+        Assertions.assertTrue(animeCatalogSnapshot.current().getVersion() > firstVersion);
+    }
+
+    @Test
+    @DisplayName("the ETag is derived from the content, so separate instances agree on it and changes alter it")
+    public void etagIsDerivedFromContent(){
+        AnimeCatalogSnapshot other = new AnimeCatalogSnapshot(animeRepository, invalidationBus, objectMapper, "heap",
+                directory, Duration.ofHours(1));
+        other.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        other.rebuildIfDirty();
+        other.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.UPDATED, anime));
+        other.rebuildIfDirty();
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        animeCatalogSnapshot.rebuildIfDirty();
+        String etag = animeCatalogSnapshot.current().getEtag();
+
+        Assertions.assertNotEquals(animeCatalogSnapshot.current().getVersion(), other.current().getVersion());
+        Assertions.assertEquals(etag, other.current().getEtag());
+
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.UPDATED, anime.withName("Naruto")));
+        animeCatalogSnapshot.rebuildIfDirty();
+        Assertions.assertNotEquals(etag, animeCatalogSnapshot.current().getEtag());
+    }
+
+    @Test
+    @DisplayName("gzip form decompresses to the json form")
+    public void gzipDecompressesToJson() throws IOException {
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        animeCatalogSnapshot.rebuildIfDirty();
+        AnimeCatalogSnapshot.Snapshot snapshot = animeCatalogSnapshot.current();
+
+        byte[] gzip = bytes(snapshot.getGzip());
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            Assertions.assertEquals(text(snapshot.getJson()), new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @DisplayName("mmap storage serves the catalog from memory-mapped files")
+    public void mmapStorageServesCatalogFromMappedFiles() throws IOException {
+        animeCatalogSnapshot = new AnimeCatalogSnapshot(animeRepository, invalidationBus, objectMapper, "mmap", directory,
+                Duration.ofHours(1));
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.CREATED, anime));
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        ByteBuffer json = animeCatalogSnapshot.current().getJson();
+        Assertions.assertTrue(json.isDirect());
+        Assertions.assertArrayEquals(new Anime[]{anime}, objectMapper.readValue(text(json), Anime[].class));
+    }
+
+    @Test
+    @DisplayName("an anime deleted while the catalog loads is not put back by the load")
+    public void deleteDuringLoadIsNotUndoneByTheLoad() throws IOException {
+        Sinks.Many<Anime> rows = Sinks.many().unicast().onBackpressureBuffer();
+        BDDMockito.given(animeRepository.findAll()).willReturn(rows.asFlux());
+        animeCatalogSnapshot.start();
+
+        rows.tryEmitNext(anime);
+        rows.tryEmitNext(anime.withId(2));
+        animeCatalogSnapshot.onAnimeChanged(new AnimeChangedEvent(AnimeEventType.DELETED, anime.withId(2)));
+        rows.tryEmitComplete();
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        Anime[] catalog = objectMapper.readValue(text(animeCatalogSnapshot.current().getJson()), Anime[].class);
+        Assertions.assertArrayEquals(new Anime[]{anime}, catalog);
+    }
+
+    @Test
+    @DisplayName("animes invalidated by other replicas are read again, ALL reloads the catalog")
+    public void invalidationsFromOtherReplicasAreApplied() throws IOException {
+        BDDMockito.given(animeRepository.findAll()).willReturn(Flux.just(anime, anime.withId(2)));
+        animeCatalogSnapshot.start();
+
+        BDDMockito.given(animeRepository.findById(1)).willReturn(Mono.just(anime.withName("Naruto")));
+        BDDMockito.given(animeRepository.findById(2)).willReturn(Mono.empty());
+        BDDMockito.given(animeRepository.findById(3)).willReturn(Mono.just(anime.withId(3)));
+        invalidations.tryEmitNext("anime:1");
+        invalidations.tryEmitNext("anime:2");
+        invalidations.tryEmitNext("anime:3");
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        Anime[] catalog = objectMapper.readValue(text(animeCatalogSnapshot.current().getJson()), Anime[].class);
+        Assertions.assertArrayEquals(new Anime[]{anime.withName("Naruto"), anime.withId(3)}, catalog);
+
+        BDDMockito.given(animeRepository.findAll()).willReturn(Flux.just(anime.withId(2)));
+        invalidations.tryEmitNext(InvalidationBus.ALL);
+        animeCatalogSnapshot.rebuildIfDirty();
+
+        catalog = objectMapper.readValue(text(animeCatalogSnapshot.current().getJson()), Anime[].class);
+        Assertions.assertArrayEquals(new Anime[]{anime.withId(2)}, catalog);
+    }
+
+    private static String text(ByteBuffer buffer){
+        return new String(bytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer){
+        ByteBuffer duplicate = buffer.duplicate();
+        byte[] bytes = new byte[duplicate.remaining()];
+        duplicate.get(bytes);
+        return bytes;
+    }
+}
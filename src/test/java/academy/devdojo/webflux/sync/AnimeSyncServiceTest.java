@@ -0,0 +1,123 @@
+package academy.devdojo.webflux.sync;
+
+import academy.devdojo.webflux.domain.Anime;
+import academy.devdojo.webflux.domain.AnimeChanges;
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class AnimeSyncServiceTest {
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private Bulkheads bulkheads;
+    private AnimeSyncService animeSyncService;
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MICROS);
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(bulkheads.read(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        animeSyncService = new AnimeSyncService(animeRepository, bulkheads, Duration.ofDays(7), Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("changesSince starts from the beginning and returns the position of the last change as watermark")
+    public void changesSinceReturnsWatermarkOfLastChange(){
+        Anime updated = new Anime("Naruto", 3, "a", now.minusSeconds(60), false);
+        Anime tombstone = new Anime("Bleach", 1, "b", now.minusSeconds(30), true);
+        BDDMockito.given(animeRepository.findChangedAfter(Instant.EPOCH, 0, 5000, 2))
+                .willReturn(Flux.just(updated, tombstone));
+
+        AnimeChanges changes = animeSyncService.changesSince(null, 2).block();
+
+        Assertions.assertNotNull(changes);
+        Assertions.assertTrue(changes.isHasMore());
+        Assertions.assertTrue(changes.getChanges().get(1).isDeleted());
+        String position = ChronoUnit.MICROS.between(Instant.EPOCH, tombstone.getUpdatedAt()) + "_1_";
+        Assertions.assertTrue(changes.getWatermark().startsWith(position));
+
+        BDDMockito.given(animeRepository.findChangedAfter(tombstone.getUpdatedAt(), 1, 5000, 2))
+                .willReturn(Flux.empty());
+
+        StepVerifier.create(animeSyncService.changesSince(changes.getWatermark(), 2))
+                .expectNextMatches(caughtUp -> caughtUp.getChanges().isEmpty() && !caughtUp.isHasMore()
+                        && caughtUp.getWatermark().startsWith(position))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("a full sync pages through changes older than the tombstone retention")
+    public void fullSyncPagesThroughChangesOlderThanRetention(){
+        Anime first = new Anime("Naruto", 1, "a", now.minus(Duration.ofDays(30)), false);
+        Anime second = new Anime("Bleach", 2, "b", now.minus(Duration.ofDays(20)), false);
+        BDDMockito.given(animeRepository.findChangedAfter(Instant.EPOCH, 0, 5000, 1))
+                .willReturn(Flux.just(first));
+        BDDMockito.given(animeRepository.findChangedAfter(first.getUpdatedAt(), 1, 5000, 1))
+                .willReturn(Flux.just(second));
+
+        AnimeChanges page = animeSyncService.changesSince(null, 1).block();
+        Assertions.assertNotNull(page);
+        Assertions.assertTrue(page.isHasMore());
+
+        // the next page keeps the session start of the first one
+        String syncedAt = page.getWatermark().substring(page.getWatermark().lastIndexOf('_'));
+        StepVerifier.create(animeSyncService.changesSince(page.getWatermark(), 1))
+                .expectNext(new AnimeChanges(List.of(second),
+                        ChronoUnit.MICROS.between(Instant.EPOCH, second.getUpdatedAt()) + "_2" + syncedAt, true))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("changesSince returns 400 for a malformed watermark or limit")
+    public void changesSinceRejectsMalformedWatermark(){
+        StepVerifier.create(animeSyncService.changesSince("yesterday", 10))
+                .expectErrorMatches(error -> status(error) == HttpStatus.BAD_REQUEST)
+                .verify();
+
+        StepVerifier.create(animeSyncService.changesSince(null, 0))
+                .expectErrorMatches(error -> status(error) == HttpStatus.BAD_REQUEST)
+                .verify();
+    }
+
+    @Test
+    @DisplayName("changesSince returns 410 when the watermark is older than the tombstone retention")
+    public void changesSinceRejectsExpiredWatermark(){
+        long eightDaysAgo = ChronoUnit.MICROS.between(Instant.EPOCH, now.minus(Duration.ofDays(8)));
+
+        StepVerifier.create(animeSyncService.changesSince(eightDaysAgo + "_42", 10))
+                .expectErrorMatches(error -> status(error) == HttpStatus.GONE)
+                .verify();
+
+        StepVerifier.create(animeSyncService.changesSince(eightDaysAgo + "_42_" + eightDaysAgo, 10))
+                .expectErrorMatches(error -> status(error) == HttpStatus.GONE)
+                .verify();
+
+        BDDMockito.then(animeRepository).shouldHaveNoInteractions();
+    }
+
+    private static HttpStatus status(Throwable error) {
+        return error instanceof ResponseStatusException ? ((ResponseStatusException) error).getStatus() : null;
+    }
+}
@@ -0,0 +1,62 @@
+package academy.devdojo.webflux.sync;
+
+import academy.devdojo.webflux.repository.AnimeRepository;
+import academy.devdojo.webflux.resilience.Bulkheads;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+@ExtendWith(SpringExtension.class)
+public class TombstoneCompactorTest {
+
+    private static final long RETENTION_MILLIS = Duration.ofDays(7).toMillis();
+
+    @Mock
+    private AnimeRepository animeRepository;
+    @Mock
+    private Bulkheads bulkheads;
+    private TombstoneCompactor tombstoneCompactor;
+
+    @BeforeEach
+    public void setUp(){
+        BDDMockito.given(bulkheads.batch(ArgumentMatchers.<Mono<Object>>any()))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        tombstoneCompactor = new TombstoneCompactor(animeRepository, bulkheads, Duration.ofDays(7),
+                Duration.ofHours(1), 2);
+    }
+
+    @Test
+    @DisplayName("compact purges batches until one comes back short and emits the total")
+    public void compactPurgesUntilShortBatch(){
+        BDDMockito.given(animeRepository.purgeTombstones(RETENTION_MILLIS, 2))
+                .willReturn(Mono.just(2), Mono.just(2), Mono.just(1));
+
+        StepVerifier.create(tombstoneCompactor.compact())
+                .expectNext(5L)
+                .verifyComplete();
+
+        BDDMockito.then(animeRepository).should(Mockito.times(3)).purgeTombstones(RETENTION_MILLIS, 2);
+    }
+
+    @Test
+    @DisplayName("compact swallows failures so the next interval tries again")
+    public void compactSurvivesFailures(){
+        BDDMockito.given(animeRepository.purgeTombstones(RETENTION_MILLIS, 2))
+                .willReturn(Mono.error(new IllegalStateException("database down")));
+
+        StepVerifier.create(tombstoneCompactor.compact())
+                .expectNext(0L)
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,90 @@
+package academy.devdojo.webflux.tracing;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@ExtendWith(SpringExtension.class)
+public class TracerTest {
+
+    private static final String SAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+    private static final String NOT_SAMPLED = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00";
+
+    private final InMemorySpanExporter exporter = new InMemorySpanExporter();
+
+    @Test
+    @DisplayName("trace nests spans under the span in the context and exports the sampled trace")
+    public void traceNestsSpansUnderCurrentSpan(){
+        Tracer tracer = tracer(0, Duration.ZERO, false);
+        Span root = tracer.startTrace("GET /animes/{id}", SAMPLED);
+
+        Mono<String> service = tracer.trace("AnimeService.findById", Mono.deferContextual(context -> {
+            tracer.record(context, "r2dbc.query", Duration.ofMillis(3), false, Map.of("db.rows", "1"));
+            return Mono.just("Pokemon");
+        }));
+        StepVerifier.create(tracer.trace("AnimeController.findById", service).contextWrite(Tracer.context(root)))
+                .expectNext("Pokemon")
+                .verifyComplete();
+        tracer.endTrace(root);
+
+        Map<String, SpanData> spans = exporter.getSpans().stream()
+                .collect(Collectors.toMap(SpanData::getName, span -> span));
+        Assertions.assertEquals(4, spans.size());
+        Assertions.assertEquals("00f067aa0ba902b7", spans.get("GET /animes/{id}").getParentSpanId());
+        Assertions.assertEquals(spans.get("GET /animes/{id}").getSpanId(),
+                spans.get("AnimeController.findById").getParentSpanId());
+        Assertions.assertEquals(spans.get("AnimeController.findById").getSpanId(),
+                spans.get("AnimeService.findById").getParentSpanId());
+        Assertions.assertEquals(spans.get("AnimeService.findById").getSpanId(),
+                spans.get("r2dbc.query").getParentSpanId());
+        Assertions.assertTrue(spans.values().stream()
+                .allMatch(span -> span.getTraceId().equals("4bf92f3577b34da6a3ce929d0e0e4736")));
+    }
+
+    @Test
+    @DisplayName("startTrace records nothing for a trace the caller did not sample without tail sampling")
+    public void startTraceSkipsUnsampledTraceWithoutTailSampling(){
+        Assertions.assertNull(tracer(1, Duration.ZERO, false).startTrace("GET /animes", NOT_SAMPLED));
+    }
+
+    @Test
+    @DisplayName("endTrace exports an unsampled trace only when tail sampling keeps it")
+    public void endTraceExportsFailedTraceWithTailSampling(){
+        Tracer tracer = tracer(0, Duration.ofHours(1), true);
+
+        Span succeeded = tracer.startTrace("GET /animes", NOT_SAMPLED);
+        StepVerifier.create(tracer.trace("AnimeService.findAll", Mono.just(1)).contextWrite(Tracer.context(succeeded)))
+                .expectNext(1)
+                .verifyComplete();
+        tracer.endTrace(succeeded);
+        Assertions.assertTrue(exporter.getSpans().isEmpty());
+
+        Span failed = tracer.startTrace("GET /animes", NOT_SAMPLED);
+        StepVerifier.create(tracer.trace("AnimeService.findAll", Mono.error(new IllegalStateException()))
+                        .contextWrite(Tracer.context(failed)))
+                .verifyError(IllegalStateException.class);
+        tracer.endTrace(failed);
+
+        List<SpanData> spans = exporter.getSpans();
+        Assertions.assertEquals(2, spans.size());
+        Assertions.assertTrue(spans.stream().anyMatch(span -> span.getName().equals("AnimeService.findAll")
+                && span.isError()
+                && span.getAttributes().get("error").equals(IllegalStateException.class.getName())));
+    }
+
+    private Tracer tracer(double sampleRate, Duration tailLatencyThreshold, boolean tailErrors) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("exporter", exporter));
+        return new Tracer(beanFactory.getBeanProvider(SpanExporter.class), sampleRate, tailLatencyThreshold,
+                tailErrors, 256, Duration.ZERO);
+    }
+}
@@ -0,0 +1,17 @@
+package academy.devdojo.webflux.util;
+
+import org.junit.jupiter.api.extension.Extension;
+import reactor.blockhound.BlockHound;
+
+/**
+ * Installs BlockHound once for the whole test run, before any test can start a Reactor scheduler: on
+ * JDK 11 a scheduler thread already running when BlockHound is installed dies with
+ * {@code IllegalMonitorStateException}, and whatever it was serving times out. Registered for every test
+ * through extension auto-detection, see {@code junit-platform.properties}.
+ */
+public class BlockHoundExtension implements Extension {
+
+    public BlockHoundExtension() {
+        BlockHound.install();
+    }
+}